@@ -0,0 +1,54 @@
+package com.github.matejonnet.osctuya;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding of a command frame, what the bulb sender does for every frame (Bulb.generatePayload).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PayloadEncoderBenchmark {
+
+    private PayloadEncoder encoder;
+    private Dps brightness;
+    private Dps colour;
+    private int sequence;
+
+    @Setup
+    public void setup() throws PayloadGenerationException {
+        encoder = new PayloadEncoder("0123456789abcdef012345", "0123456789abcdef");
+        brightness = new Dps().set(DataPoint.BRIGHTNESS, 505);
+        colour = new Dps().set(DataPoint.POWER, true).set(DataPoint.MODE, 1).set(DataPoint.COLOUR, Utils.packHsv(255, 128, 0));
+    }
+
+    @Benchmark
+    public ByteBuffer encodeBrightness() throws PayloadGenerationException {
+        return encoder.encode(brightness, sequence++);
+    }
+
+    @Benchmark
+    public ByteBuffer encodeColour() throws PayloadGenerationException {
+        return encoder.encode(colour, sequence++);
+    }
+
+    @Benchmark
+    public ByteBuffer encodeHeartbeat() throws PayloadGenerationException {
+        return encoder.encodeHeartbeat(sequence++);
+    }
+}
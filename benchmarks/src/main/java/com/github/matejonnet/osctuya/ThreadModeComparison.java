@@ -0,0 +1,206 @@
+package com.github.matejonnet.osctuya;
+
+import com.github.matejonnet.osctuya.config.Config;
+import com.github.matejonnet.osctuya.config.ConnectionType;
+import com.github.matejonnet.osctuya.config.ThreadMode;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Compares the platform and the virtual {@link ThreadMode} with many bulbs: the bridge threads, the RSS
+ * and the latency from the {@link Bulb#setBrightness(int)} call until the frame is received by the sink.
+ *
+ * The sink is a single threaded selector listening on a loopback port per bulb, it only reads the frames
+ * and never replies, so the sink threads are not counted and the bulbs are not slowed down by the replies.
+ * Every round sets the brightness of every bulb once, the rounds alternate between two values
+ * so that no command is suppressed as unchanged.
+ *
+ * Run with: java -cp benchmarks/target/benchmarks.jar com.github.matejonnet.osctuya.ThreadModeComparison
+ * [bulbs=50] [mode=PLATFORM] [connection=CHANNEL] [rounds=20] [interval=250]
+ * Each run needs about 3 file descriptors per bulb, raise the limit with ulimit -n for 2000 bulbs.
+ */
+public class ThreadModeComparison {
+
+    private static final String DEVICE_ID = "0123456789abcdef012345";
+    private static final String DEVICE_KEY = "0123456789abcdef";
+
+    private final int bulbCount;
+    private final AtomicLongArray sentAt;
+    private final long[] latencies;
+    private int samples;
+    private final Selector selector;
+    private volatile boolean running = true;
+
+    ThreadModeComparison(int bulbCount, int rounds) throws IOException {
+        this.bulbCount = bulbCount;
+        this.sentAt = new AtomicLongArray(bulbCount);
+        this.latencies = new long[bulbCount * rounds];
+        this.selector = Selector.open();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> arguments = new HashMap<>();
+        for (String arg : args) {
+            String[] keyValue = arg.split("=", 2);
+            arguments.put(keyValue[0], keyValue[1]);
+        }
+        int bulbs = Integer.parseInt(arguments.getOrDefault("bulbs", "50"));
+        ThreadMode mode = ThreadMode.valueOf(arguments.getOrDefault("mode", "PLATFORM"));
+        ConnectionType connectionType = ConnectionType.valueOf(arguments.getOrDefault("connection", "CHANNEL"));
+        int rounds = Integer.parseInt(arguments.getOrDefault("rounds", "20"));
+        long intervalMillis = Long.parseLong(arguments.getOrDefault("interval", "250"));
+
+        BulbExecutors.configure(mode);
+        new ThreadModeComparison(bulbs, rounds).run(connectionType, rounds, intervalMillis);
+        System.exit(0);
+    }
+
+    void run(ConnectionType connectionType, int rounds, long intervalMillis) throws IOException, InterruptedException {
+        Config config = Config.builder()
+                .connectionType(connectionType)
+                .threadMode(BulbExecutors.getThreadMode())
+                // the sink never replies
+                .heartbeatIntervalMillis(0)
+                .readTimeoutMillis(600_000)
+                .build();
+        List<Integer> ports = new ArrayList<>();
+        for (int i = 0; i < bulbCount; i++) {
+            ServerSocketChannel server = ServerSocketChannel.open();
+            server.bind(new InetSocketAddress("127.0.0.1", 0));
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT, i);
+            ports.add(server.socket().getLocalPort());
+        }
+        Thread sink = new Thread(this::sink, "sink");
+        sink.setDaemon(true);
+        sink.start();
+
+        List<Bulb> bulbs = new ArrayList<>();
+        for (int i = 0; i < bulbCount; i++) {
+            Bulb bulb = new Bulb("127.0.0.1", ports.get(i), DEVICE_ID, DEVICE_KEY, "bulb-" + i, config);
+            bulb.connect();
+            bulbs.add(bulb);
+        }
+        for (int round = 0; round < rounds; round++) {
+            int brightness = round % 2 == 0 ? 40 : 60;
+            for (int i = 0; i < bulbCount; i++) {
+                sentAt.set(i, System.nanoTime());
+                bulbs.get(i).setBrightness(brightness);
+            }
+            Thread.sleep(intervalMillis);
+        }
+        // the threads are counted while the bulbs are still connected
+        Thread.sleep(1000);
+        int threads = bridgeThreads();
+        long rssKb = rssKb();
+        running = false;
+        selector.wakeup();
+        sink.join();
+        bulbs.forEach(Bulb::close);
+
+        long[] sorted;
+        synchronized (this) {
+            sorted = Arrays.copyOf(latencies, samples);
+        }
+        Arrays.sort(sorted);
+        System.out.println("| Bulbs | Mode | Threads | RSS | p50 | p99 |");
+        System.out.println("|-------|------|---------|-----|-----|-----|");
+        System.out.printf("| %d | %s, JDK%d | %d | %d MB | %s ms | %s ms |%n", bulbCount,
+                BulbExecutors.getThreadMode().name().toLowerCase(), Runtime.version().feature(), threads, rssKb / 1024,
+                percentile(sorted, 0.5), percentile(sorted, 0.99));
+    }
+
+    /**
+     * The first bytes received from a bulb after a command complete the measurement of that command.
+     */
+    private void sink() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(4096);
+        while (running) {
+            try {
+                selector.select();
+                for (SelectionKey key : selector.selectedKeys()) {
+                    int bulb = (Integer) key.attachment();
+                    if (key.isAcceptable()) {
+                        SocketChannel channel = ((ServerSocketChannel) key.channel()).accept();
+                        if (channel != null) {
+                            channel.configureBlocking(false);
+                            channel.register(selector, SelectionKey.OP_READ, bulb);
+                        }
+                    } else if (key.isReadable()) {
+                        buffer.clear();
+                        if (((SocketChannel) key.channel()).read(buffer) < 0) {
+                            key.cancel();
+                            key.channel().close();
+                            continue;
+                        }
+                        long sent = sentAt.getAndSet(bulb, 0);
+                        if (sent != 0) {
+                            record(System.nanoTime() - sent);
+                        }
+                    }
+                }
+                selector.selectedKeys().clear();
+            } catch (IOException e) {
+                System.err.println("Sink failed: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private synchronized void record(long latencyNanos) {
+        if (samples < latencies.length) {
+            latencies[samples++] = latencyNanos;
+        }
+    }
+
+    /**
+     * @return live platform threads, without the sink
+     */
+    private static int bridgeThreads() {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (!thread.getName().equals("sink")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return resident set size of the JVM, 0 when not running on Linux
+     */
+    private static long rssKb() {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", ""));
+                }
+            }
+        } catch (IOException e) {
+            // not Linux
+        }
+        return 0;
+    }
+
+    private static String percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return "-";
+        }
+        long nanos = sorted[Math.min(sorted.length - 1, (int) (sorted.length * percentile))];
+        return String.format("%.1f", nanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,60 @@
+package com.github.matejonnet.osctuya;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilsBenchmark {
+
+    private final Utils.Crc32 crc = new Utils.Crc32();
+    private final byte[] frame = new byte[151];
+    private int red;
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < frame.length; i++) {
+            frame[i] = (byte) i;
+        }
+    }
+
+    @Benchmark
+    public int packHsv() {
+        red = (red + 1) & 0xFF;
+        return Utils.packHsv(red, 128, 64);
+    }
+
+    @Benchmark
+    public String getHexColor() {
+        red = (red + 1) & 0xFF;
+        return Utils.getHexColor(red, 128, 64);
+    }
+
+    @Benchmark
+    public int crc32() {
+        crc.reset();
+        crc.update(frame, 0, frame.length);
+        return crc.intValue();
+    }
+
+    @Benchmark
+    public byte[] crc32Bytes() {
+        crc.reset();
+        crc.update(frame, 0, frame.length);
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,50 @@
+package com.github.matejonnet.osctuya.osc;
+
+import com.github.matejonnet.osctuya.Bulb;
+import com.github.matejonnet.osctuya.config.Config;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Processing of a routed command up to the bulb send queue, the bulb is not connected so nothing is written.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BulbCommandProcessorBenchmark {
+
+    private final BulbCommandProcessor processor = new BulbCommandProcessor();
+    private BulbCommand brightness;
+    private BulbCommand red;
+
+    @Setup
+    public void setup() {
+        Config config = Config.builder().sendQueueSize(10).heartbeatIntervalMillis(0).build();
+        Bulb bulb = new Bulb("127.0.0.1", "0123456789abcdef012345", "0123456789abcdef", "bulb", config);
+        brightness = new BulbCommand(bulb, TuyaCommand.BRIGHTNESS, 0.5f);
+        red = new BulbCommand(bulb, TuyaCommand.RED, 0.5f);
+    }
+
+    @Benchmark
+    public void processBrightness() {
+        processor.process(brightness);
+    }
+
+    @Benchmark
+    public void processRed() {
+        processor.process(red);
+    }
+}
@@ -0,0 +1,126 @@
+package com.github.matejonnet.osctuya.osc;
+
+import com.github.matejonnet.osctuya.Bulb;
+import com.github.matejonnet.osctuya.config.Config;
+import com.github.matejonnet.osctuya.metrics.OscMetrics;
+import com.illposed.osc.OSCBadDataEvent;
+import com.illposed.osc.OSCMessage;
+import com.illposed.osc.OSCMessageEvent;
+import com.illposed.osc.OSCPacketEvent;
+import com.illposed.osc.OSCPacketListener;
+import com.illposed.osc.OSCParseException;
+import com.illposed.osc.OSCParser;
+import com.illposed.osc.OSCSerializerAndParserBuilder;
+import com.illposed.osc.argument.OSCTimeTag64;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A received OSC packet to the command scheduler: decoded in place by the {@link OscPacketHandler}
+ * or parsed by javaosc and routed by the {@link TuyaMessageListener}. The bulbs are not connected.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OscPacketHandlerBenchmark {
+
+    private static final int BULBS = 100;
+
+    private OscPacketHandler handler;
+    private TuyaMessageListener listener;
+    private final OSCParser parser = new OSCSerializerAndParserBuilder().buildParser();
+    private ByteBuffer[] packets;
+    private int next;
+    private Blackhole blackhole;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        this.blackhole = blackhole;
+        Config config = Config.builder().sendQueueSize(10).heartbeatIntervalMillis(0).build();
+        List<BulbWithAddresses> bulbsWithAddresses = new ArrayList<>();
+        packets = new ByteBuffer[BULBS];
+        for (int i = 0; i < BULBS; i++) {
+            Bulb bulb = new Bulb("127.0.0.1", "0123456789abcdef012345", "0123456789abcdef", "bulb-" + i, config);
+            BulbWithAddresses bulbWithAddresses = new BulbWithAddresses(bulb);
+            String address = "/0/dmx/" + (i * 6 + 1);
+            bulbWithAddresses.putMapping(TuyaCommand.BRIGHTNESS, address);
+            bulbsWithAddresses.add(bulbWithAddresses);
+            packets[i] = ByteBuffer.allocateDirect(64).put(message(address, 0.5f)).flip();
+        }
+        AddressRouter router = new AddressRouter(bulbsWithAddresses);
+        handler = new OscPacketHandler(router, new ConsumingScheduler(), new OscMetrics(), new ConsumingListener());
+        listener = new TuyaMessageListener(router, blackhole::consume);
+    }
+
+    @Benchmark
+    public void handleInPlace() {
+        handler.handle(packets[next], this, 0);
+        next = next + 1 == packets.length ? 0 : next + 1;
+    }
+
+    @Benchmark
+    public void parseAndRoute() throws OSCParseException {
+        ByteBuffer packet = packets[next];
+        OSCMessage message = (OSCMessage) parser.convert(packet);
+        packet.rewind();
+        listener.acceptMessage(new OSCMessageEvent(this, OSCTimeTag64.IMMEDIATE, message));
+        next = next + 1 == packets.length ? 0 : next + 1;
+    }
+
+    private static byte[] message(String address, float value) {
+        ByteBuffer message = ByteBuffer.allocate(64);
+        message.put(address.getBytes(StandardCharsets.US_ASCII));
+        message.put(new byte[4 - address.length() % 4]);
+        message.put((byte) ',').put((byte) 'f').putShort((short) 0);
+        message.putFloat(value);
+        byte[] bytes = new byte[message.position()];
+        message.flip().get(bytes);
+        return bytes;
+    }
+
+    private class ConsumingScheduler implements CommandScheduler {
+        @Override
+        public void submit(BulbCommand bulbCommand) {
+            blackhole.consume(bulbCommand);
+        }
+
+        @Override
+        public void submit(Bulb bulb, TuyaCommand command, float value, long receivedAt) {
+            blackhole.consume(bulb);
+            blackhole.consume(value);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private class ConsumingListener implements OSCPacketListener {
+        @Override
+        public void handlePacket(OSCPacketEvent event) {
+            blackhole.consume(event);
+        }
+
+        @Override
+        public void handleBadData(OSCBadDataEvent event) {
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.github.matejonnet.osctuya.osc;
+
+import com.github.matejonnet.osctuya.Bulb;
+import com.github.matejonnet.osctuya.DataPoint;
+import com.github.matejonnet.osctuya.Dps;
+import com.github.matejonnet.osctuya.config.Config;
+import com.github.matejonnet.osctuya.config.ConnectionType;
+import com.github.matejonnet.osctuya.config.SchedulerType;
+import com.github.matejonnet.osctuya.osc.schedulers.CommandSchedulers;
+import com.github.matejonnet.osctuya.simulator.SimulatedBulb;
+import com.github.matejonnet.osctuya.simulator.SimulatorFaults;
+import com.github.matejonnet.osctuya.simulator.TuyaSimulator;
+import com.illposed.osc.OSCMessage;
+import com.illposed.osc.OSCMessageEvent;
+import com.illposed.osc.argument.OSCTimeTag64;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replays synthetic OSC workloads through every {@link CommandScheduler} into simulated bulbs and prints
+ * the throughput, the end-to-end latency, the lost values and the thread count as a markdown table.
+ *
+ * The latency is measured from the OSC message to the simulated bulb applying the value, for the probe DPs:
+ * TEMPERATURE for the fader and the universe workloads, POWER for the strobe.
+ * A value is lost when it was never applied, for the faders it is mostly conflation which is expected,
+ * for the strobe every lost toggle is visible.
+ *
+ * Run with: java -cp benchmarks/target/benchmarks.jar com.github.matejonnet.osctuya.osc.SchedulerShootout
+ * [bulbs=85] [seconds=10] [warmup=5] [connection=SELECTOR] [latency=5] [jitter=10] [schedulers=DIRECT,...] [workloads=FADER,...]
+ */
+public class SchedulerShootout {
+
+    private static final String DEVICE_ID = "0123456789abcdef012345";
+    private static final String DEVICE_KEY = "0123456789abcdef";
+    private static final int CHANNELS = 6;
+    private static final int RATE_HZ = 44;
+    private static final int MAX_SAMPLES = 4_000_000;
+
+    enum Workload {
+        /**
+         * All the faders (temperature) move one step per frame.
+         */
+        FADER,
+        /**
+         * All the bulbs toggle the power every 4th frame (11 Hz).
+         */
+        STROBE,
+        /**
+         * Every channel of every bulb (510 DMX channels for 85 bulbs) changes every frame.
+         */
+        UNIVERSE
+    }
+
+    private final int bulbCount;
+    private final int seconds;
+    private final ConnectionType connectionType;
+    private final SimulatorFaults faults;
+
+    private final Map<Long, Long> pending = new ConcurrentHashMap<>();
+    private final long[] latencies = new long[MAX_SAMPLES];
+    private final AtomicInteger samples = new AtomicInteger();
+    private final AtomicLong probes = new AtomicLong();
+    private final AtomicLong messages = new AtomicLong();
+
+    SchedulerShootout(int bulbCount, int seconds, ConnectionType connectionType, SimulatorFaults faults) {
+        this.bulbCount = bulbCount;
+        this.seconds = seconds;
+        this.connectionType = connectionType;
+        this.faults = faults;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> arguments = new HashMap<>();
+        for (String arg : args) {
+            String[] keyValue = arg.split("=", 2);
+            arguments.put(keyValue[0], keyValue[1]);
+        }
+        int bulbs = Integer.parseInt(arguments.getOrDefault("bulbs", "85"));
+        int seconds = Integer.parseInt(arguments.getOrDefault("seconds", "10"));
+        int warmup = Integer.parseInt(arguments.getOrDefault("warmup", "5"));
+        ConnectionType connectionType = ConnectionType.valueOf(arguments.getOrDefault("connection", "SELECTOR"));
+        SimulatorFaults faults = SimulatorFaults.builder()
+                .latencyMillis(Long.parseLong(arguments.getOrDefault("latency", "5")))
+                .jitterMillis(Long.parseLong(arguments.getOrDefault("jitter", "10")))
+                .build();
+        List<SchedulerType> schedulers = arguments.containsKey("schedulers")
+                ? Arrays.stream(arguments.get("schedulers").split(",")).map(SchedulerType::valueOf).toList()
+                : List.of(SchedulerType.values());
+        List<Workload> workloads = arguments.containsKey("workloads")
+                ? Arrays.stream(arguments.get("workloads").split(",")).map(Workload::valueOf).toList()
+                : List.of(Workload.values());
+
+        System.out.printf("%d bulbs, %d s per run, %s connections, reply latency %d ms + %d ms jitter, %d Hz%n%n",
+                bulbs, seconds, connectionType, faults.latencyMillis, faults.jitterMillis, RATE_HZ);
+        if (warmup > 0) {
+            // the first run in the JVM pays for the class loading and the JIT, it is not reported
+            new SchedulerShootout(bulbs, warmup, connectionType, faults).run(schedulers.get(0), workloads.get(0), false);
+        }
+        System.out.println("| Scheduler | Workload | OSC msg/s | Frames/s | p50 ms | p99 ms | p99.9 ms | Lost | Threads |");
+        System.out.println("|-----------|----------|-----------|----------|--------|--------|----------|------|---------|");
+        for (Workload workload : workloads) {
+            for (SchedulerType scheduler : schedulers) {
+                new SchedulerShootout(bulbs, seconds, connectionType, faults).run(scheduler, workload, true);
+            }
+        }
+        System.exit(0);
+    }
+
+    void run(SchedulerType schedulerType, Workload workload, boolean report) throws IOException, InterruptedException {
+        Config config = Config.builder()
+                .sendQueueSize(10)
+                .connectionType(connectionType)
+                .repeatCommandTimes(5)
+                .repeatDelayMillis(100)
+                .commandTimeoutMillis(300)
+                .build();
+        TuyaSimulator simulator = new TuyaSimulator(faults);
+        List<Bulb> bulbs = new ArrayList<>();
+        List<BulbWithAddresses> bulbsWithAddresses = new ArrayList<>();
+        for (int i = 0; i < bulbCount; i++) {
+            SimulatedBulb simulated = simulator.addBulb(DEVICE_ID, DEVICE_KEY);
+            int bulbIndex = i;
+            simulated.onApplied(dps -> onApplied(bulbIndex, dps));
+            Bulb bulb = new Bulb("127.0.0.1", simulated.getPort(), DEVICE_ID, DEVICE_KEY, "bulb-" + i, config);
+            bulb.connect();
+            bulbs.add(bulb);
+            BulbWithAddresses bulbWithAddresses = new BulbWithAddresses(bulb);
+            bulbWithAddresses.putMapping(TuyaCommand.POWER, address(i, 0));
+            bulbWithAddresses.putMapping(TuyaCommand.BRIGHTNESS, address(i, 1));
+            bulbWithAddresses.putMapping(TuyaCommand.TEMPERATURE, address(i, 2));
+            bulbWithAddresses.putMapping(TuyaCommand.RED, address(i, 3));
+            bulbWithAddresses.putMapping(TuyaCommand.GREEN, address(i, 4));
+            bulbWithAddresses.putMapping(TuyaCommand.BLUE, address(i, 5));
+            bulbsWithAddresses.add(bulbWithAddresses);
+        }
+        CommandScheduler scheduler = CommandSchedulers.create(schedulerType, config);
+        TuyaMessageListener listener = new TuyaMessageListener(new AddressRouter(bulbsWithAddresses), scheduler::submit);
+
+        int[] maxThreads = new int[1];
+        ScheduledExecutorService driver = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "shootout-driver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger frame = new AtomicInteger();
+        driver.scheduleAtFixedRate(() -> tick(listener, workload, frame.getAndIncrement()), 0, 1_000_000_000L / RATE_HZ, TimeUnit.NANOSECONDS);
+        driver.scheduleAtFixedRate(() -> maxThreads[0] = Math.max(maxThreads[0], bridgeThreads()), 0, 250, TimeUnit.MILLISECONDS);
+        Thread.sleep(seconds * 1000L);
+        driver.shutdownNow();
+        driver.awaitTermination(1, TimeUnit.SECONDS);
+        // let the queued commands drain
+        Thread.sleep(2000);
+
+        long frames = simulator.getBulbs().stream().mapToLong(SimulatedBulb::getReceivedFrames).sum();
+        scheduler.close();
+        bulbs.forEach(Bulb::close);
+        simulator.close();
+        if (report) {
+            report(schedulerType, workload, frames, maxThreads[0]);
+        }
+    }
+
+    private void tick(TuyaMessageListener listener, Workload workload, int frame) {
+        for (int bulb = 0; bulb < bulbCount; bulb++) {
+            switch (workload) {
+                case FADER -> send(listener, bulb, 2, probe(bulb, DataPoint.TEMPERATURE, frame % 1001) / 1000f);
+                case STROBE -> {
+                    if (frame % 4 == 0) {
+                        send(listener, bulb, 0, probe(bulb, DataPoint.POWER, (frame / 4) % 2 == 0 ? 1 : 0));
+                    }
+                }
+                case UNIVERSE -> {
+                    send(listener, bulb, 0, 1f);
+                    send(listener, bulb, 1, ((frame + bulb) % 101) / 100f);
+                    send(listener, bulb, 2, probe(bulb, DataPoint.TEMPERATURE, frame % 1001) / 1000f);
+                    send(listener, bulb, 3, ((frame * 3 + bulb) % 256) / 255f);
+                    send(listener, bulb, 4, ((frame * 5 + bulb) % 256) / 255f);
+                    send(listener, bulb, 5, ((frame * 7 + bulb) % 256) / 255f);
+                }
+            }
+        }
+    }
+
+    private int probe(int bulb, DataPoint dataPoint, int value) {
+        probes.incrementAndGet();
+        pending.put(key(bulb, dataPoint, value), System.nanoTime());
+        return value;
+    }
+
+    private void send(TuyaMessageListener listener, int bulb, int channel, float value) {
+        messages.incrementAndGet();
+        listener.acceptMessage(new OSCMessageEvent(this, OSCTimeTag64.IMMEDIATE, new OSCMessage(address(bulb, channel), List.of(value))));
+    }
+
+    private void onApplied(int bulb, Dps dps) {
+        long now = System.nanoTime();
+        for (DataPoint dataPoint : new DataPoint[] {DataPoint.TEMPERATURE, DataPoint.POWER}) {
+            if (dps.isSet(dataPoint)) {
+                Long sentAt = pending.remove(key(bulb, dataPoint, dps.get(dataPoint)));
+                if (sentAt != null) {
+                    int sample = samples.getAndIncrement();
+                    if (sample < latencies.length) {
+                        latencies[sample] = now - sentAt;
+                    }
+                }
+            }
+        }
+    }
+
+    private static long key(int bulb, DataPoint dataPoint, int value) {
+        return (long) bulb << 32 | (long) dataPoint.ordinal() << 16 | value;
+    }
+
+    private static String address(int bulb, int channel) {
+        return "/0/dmx/" + (bulb * CHANNELS + channel);
+    }
+
+    /**
+     * @return live threads, without the simulator and the driver
+     */
+    private static int bridgeThreads() {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (!thread.getName().startsWith("simulator-") && !thread.getName().startsWith("shootout-")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void report(SchedulerType scheduler, Workload workload, long frames, int threads) {
+        int count = Math.min(samples.get(), latencies.length);
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        double lost = probes.get() == 0 ? 0 : 1 - (double) samples.get() / probes.get();
+        System.out.printf("| %s | %s | %d | %d | %s | %s | %s | %.1f %% | %d |%n",
+                scheduler, workload, messages.get() / seconds, frames / seconds,
+                percentile(sorted, 0.5), percentile(sorted, 0.99), percentile(sorted, 0.999), lost * 100, threads);
+    }
+
+    private static String percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return "-";
+        }
+        long nanos = sorted[Math.min(sorted.length - 1, (int) (sorted.length * percentile))];
+        return String.format("%.1f", nanos / 1_000_000.0);
+    }
+}
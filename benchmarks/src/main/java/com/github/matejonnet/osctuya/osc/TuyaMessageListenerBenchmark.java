@@ -0,0 +1,78 @@
+package com.github.matejonnet.osctuya.osc;
+
+import com.github.matejonnet.osctuya.Bulb;
+import com.github.matejonnet.osctuya.config.Config;
+import com.illposed.osc.OSCMessage;
+import com.illposed.osc.OSCMessageEvent;
+import com.illposed.osc.argument.OSCTimeTag64;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routing of an OSC message to the bulb command, the bulbs are not connected.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TuyaMessageListenerBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int bulbs;
+
+    private TuyaMessageListener listener;
+    private OSCMessageEvent[] events;
+    private OSCMessageEvent unmapped;
+    private int next;
+    private Blackhole blackhole;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        this.blackhole = blackhole;
+        Config config = Config.builder().sendQueueSize(10).heartbeatIntervalMillis(0).build();
+        List<BulbWithAddresses> bulbsWithAddresses = new ArrayList<>();
+        events = new OSCMessageEvent[bulbs];
+        for (int i = 0; i < bulbs; i++) {
+            Bulb bulb = new Bulb("127.0.0.1", "0123456789abcdef012345", "0123456789abcdef", "bulb-" + i, config);
+            BulbWithAddresses bulbWithAddresses = new BulbWithAddresses(bulb);
+            String address = "/0/dmx/" + (i * 6 + 1);
+            bulbWithAddresses.putMapping(TuyaCommand.POWER, "/0/dmx/" + i * 6);
+            bulbWithAddresses.putMapping(TuyaCommand.BRIGHTNESS, address);
+            bulbsWithAddresses.add(bulbWithAddresses);
+            events[i] = new OSCMessageEvent(this, OSCTimeTag64.IMMEDIATE, new OSCMessage(address, List.of(0.5f)));
+        }
+        unmapped = new OSCMessageEvent(this, OSCTimeTag64.IMMEDIATE, new OSCMessage("/1/dmx/0", List.of(0.5f)));
+        listener = new TuyaMessageListener(new AddressRouter(bulbsWithAddresses), this::consume);
+    }
+
+    private void consume(BulbCommand bulbCommand) {
+        blackhole.consume(bulbCommand);
+    }
+
+    @Benchmark
+    public void acceptMessage() {
+        listener.acceptMessage(events[next]);
+        next = next + 1 == events.length ? 0 : next + 1;
+    }
+
+    @Benchmark
+    public void acceptUnmappedMessage() {
+        listener.acceptMessage(unmapped);
+    }
+}
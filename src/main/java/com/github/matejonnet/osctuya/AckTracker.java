@@ -0,0 +1,124 @@
+package com.github.matejonnet.osctuya;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Matches the device acknowledgements to the sent frames by the sequence number and measures the round trip time.
+ * Remembers the last {@link #SIZE} sent frames, older ones are forgotten.
+ * Counts the frames in flight: sent and not yet acknowledged, forgotten or expired.
+ */
+public class AckTracker {
+
+    private static final int SIZE = 256;
+
+    private final AtomicLongArray sentAt = new AtomicLongArray(SIZE);
+    private final AtomicIntegerArray sequences = new AtomicIntegerArray(SIZE);
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong acknowledged = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong totalRoundTripNanos = new AtomicLong();
+    private volatile long lastRoundTripNanos = -1;
+    private final Runnable onAcknowledged;
+
+    public AckTracker() {
+        this(() -> {});
+    }
+
+    /**
+     * @param onAcknowledged called after a frame in flight is acknowledged
+     */
+    public AckTracker(Runnable onAcknowledged) {
+        this.onAcknowledged = onAcknowledged;
+    }
+
+    public void sent(int sequence, long nanoTime) {
+        int index = sequence & (SIZE - 1);
+        if (sentAt.getAndSet(index, nanoTime) == 0) {
+            inFlight.incrementAndGet();
+        }
+        sequences.set(index, sequence);
+    }
+
+    /**
+     * @return round trip time, -1 when the sequence is not known or was already acknowledged
+     */
+    public long acknowledged(int sequence, long nanoTime) {
+        int index = sequence & (SIZE - 1);
+        if (sequences.get(index) != sequence) {
+            return -1;
+        }
+        long sent = sentAt.getAndSet(index, 0);
+        if (sent == 0) {
+            return -1;
+        }
+        inFlight.decrementAndGet();
+        long roundTrip = nanoTime - sent;
+        lastRoundTripNanos = roundTrip;
+        totalRoundTripNanos.addAndGet(roundTrip);
+        acknowledged.incrementAndGet();
+        onAcknowledged.run();
+        return roundTrip;
+    }
+
+    /**
+     * Stops waiting for the acknowledgement of a frame which could not be written.
+     */
+    public void forget(int sequence) {
+        int index = sequence & (SIZE - 1);
+        if (sequences.get(index) == sequence && sentAt.getAndSet(index, 0) != 0) {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Stops waiting for the acknowledgements of the frames sent before the given time.
+     *
+     * @return number of expired frames
+     */
+    public int expire(long sentBeforeNanoTime) {
+        int expiredNow = 0;
+        for (int i = 0; i < SIZE; i++) {
+            long sent = sentAt.get(i);
+            if (sent != 0 && sent - sentBeforeNanoTime < 0 && sentAt.compareAndSet(i, sent, 0)) {
+                inFlight.decrementAndGet();
+                expired.incrementAndGet();
+                expiredNow++;
+            }
+        }
+        return expiredNow;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return number of frames that were not acknowledged in time
+     */
+    public long getExpired() {
+        return expired.get();
+    }
+
+    public long getAcknowledged() {
+        return acknowledged.get();
+    }
+
+    /**
+     * @return -1 when nothing was acknowledged yet
+     */
+    public long getLastRoundTripNanos() {
+        return lastRoundTripNanos;
+    }
+
+    /**
+     * @return -1 when nothing was acknowledged yet
+     */
+    public long getAverageRoundTripNanos() {
+        long count = acknowledged.get();
+        return count == 0 ? -1 : totalRoundTripNanos.get() / count;
+    }
+}
@@ -1,7 +1,12 @@
 package com.github.matejonnet.osctuya;
 
 import com.github.matejonnet.osctuya.config.Config;
-import org.apache.commons.collections4.queue.CircularFifoQueue;
+import com.github.matejonnet.osctuya.config.ConnectionType;
+import com.github.matejonnet.osctuya.metrics.BulbMetrics;
+import com.github.matejonnet.osctuya.metrics.ConnectEvent;
+import com.github.matejonnet.osctuya.metrics.DequeueEvent;
+import com.github.matejonnet.osctuya.metrics.EncodeEvent;
+import com.github.matejonnet.osctuya.metrics.WriteEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -9,23 +14,10 @@ import java.awt.*;
 import java.io.Closeable;
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.charset.StandardCharsets;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
-import java.time.Instant;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.HexFormat;
-import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import javax.crypto.BadPaddingException;
-import javax.crypto.Cipher;
-import javax.crypto.IllegalBlockSizeException;
-import javax.crypto.NoSuchPaddingException;
-import javax.crypto.spec.SecretKeySpec;
 
 /**
  * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
@@ -34,76 +26,403 @@ public class Bulb implements Closeable {
 
     private static final Logger logger = LoggerFactory.getLogger(Bulb.class);
     private final boolean alwaysSendPower;
+    private final long frameIntervalMillis;
+    private final ConnectionType connectionType;
+    private final ConnectionTimeouts timeouts;
+    private final long heartbeatIntervalMillis;
+    private final long reconnectBackoffMillis;
+    private final long maxReconnectBackoffMillis;
+    private final AtomicBoolean heartbeatPending = new AtomicBoolean();
+    private volatile long lastHeartbeatAt;
     private String ip;
+    private final int port;
     private final String devId;
     private final String localKey;
     private final String name;
-    private Connection connection;
+    private volatile Connection connection;
     private final AtomicInteger sequence = new AtomicInteger();
+    private final PayloadEncoder encoder;
+    private final AckTracker ackTracker;
+    private final ShadowState shadowState;
+    /**
+     * Null when the rate is not adaptive.
+     */
+    private final RateController rateController;
+    private final int inFlightWindow;
+    private final long ackTimeoutNanos;
+    /**
+     * Set while a check of the expired frames is scheduled.
+     */
+    private final AtomicBoolean windowCheckScheduled = new AtomicBoolean();
+    private final ResponseHandler responseHandler;
+    /**
+     * The bulb is updated by several threads at the same time: the OSC and DMX receivers, the cue player
+     * and the bundle releases. Guards the read-modify-write of the lastColor together with its offer to the send queue,
+     * so that a channel update is neither lost nor overwritten by an older color.
+     */
+    private final Object colorLock = new Object();
+    /**
+     * Guarded by the colorLock.
+     */
     private Color lastColor = new Color(0, 0, 0);
-    private boolean lastPower;
-    private CircularFifoQueue<Command> sendQueue;
-    private Semaphore semaphore = new Semaphore(0);
-    private final ExecutorService executor = Executors.newScheduledThreadPool(1);
+    private volatile boolean lastPower;
+    private final SendQueue sendQueue;
+    private final BulbMetrics metrics = new BulbMetrics();
+    /**
+     * Set while the send of the pending commands is scheduled or running, there is at most one sender per bulb.
+     */
+    private final AtomicBoolean sendScheduled = new AtomicBoolean();
+    private final Executor senders;
+    private final TimingWheel timer;
+    /**
+     * Used only by the sender.
+     */
+    private final Dps frame = new Dps();
+    /**
+     * Written by the sender, read by the threads scheduling the send.
+     */
+    private volatile long nextFrameAt;
 
     public Bulb(String ip, String devId, String localKey, String name, Config config) {
+        this(ip, Connection.DEFAULT_PORT, devId, localKey, name, config);
+    }
+
+    public Bulb(String ip, int port, String devId, String localKey, String name, Config config) {
+        this(ip, port, devId, localKey, name, config, BulbExecutors.senders(), BulbExecutors.timer());
+    }
+
+    public Bulb(String ip, int port, String devId, String localKey, String name, Config config, Executor senders, TimingWheel timer) {
         this.ip = ip;
+        this.port = port;
         this.devId = devId;
         this.localKey = localKey;
         this.name = name;
         this.alwaysSendPower = config.alwaysSendPower;
+        this.frameIntervalMillis = config.frameIntervalMillis;
+        this.connectionType = config.connectionType;
+        this.timeouts = ConnectionTimeouts.of(config);
+        this.heartbeatIntervalMillis = config.heartbeatIntervalMillis;
+        this.reconnectBackoffMillis = config.reconnectBackoffMillis;
+        this.maxReconnectBackoffMillis = config.maxReconnectBackoffMillis;
+        this.inFlightWindow = config.inFlightWindow;
+        this.ackTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.ackTimeoutMillis);
+        this.ackTracker = new AckTracker(this::onAcknowledged);
+        this.shadowState = new ShadowState(config.stateRefreshMillis);
+        this.rateController = config.adaptiveRate
+                ? new RateController(config.minFramesPerSecond, config.maxFramesPerSecond, config.latencyTargetMillis)
+                : null;
+        this.senders = senders;
+        this.timer = timer;
+        try {
+            encoder = new PayloadEncoder(devId, localKey);
+            responseHandler = new ResponseHandler(name, localKey, config.logResponse, ackTracker, this::onReported);
+        } catch (PayloadGenerationException e) {
+            throw new InvalidValueException("Invalid key of the bulb: " + name, e);
+        }
+        sendQueue = new SendQueue(config.sendQueueSize);
+    }
 
-        sendQueue = new CircularFifoQueue<>(config.sendQueueSize);
+    private void scheduleSend() {
+        if (sendScheduled.compareAndSet(false, true)) {
+            long delayMillis = frameIntervalMillis() > 0 ? nextFrameAt - System.currentTimeMillis() : 0;
+            if (delayMillis > 0) {
+                timer.schedule(() -> senders.execute(this::sendPending), delayMillis, TimeUnit.MILLISECONDS);
+            } else {
+                senders.execute(this::sendPending);
+            }
+        }
+    }
 
-        executor.execute(() -> {
-            Command command = null;
-            while (true) {
-                try {
-                    if (command == null) {
-                        semaphore.acquire();
-                    }
-                    command = sendQueue.poll();
-                    logger.debug("Command {}.", command);
-                    if (command != null) {
-                        connection.send(command.byteBuffer());
+    /**
+     * Sends the pending commands, when the frames are coalesced at most one frame per frameIntervalMillis is sent,
+     * containing all the DP changes received since the last frame.
+     * When the in flight window is full, the commands stay in the queue and are conflated until a frame is acknowledged.
+     * While the bulb is disconnected, the commands stay in the queue until the {@link ConnectionSupervisor} reconnects it.
+     */
+    private void sendPending() {
+        try {
+            if (heartbeatPending.getAndSet(false) && isConnected()) {
+                sendHeartbeat();
+            }
+            expireInFlight();
+            while (isConnected() && !isWindowFull() && sendQueue.poll(frame)) {
+                int suppressed = shadowState.removeUnchanged(frame, System.nanoTime());
+                if (suppressed > 0) {
+                    metrics.commandsSuppressed(suppressed);
+                    if (frame.isEmpty()) {
+                        continue;
                     }
-                } catch (Throwable e) {
-                    logger.error("Cannot process command.", e);
                 }
+                if (alwaysSendPower && !frame.isSet(DataPoint.POWER)) {
+                    frame.set(DataPoint.POWER, lastPower);
+                }
+                logger.debug("Frame {}.", frame);
+                send(frame);
+                long intervalMillis = frameIntervalMillis();
+                if (intervalMillis > 0) {
+                    nextFrameAt = System.currentTimeMillis() + intervalMillis;
+                    break;
+                }
+            }
+        } finally {
+            sendScheduled.set(false);
+        }
+        if (!sendQueue.isEmpty() && isConnected()) {
+            if (isWindowFull()) {
+                scheduleWindowCheck();
+            } else {
+                scheduleSend();
             }
-        });
+        }
+    }
+
+    private boolean isWindowFull() {
+        if (inFlightWindow <= 0) {
+            return false;
+        }
+        if (ackTracker.getInFlight() < inFlightWindow) {
+            return false;
+        }
+        expireInFlight();
+        return ackTracker.getInFlight() >= inFlightWindow;
+    }
+
+    /**
+     * The frames in flight expire in every mode, a lost acknowledgement must not block the reports for good.
+     * An acknowledgement which does not arrive in time slows down the adaptive rate.
+     */
+    private void expireInFlight() {
+        if (ackTracker.getInFlight() == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (ackTracker.expire(now - ackTimeoutNanos) > 0 && rateController != null) {
+            rateController.congested(now);
+        }
     }
 
+    /**
+     * @return current interval between the frames, 0 when the frames are not paced
+     */
+    private long frameIntervalMillis() {
+        return rateController != null ? rateController.getIntervalMillis() : frameIntervalMillis;
+    }
+
+    /**
+     * When the acknowledgements do not arrive, the frames in flight expire after the ack timeout.
+     */
+    private void scheduleWindowCheck() {
+        if (windowCheckScheduled.compareAndSet(false, true)) {
+            timer.schedule(() -> {
+                windowCheckScheduled.set(false);
+                scheduleSend();
+            }, TimeUnit.NANOSECONDS.toMillis(ackTimeoutNanos), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void onAcknowledged() {
+        metrics.getAckRoundTrip().record(ackTracker.getLastRoundTripNanos());
+        if (rateController != null) {
+            rateController.acknowledged(ackTracker.getLastRoundTripNanos(), System.nanoTime());
+        }
+        if (inFlightWindow > 0 && !sendQueue.isEmpty()) {
+            scheduleSend();
+        }
+    }
+
+    /**
+     * The reports received while frames are in flight can be older than the last sent values.
+     */
+    private void onReported(Dps reported) {
+        expireInFlight();
+        if (ackTracker.getInFlight() == 0) {
+            shadowState.reported(reported);
+        }
+    }
+
+    /**
+     * Called by the {@link HeartbeatWheel} once per heartbeat interval, the heartbeat is sent when nothing was received
+     * from the bulb and no heartbeat was sent in the interval less the tick, the replies keep the connection within
+     * the read timeout. The last heartbeat counts so that a reply slower than the tick does not skip an interval.
+     *
+     * @param tickMillis time between the checks of the wheel slots
+     */
+    void heartbeat(long tickMillis) {
+        long lastActivityAt = Math.max(responseHandler.getLastReceivedAt(), lastHeartbeatAt);
+        if (System.currentTimeMillis() - lastActivityAt >= heartbeatIntervalMillis - tickMillis) {
+            heartbeatPending.set(true);
+            scheduleSend();
+        }
+    }
+
+    private void sendHeartbeat() {
+        try {
+            logger.debug("Sending heartbeat to {}.", name);
+            lastHeartbeatAt = System.currentTimeMillis();
+            connection.send(encoder.encodeHeartbeat(sequence.getAndIncrement()));
+        } catch (Throwable e) {
+            logger.warn("Cannot send heartbeat to {}: {}.", name, e.getMessage());
+        }
+    }
+
+    private void send(Dps frame) {
+        WriteEvent writeEvent = new WriteEvent();
+        int frameSequence = sequence.getAndIncrement();
+        try {
+            long encodeStartedAt = System.nanoTime();
+            dequeued(frame, frameSequence, encodeStartedAt);
+            EncodeEvent encodeEvent = new EncodeEvent();
+            encodeEvent.begin();
+            ByteBuffer payload = generatePayload(frame, frameSequence);
+            encodeEvent.end();
+            encodeEvent.bulb = name;
+            encodeEvent.sequence = frameSequence;
+            encodeEvent.commit();
+            int bytes = payload.remaining();
+            writeEvent.bulb = name;
+            writeEvent.sequence = frameSequence;
+            writeEvent.bytes = bytes;
+            writeEvent.begin();
+            long writeStartedAt = System.nanoTime();
+            ackTracker.sent(frameSequence, writeStartedAt);
+            connection.send(payload);
+            shadowState.sent(frame);
+            writeEvent.success = true;
+            writeEvent.commit();
+            long writtenAt = System.nanoTime();
+            metrics.frameSent(bytes, sendQueue.getFrameEnqueuedAt(), encodeStartedAt, writeStartedAt, writtenAt);
+            if (rateController != null) {
+                rateController.written(writtenAt - writeStartedAt, writtenAt);
+            }
+        } catch (IOException e) {
+            // the frame is tracked before the write, the acknowledgement can arrive before the write returns
+            ackTracker.forget(frameSequence);
+            writeEvent.commit();
+            if (rateController != null) {
+                rateController.congested(System.nanoTime());
+            }
+            sendQueue.dropped();
+            metrics.writeFailed();
+            logger.warn("Cannot send to {}: {}.", name, e.getMessage());
+        } catch (Throwable e) {
+            ackTracker.forget(frameSequence);
+            sendQueue.dropped();
+            logger.error("Cannot process command.", e);
+        }
+    }
+
+    private void dequeued(Dps frame, int frameSequence, long dequeuedAt) {
+        DequeueEvent event = new DequeueEvent();
+        if (event.shouldCommit()) {
+            long enqueuedAt = sendQueue.getFrameEnqueuedAt();
+            event.bulb = name;
+            event.sequence = frameSequence;
+            event.dps = frame.toString();
+            event.queued = enqueuedAt > 0 ? dequeuedAt - enqueuedAt : 0;
+            event.queueDepth = sendQueue.size();
+            event.commit();
+        }
+    }
+
+    /**
+     * Connects the bulb, when the connection fails or is lost later, the {@link ConnectionSupervisor} reconnects it.
+     */
     public void connect() throws IOException {
-        connection = new ChannelConnection(ip, getName());
-        connection.connect();
+        connection = switch (connectionType) {
+            case STREAM -> new StreamConnection(ip, port, getName(), timeouts, responseHandler);
+            case SELECTOR -> new SelectorConnection(ip, port, getName(), EventLoopGroup.shared().next(), timeouts, responseHandler);
+            default -> new ChannelConnection(ip, port, getName(), timeouts, responseHandler);
+        };
+        if (heartbeatIntervalMillis > 0) {
+            HeartbeatWheel.shared(heartbeatIntervalMillis).add(this);
+        }
+        ConnectEvent event = connectEvent(false, timeouts.connectMillis());
+        try {
+            connection.connect();
+            event.success = true;
+            // the commands received while connecting
+            scheduleSend();
+        } finally {
+            event.commit();
+            ConnectionSupervisor.shared().add(this, reconnectBackoffMillis, maxReconnectBackoffMillis);
+        }
+    }
+
+    /**
+     * Called by the {@link ConnectionSupervisor}, the commands held while the bulb was disconnected are sent.
+     */
+    void reconnect() throws IOException {
+        long startedAt = System.nanoTime();
+        connection.close();
+        shadowState.clear();
+        if (rateController != null) {
+            rateController.congested(startedAt);
+        }
+        ConnectEvent event = connectEvent(true, timeouts.reconnectMillis());
+        try {
+            connection.connect(timeouts.reconnectMillis());
+            event.success = true;
+        } catch (IOException e) {
+            metrics.reconnectFailed();
+            throw e;
+        } finally {
+            event.commit();
+        }
+        metrics.reconnected(System.nanoTime() - startedAt);
+        scheduleSend();
+    }
+
+    private ConnectEvent connectEvent(boolean reconnect, int timeoutMillis) {
+        ConnectEvent event = new ConnectEvent();
+        event.bulb = name;
+        event.reconnect = reconnect;
+        event.timeout = timeoutMillis;
+        event.begin();
+        return event;
+    }
+
+    public boolean isConnected() {
+        Connection connection = this.connection;
+        return connection != null && connection.isConnected();
     }
 
     public String getName() {
         return name;
     }
 
+    /**
+     * Called before a command received at the nano time is applied, to measure the latency from the OSC message.
+     */
+    public void received(long receivedAt) {
+        metrics.getSchedulerLatency().record(System.nanoTime() - receivedAt);
+        sendQueue.stamp(receivedAt);
+    }
+
     public void setPower(boolean on) {
-        try {
-            lastPower = on;
-            ByteBuffer byteBuffer = generatePayload(Collections.singletonMap("20", on));
-            send(new Command(byteBuffer, "power"), true);
-        } catch (PayloadGenerationException e) {
-            logger.error("Cannot set power on bulb: " + name, e);
+        metrics.commandReceived();
+        lastPower = on;
+        if (!sendQueue.offerPower(on)) {
+            logger.warn("Dropping power change of bulb {}, too many changes are waiting.", name);
         }
+        scheduleSend();
     }
 
     public void setBrightness(int percentage) {
+        var value = brightnessValue(percentage);
+        metrics.commandReceived();
+        sendQueue.offer(DataPoint.BRIGHTNESS, value);
+        scheduleSend();
+    }
+
+    /**
+     * @param percentage 0 - 100
+     * @return value of the BRIGHTNESS DP
+     */
+    public static int brightnessValue(int percentage) {
         if (percentage < 0 || percentage > 100) {
             throw new InvalidValueException("Brightness must be between 0 and 100.");
         }
-        try {
-            var value = 10 + (1000 - 10) * percentage / 100;
-            ByteBuffer byteBuffer = generatePayload(Collections.singletonMap("22", value));
-            send(new Command(byteBuffer, "brightness"));
-        } catch (PayloadGenerationException e) {
-            logger.error("Cannot set brightness on bulb: " + name, e);
-        }
+        return 10 + (1000 - 10) * percentage / 100;
     }
 
     /**
@@ -111,45 +430,87 @@ public class Bulb implements Closeable {
      * @param relativeValue 0 - 1000 (warm to cold)
      */
     public void setTemperature(int relativeValue) {
+        var value = temperatureValue(relativeValue);
+        metrics.commandReceived();
+        sendQueue.offer(DataPoint.TEMPERATURE, value);
+        scheduleSend();
+    }
+
+    /**
+     * @param relativeValue 0 - 1000 (warm to cold)
+     * @return value of the TEMPERATURE DP
+     */
+    public static int temperatureValue(int relativeValue) {
         if (relativeValue < 0 || relativeValue > 1000) {
             throw new InvalidValueException("Temperature must be between 0 and 1000.");
         }
-        try {
-            ByteBuffer byteBuffer = generatePayload(Collections.singletonMap("23", relativeValue));
-            send(new Command(byteBuffer, "temperature"));
-        } catch (PayloadGenerationException e) {
-            logger.error("Cannot set temperature on bulb: " + name, e);
-        }
+        return relativeValue;
     }
 
     public void setColor(Color color) {
         logger.debug("Setting color: {}", color);
-        lastColor = color;
-        String colorValue = Utils.getHexColor(color);
-        var command = new HashMap<String, Object>();
-        command.put("21","colour");
-        command.put("24", colorValue);
+        metrics.commandReceived();
+        synchronized (colorLock) {
+            lastColor = color;
+            sendQueue.offer(DataPoint.MODE, 1, DataPoint.COLOUR, Utils.packHsv(color.getRed(), color.getGreen(), color.getBlue()));
+        }
+        scheduleSend();
+    }
+
+    /**
+     * Applies values computed ahead of time, they are sent in the same frame. Used by the cue player.
+     *
+     * @param color the color the COLOUR value was computed from, null when the COLOUR is not set
+     */
+    public void apply(Dps dps, Color color) {
+        metrics.commandReceived();
+        if (dps.isSet(DataPoint.POWER)) {
+            lastPower = dps.get(DataPoint.POWER) != 0;
+            if (!sendQueue.offerPower(lastPower)) {
+                logger.warn("Dropping power change of bulb {}, too many changes are waiting.", name);
+            }
+        }
+        synchronized (colorLock) {
+            if (color != null) {
+                lastColor = color;
+            }
+            sendQueue.offer(dps);
+        }
+        scheduleSend();
+    }
+
+    /**
+     * Applies the changes made by the runnable to the same frame, the send is scheduled once they are all applied.
+     * Used for the OSC bundles. A frame which is being sent at the same time may still take a part of the changes.
+     */
+    public void applyTogether(Runnable changes) {
+        boolean held = sendScheduled.compareAndSet(false, true);
         try {
-            ByteBuffer colorBuffer = generatePayload(command);
-            send(new Command(colorBuffer, "color"));
-        } catch (PayloadGenerationException e) {
-            logger.error("Cannot set color on bulb: " + name, e);
+            changes.run();
+        } finally {
+            if (held) {
+                sendScheduled.set(false);
+                scheduleSend();
+            }
         }
     }
 
     public void updateRed(int red) {
-        Color newColor = new Color(red, lastColor.getGreen(), lastColor.getBlue());
-        setColor(newColor);
+        synchronized (colorLock) {
+            setColor(new Color(red, lastColor.getGreen(), lastColor.getBlue()));
+        }
     }
 
     public void updateGreen(int green) {
-        Color newColor = new Color(lastColor.getRed(), green, lastColor.getBlue());
-        setColor(newColor);
+        synchronized (colorLock) {
+            setColor(new Color(lastColor.getRed(), green, lastColor.getBlue()));
+        }
     }
 
     public void updateBlue(int blue) {
-        Color newColor = new Color(lastColor.getRed(), lastColor.getGreen(), blue);
-        setColor(newColor);
+        synchronized (colorLock) {
+            setColor(new Color(lastColor.getRed(), lastColor.getGreen(), blue));
+        }
     }
 
     /**
@@ -162,88 +523,94 @@ public class Bulb implements Closeable {
      *         }
      *
      * DEBUG:building payload=b'{"devId":"0123456789abcdef012345","uid":"0123456789abcdef012345","t":"1647038373","dps":{"20":true}}'
+     *
+     * The returned buffer is reused, see {@link PayloadEncoder}.
      */
-    private ByteBuffer generatePayload(Map<String, Object> data) throws PayloadGenerationException {
-        // json_data = payload_dict[self.dev_type][command]["command"]
-        Map<String, Object> jsonData = new HashMap<>();
-        jsonData.put("devId", devId);
-        jsonData.put("uid", devId);
-        jsonData.put("t", Long.toString(Instant.now().getEpochSecond()));
-        jsonData.put("dps", data);
+    private ByteBuffer generatePayload(Dps dps, int frameSequence) throws PayloadGenerationException {
+        logger.debug("Payload: {}.", dps);
+        return encoder.encode(dps, frameSequence);
+    }
 
-        String payload;
-        try {
-            payload = Mapper.getJson().writeValueAsString(jsonData);
-        } catch (IOException e) {
-            throw new PayloadGenerationException("Cannot create json.", e);
-        }
-        logger.debug("Payload: {}.", payload);
+    /**
+     * @return number of DP values replaced by a newer value before they were sent
+     */
+    public long getConflatedCommands() {
+        return sendQueue.getConflated();
+    }
 
-        byte[] encryptedPayload;
-        try {
-            Cipher cipher = Cipher.getInstance("AES/ECB/PKCS5Padding");
-            cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(localKey.getBytes(StandardCharsets.UTF_8), "AES"));
-            encryptedPayload = cipher.doFinal(payload.getBytes(StandardCharsets.UTF_8));
-        } catch (NoSuchAlgorithmException | NoSuchPaddingException | InvalidKeyException | IllegalBlockSizeException | BadPaddingException e) {
-            throw new PayloadGenerationException("Cannot encode payload.", e);
-        }
+    /**
+     * @return number of dropped power changes and frames that could not be sent
+     */
+    public long getDroppedCommands() {
+        return sendQueue.getDropped();
+    }
+
+    /**
+     * @return number of commands acknowledged by the bulb
+     */
+    public long getAcknowledgedCommands() {
+        return ackTracker.getAcknowledged();
+    }
 
-        ByteBuffer payloadBuffer = ByteBuffer.allocate(15 + encryptedPayload.length);
-        payloadBuffer.put(0, "3.3".getBytes(StandardCharsets.UTF_8));
-        payloadBuffer.put(15, encryptedPayload);
+    /**
+     * @return round trip time of the last acknowledged command, -1 when nothing was acknowledged yet
+     */
+    public long getLastRoundTripNanos() {
+        return ackTracker.getLastRoundTripNanos();
+    }
 
-        return getTuyaMessage(payloadBuffer);
+    /**
+     * @return -1 when nothing was acknowledged yet
+     */
+    public long getAverageRoundTripNanos() {
+        return ackTracker.getAverageRoundTripNanos();
     }
 
     /**
-     * Allocate buffer with room for payload + 24 bytes for
-     * prefix, sequence, command, length, crc, and suffix
-     *
-     * The first half - 8 bytes 00:00:55:aa:00:00:00:6b - of our packet is static, except for the last (8th) byte. The 8th byte increments by one every time a new command is sent, but I've seen some results that add more than this using commands that were not on/off. At any rate, it is just a counter and I think it doesn't really matter what the value is.
-     *  The second half - 00:00:00:07:00:00:00:9b - gives 2 pieces of information: the type of packet being sent and the length of the remaining the data/packet.
-     *      So far I've found that the 4th byte is
-     *          07 when sending commands,
-     *          08 when receiving a reply from the device,
-     *          '9e' for broadcast messages, and 0a when getting the status.
-     *   The final value (the 16th byte of the whole prefix) is the size in bytes of the subsequent packet (obviously as a hex value).
-     *      This is the length of the encrypted data in bytes plus the suffix - basically everything after the prefix.
-     *      From my tests the suffix has always been 8 bytes.
+     * @return number of frames sent and not yet acknowledged
+     */
+    public int getInFlightCommands() {
+        return ackTracker.getInFlight();
+    }
+
+    /**
+     * @return number of DP values and power changes waiting to be sent
      */
-    private ByteBuffer getTuyaMessage(ByteBuffer payloadBuffer) {
-        ByteBuffer tuyaMessage = ByteBuffer.allocate(payloadBuffer.capacity() + 24);
-        // Add prefix
-        tuyaMessage.put(0, HexFormat.of().parseHex("000055AA"));
-        // Add sequence
-        tuyaMessage.put(4, Utils.intToHexArray(sequence.getAndIncrement()));
-        // Add message type
-        tuyaMessage.put(8, HexFormat.of().parseHex("00000007"));
-        // Add message size
-        tuyaMessage.put(12, Utils.intToHexArray(payloadBuffer.capacity() + 8));
+    public int getQueueDepth() {
+        return sendQueue.size();
+    }
 
-        // Add payload, crc, and suffix
-        tuyaMessage.put(16, payloadBuffer.array());
+    /**
+     * @return current adaptive frame rate per second, 0 when the rate is not adaptive
+     */
+    public double getFrameRate() {
+        return rateController != null ? rateController.getRate() : 0;
+    }
 
-        Utils.Crc32 crc = new Utils.Crc32();
-        crc.update(tuyaMessage.slice(0, payloadBuffer.capacity() + 16));
-        tuyaMessage.put(payloadBuffer.capacity() + 16, crc.getValue());
-        tuyaMessage.put(payloadBuffer.capacity() + 20, HexFormat.of().parseHex("0000AA55"));
-        return tuyaMessage;
+    public BulbMetrics getMetrics() {
+        return metrics;
     }
 
-    private void send(Command command) {
-        send(command, false);
+    /**
+     * @return last sent values, overwritten by the values reported by the bulb
+     */
+    public Dps getShadowState() {
+        return shadowState.get();
     }
 
-    private void send(Command command, boolean ignoreAlwaysSendPower) {
-        if (alwaysSendPower && !ignoreAlwaysSendPower) {
-            setPower(lastPower);
-        }
-        sendQueue.add(command);
-        semaphore.release();
+    /**
+     * @return state reported by the bulb
+     */
+    public Dps getConfirmedState() {
+        return responseHandler.getConfirmed();
     }
 
     @Override
     public void close() {
+        ConnectionSupervisor.shared().remove(this);
+        if (heartbeatIntervalMillis > 0) {
+            HeartbeatWheel.shared(heartbeatIntervalMillis).remove(this);
+        }
         if (connection != null) {
             try {
                 connection.close();
@@ -253,6 +620,4 @@ public class Bulb implements Closeable {
         }
     }
 
-    private record Command (ByteBuffer byteBuffer, String message) {}
-
 }
@@ -0,0 +1,123 @@
+package com.github.matejonnet.osctuya;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connects the bulbs at startup without blocking the caller, at most parallelism bulbs at a time.
+ * The bulbs which cannot connect are reconnected in the background by the {@link ConnectionSupervisor},
+ * the commands for a bulb which is not connected are held and conflated until it is.
+ */
+public class BulbConnector implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulbConnector.class);
+
+    private static final long READINESS_CHECK_MILLIS = 100;
+
+    private final Collection<Bulb> bulbs;
+    private final int parallelism;
+    private final Executor executor;
+    private final TimingWheel timer;
+    private final CompletableFuture<Void> attempted = new CompletableFuture<>();
+    private final CompletableFuture<Void> allConnected = new CompletableFuture<>();
+    /**
+     * Rescheduled until all the bulbs are connected, cancelled on close.
+     */
+    private volatile TimingWheel.Timeout readinessCheck;
+
+    public BulbConnector(Collection<Bulb> bulbs, int parallelism) {
+        this(bulbs, parallelism, BulbExecutors.connectors(), BulbExecutors.timer());
+    }
+
+    public BulbConnector(Collection<Bulb> bulbs, int parallelism, Executor executor, TimingWheel timer) {
+        this.bulbs = bulbs;
+        this.parallelism = Math.max(1, parallelism);
+        this.executor = executor;
+        this.timer = timer;
+    }
+
+    /**
+     * Starts connecting the bulbs.
+     */
+    public BulbConnector start() {
+        long startedAt = System.currentTimeMillis();
+        Queue<Bulb> waiting = new ConcurrentLinkedQueue<>(bulbs);
+        int workers = Math.min(parallelism, Math.max(1, waiting.size()));
+        AtomicInteger running = new AtomicInteger(workers);
+        for (int i = 0; i < workers; i++) {
+            executor.execute(() -> {
+                Bulb bulb;
+                while ((bulb = waiting.poll()) != null) {
+                    connect(bulb);
+                }
+                if (running.decrementAndGet() == 0) {
+                    logger.info("Connected {} of {} bulbs in {}ms.",
+                            getConnected(), bulbs.size(), System.currentTimeMillis() - startedAt);
+                    attempted.complete(null);
+                }
+            });
+        }
+        readinessCheck = timer.scheduleAtFixedRate(() -> {
+            if (getConnected() == bulbs.size() && allConnected.complete(null)) {
+                logger.info("All {} bulbs are connected, {}ms after the start.", bulbs.size(), System.currentTimeMillis() - startedAt);
+                readinessCheck.cancel();
+            }
+        }, READINESS_CHECK_MILLIS, READINESS_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    /**
+     * Stops checking whether all the bulbs are connected, the started connection attempts are not interrupted.
+     */
+    @Override
+    public void close() {
+        TimingWheel.Timeout check = readinessCheck;
+        if (check != null) {
+            check.cancel();
+        }
+    }
+
+    private void connect(Bulb bulb) {
+        try {
+            bulb.connect();
+        } catch (IOException e) {
+            logger.warn("Cannot connect bulb {}, reconnecting in the background.", bulb.getName());
+        } catch (Throwable e) {
+            logger.error("Cannot connect bulb {}.", bulb.getName(), e);
+        }
+    }
+
+    /**
+     * @return completed when every bulb had its first connection attempt
+     */
+    public CompletableFuture<Void> getAttempted() {
+        return attempted;
+    }
+
+    /**
+     * @return completed when all the bulbs are connected at the same time
+     */
+    public CompletableFuture<Void> getAllConnected() {
+        return allConnected;
+    }
+
+    public int getConnected() {
+        int connected = 0;
+        for (Bulb bulb : bulbs) {
+            if (bulb.isConnected()) {
+                connected++;
+            }
+        }
+        return connected;
+    }
+}
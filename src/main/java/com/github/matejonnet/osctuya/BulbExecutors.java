@@ -0,0 +1,122 @@
+package com.github.matejonnet.osctuya;
+
+import com.github.matejonnet.osctuya.config.ThreadMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Threads shared by all the bulbs.
+ *
+ * In {@link ThreadMode#PLATFORM} the sends are executed by a fixed pool, in {@link ThreadMode#VIRTUAL}
+ * each send runs on a new virtual thread. Must be configured before the bulbs are created.
+ */
+public class BulbExecutors {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulbExecutors.class);
+
+    private static final int SENDER_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    private static ThreadMode threadMode = ThreadMode.PLATFORM;
+    private static Executor senders;
+    private static Executor connectors;
+    private static TimingWheel timer;
+
+    public static synchronized void configure(ThreadMode mode) {
+        if (senders != null && mode != threadMode) {
+            logger.warn("Bulb executors are already in use, ignoring thread mode {}.", mode);
+            return;
+        }
+        if (mode == ThreadMode.VIRTUAL && virtualThreadFactory("probe-") == null) {
+            logger.warn("Virtual threads are not supported by this JDK, using platform threads.");
+            mode = ThreadMode.PLATFORM;
+        }
+        threadMode = mode;
+        logger.info("Using {} threads.", threadMode);
+    }
+
+    /**
+     * Executes the bulb sends, the sends are blocking so there are more platform threads than cores.
+     */
+    public static synchronized Executor senders() {
+        if (senders == null) {
+            if (threadMode == ThreadMode.VIRTUAL) {
+                ThreadFactory threadFactory = threadFactory("bulb-sender-");
+                senders = task -> threadFactory.newThread(task).start();
+            } else {
+                senders = Executors.newFixedThreadPool(SENDER_THREADS, threadFactory("bulb-sender-"));
+            }
+        }
+        return senders;
+    }
+
+    /**
+     * Executes the blocking reconnects of the {@link ConnectionSupervisor}, separate from the senders
+     * so that the reconnects to the dead bulbs do not delay the sends to the live ones.
+     */
+    public static synchronized Executor connectors() {
+        if (connectors == null) {
+            if (threadMode == ThreadMode.VIRTUAL) {
+                ThreadFactory threadFactory = threadFactory("bulb-connector-");
+                connectors = task -> threadFactory.newThread(task).start();
+            } else {
+                connectors = Executors.newCachedThreadPool(threadFactory("bulb-connector-"));
+            }
+        }
+        return connectors;
+    }
+
+    /**
+     * Single platform thread for the delayed tasks, the delayed tasks must only hand over the work to an executor.
+     * The 1 ms tick is the precision of the frame pacing.
+     */
+    public static synchronized TimingWheel timer() {
+        if (timer == null) {
+            timer = new TimingWheel("bulb-timer", 1, 1024);
+        }
+        return timer;
+    }
+
+    public static synchronized ThreadMode getThreadMode() {
+        return threadMode;
+    }
+
+    /**
+     * @return factory of daemon threads of the configured {@link ThreadMode}
+     */
+    public static synchronized ThreadFactory threadFactory(String prefix) {
+        if (threadMode == ThreadMode.VIRTUAL) {
+            return virtualThreadFactory(prefix);
+        }
+        return platformThreadFactory(prefix);
+    }
+
+    private static ThreadFactory platformThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * The project is compiled for Java 17, virtual threads are looked up when running on a newer JDK.
+     *
+     * @return null when virtual threads are not supported
+     */
+    private static ThreadFactory virtualThreadFactory(String prefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix, 1L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
@@ -9,9 +9,7 @@ import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.AsynchronousSocketChannel;
-import java.time.Instant;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -21,106 +19,133 @@ import java.util.concurrent.TimeoutException;
  */
 public class ChannelConnection implements Closeable, Connection {
 
-    private static final int PORT = 6668;
-
     private static final Logger logger = LoggerFactory.getLogger(ChannelConnection.class);
     private final SocketAddress address;
     private String bulbName;
+    private final DataListener dataListener;
+    private final ConnectionTimeouts timeouts;
 
     /**
      * {@link AsynchronousSocketChannel} is used to monitor if the connection is alive, using timeout on the read.
      */
-    private AsynchronousSocketChannel clientChannel;
-    private int keepRetryingForMillis = 500;
-    private int maxRetries = 5;
+    private volatile AsynchronousSocketChannel clientChannel;
 
     public ChannelConnection(String ip, String bulbName) {
+        this(ip, bulbName, ConnectionTimeouts.DEFAULT, DataListener.NONE);
+    }
+
+    public ChannelConnection(String ip, String bulbName, ConnectionTimeouts timeouts, DataListener dataListener) {
+        this(ip, DEFAULT_PORT, bulbName, timeouts, dataListener);
+    }
+
+    public ChannelConnection(String ip, int port, String bulbName, ConnectionTimeouts timeouts, DataListener dataListener) {
         this.bulbName = bulbName;
-        address = new InetSocketAddress(ip, PORT);
+        this.timeouts = timeouts;
+        this.dataListener = dataListener;
+        address = new InetSocketAddress(ip, port);
     }
 
     @Override
     public void connect() throws IOException {
-        connect(1000); //TODO configurable
+        connect(timeouts.connectMillis());
     }
 
+    @Override
     public void connect(int connectTimeoutMillis) throws IOException {
-        connect(connectTimeoutMillis, 10000);  //TODO configurable
+        connect(connectTimeoutMillis, timeouts.readMillis());
     }
 
     public void connect(int connectTimeoutMillis, int readTimeoutMillis) throws IOException {
         logger.debug("Connecting to {} ...", address);
-        clientChannel = AsynchronousSocketChannel.open();
-        Future<Void> connectFuture = clientChannel.connect(address);
+        AsynchronousSocketChannel channel = AsynchronousSocketChannel.open();
+        Future<Void> connectFuture = channel.connect(address);
         try {
             connectFuture.get(connectTimeoutMillis, TimeUnit.MILLISECONDS);
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
+            channel.close();
             throw new IOException("Cannot connect to: " + bulbName, e);
         }
+        clientChannel = channel;
         logger.info("Connected to {}, address:{}.", bulbName, address);
-        Executors.newSingleThreadExecutor().submit(() -> {
-            while (true) {
+        // the reader is bound to this channel, it ends when the channel is closed
+        Thread reader = BulbExecutors.threadFactory("reader-" + bulbName + "-").newThread(() -> {
+            ByteBuffer buffer = ByteBuffer.allocate(256);
+            while (channel.isOpen()) {
                 logger.debug("About to read input for {}", bulbName);
                 try {
-                    ByteBuffer buffer = ByteBuffer.allocate(256);
-                    Future<Integer> readFuture = clientChannel.read(buffer);
+                    buffer.clear();
+                    Future<Integer> readFuture = channel.read(buffer);
                     // disconnect if there is no traffic for a readTimeoutMillis, no traffic could mean
                     // - client was silently disconnected
                     // - no commands
                     Integer read = readFuture.get(readTimeoutMillis, TimeUnit.MILLISECONDS);
                     if (read == -1) { // when bulbs send end of stream it ignores the first command
                         logger.info("End of data for {}.", bulbName);
-                        close();
+                        closeChannel(channel);
                         break;
                     } else if (read == 0) {
                         logger.info("No data for {}.", bulbName); // should never be here because it's a blocking channel
                         Thread.sleep(250);
+                    } else {
+                        buffer.flip();
+                        dataListener.onData(buffer);
                     }
                 } catch (TimeoutException | InterruptedException | ExecutionException e) {
-                    logger.info("No data for " + readTimeoutMillis + "ms from {}.", bulbName);
-                    close();
+                    if (channel.isOpen()) {
+                        logger.info("No data for " + readTimeoutMillis + "ms from {}.", bulbName);
+                    }
+                    closeChannel(channel);
                     break;
                 }
             }
         });
+        dataListener.onConnected();
+        reader.start();
+    }
+
+    /**
+     * Closes the channel, when it is not the current one anymore, the current is left open.
+     */
+    private void closeChannel(AsynchronousSocketChannel channel) {
+        if (channel == clientChannel) {
+            close();
+        } else {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.warn("Cannot close connection to {}.", bulbName);
+            }
+        }
     }
 
+    @Override
+    public boolean isConnected() {
+        AsynchronousSocketChannel channel = clientChannel;
+        return channel != null && channel.isOpen();
+    }
+
+    /**
+     * A failed write closes the channel, the reconnect is left to the {@link ConnectionSupervisor}.
+     */
     @Override
     public void send(ByteBuffer buffer) throws IOException {
         logger.debug("Sending to {}", bulbName);
-        try {
-            fullyWrite(buffer);
-        } catch (Exception e) {
-            logger.warn("Retrying to {} because: {} ...", bulbName, e.getMessage());
-            retry(buffer, Instant.now().plusMillis(keepRetryingForMillis), 0);
+        AsynchronousSocketChannel channel = clientChannel;
+        if (channel == null || !channel.isOpen()) {
+            throw new IOException("Not connected to " + bulbName + ".");
         }
-    }
-
-    private void retry(ByteBuffer buffer, Instant retryUntil, int retry) throws IOException {
         try {
-            close();
-            connect(300); //TODO configurable
-            fullyWrite(buffer);
-        } catch (Exception ex) {
-            if (Instant.now().isBefore(retryUntil) && retry < maxRetries) {
-                logger.info("Retrying again to {} because: {} ...", bulbName, ex.getMessage());
-                try {
-                    Thread.sleep(100 * retry);
-                } catch (InterruptedException e) {
-                    throw new IOException("Interrupted, cannot retry to " + bulbName + ".", ex);
-                }
-                retry(buffer, retryUntil, retry++);
-            } else {
-                throw new IOException("Cannot retry to " + bulbName + ".", ex);
-            }
+            fullyWrite(channel, buffer);
+        } catch (ExecutionException | InterruptedException | TimeoutException e) {
+            closeChannel(channel);
+            throw new IOException("Cannot write to " + bulbName + ".", e);
         }
     }
 
-    private void fullyWrite(ByteBuffer buffer) throws IOException, ExecutionException, InterruptedException, TimeoutException {
-        int written = 0;
-        while (written < buffer.capacity()) {
-            Future<Integer> writeFuture = clientChannel.write(buffer);
-            written += writeFuture.get(5, TimeUnit.SECONDS);
+    private void fullyWrite(AsynchronousSocketChannel channel, ByteBuffer buffer) throws ExecutionException, InterruptedException, TimeoutException {
+        while (buffer.hasRemaining()) {
+            Future<Integer> writeFuture = channel.write(buffer);
+            writeFuture.get(timeouts.writeMillis(), TimeUnit.MILLISECONDS);
         }
     }
 
@@ -4,8 +4,21 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 
 public interface Connection {
+
+    /**
+     * Port of the Tuya local protocol.
+     */
+    int DEFAULT_PORT = 6668;
+
     void connect() throws IOException;
 
+    void connect(int timeoutMillis) throws IOException;
+
+    /**
+     * @return true when the connection is established and was not closed since
+     */
+    boolean isConnected();
+
     void send(ByteBuffer buffer) throws IOException;
 
     void close();
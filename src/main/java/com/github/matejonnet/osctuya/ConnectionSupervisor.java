@@ -0,0 +1,127 @@
+package com.github.matejonnet.osctuya;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reconnects the disconnected bulbs in the background, the senders never wait for a reconnect.
+ *
+ * While a bulb is disconnected its circuit is open: the commands are not sent but conflated in the send queue,
+ * and the latest state is sent once the bulb is reconnected. The failed reconnects are retried
+ * with a jittered exponential backoff, so that a dead bulb does not keep a connector busy.
+ */
+public class ConnectionSupervisor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionSupervisor.class);
+
+    private static final long TICK_MILLIS = 100;
+
+    private static ConnectionSupervisor shared;
+
+    private final Executor connectors;
+    private final Map<Bulb, Supervised> bulbs = new ConcurrentHashMap<>();
+
+    public ConnectionSupervisor(TimingWheel timer, Executor connectors) {
+        this.connectors = connectors;
+        timer.scheduleAtFixedRate(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public static synchronized ConnectionSupervisor shared() {
+        if (shared == null) {
+            shared = new ConnectionSupervisor(BulbExecutors.timer(), BulbExecutors.connectors());
+        }
+        return shared;
+    }
+
+    /**
+     * @param minBackoffMillis delay of the first retry, doubled by each failed reconnect
+     * @param maxBackoffMillis maximum delay between the retries
+     */
+    public void add(Bulb bulb, long minBackoffMillis, long maxBackoffMillis) {
+        bulbs.putIfAbsent(bulb, new Supervised(bulb, minBackoffMillis, maxBackoffMillis));
+    }
+
+    public void remove(Bulb bulb) {
+        bulbs.remove(bulb);
+    }
+
+    /**
+     * @return number of failed reconnects since the bulb was last connected
+     */
+    public int getFailures(Bulb bulb) {
+        Supervised supervised = bulbs.get(bulb);
+        return supervised == null ? 0 : supervised.failures;
+    }
+
+    private void tick() {
+        long now = System.currentTimeMillis();
+        for (Supervised supervised : bulbs.values()) {
+            if (now >= supervised.nextAttemptAt && !supervised.bulb.isConnected() && supervised.connecting.compareAndSet(false, true)) {
+                connectors.execute(() -> reconnect(supervised));
+            }
+        }
+    }
+
+    private void reconnect(Supervised supervised) {
+        Bulb bulb = supervised.bulb;
+        try {
+            if (!bulbs.containsKey(bulb)) {
+                return;
+            }
+            bulb.reconnect();
+            if (supervised.failures > 0) {
+                logger.info("Bulb {} reconnected after {} failed attempts.", bulb.getName(), supervised.failures);
+            }
+            supervised.failures = 0;
+        } catch (IOException e) {
+            supervised.failures++;
+            long backoff = backoffMillis(supervised.failures, supervised.minBackoffMillis, supervised.maxBackoffMillis,
+                    ThreadLocalRandom.current().nextDouble());
+            supervised.nextAttemptAt = System.currentTimeMillis() + backoff;
+            if (supervised.failures == 1) {
+                logger.warn("Bulb {} is down, commands are held until it reconnects: {}.", bulb.getName(), e.getMessage());
+            } else {
+                logger.debug("Cannot reconnect {}, attempt {}, retrying in {}ms.", bulb.getName(), supervised.failures, backoff);
+            }
+        } finally {
+            supervised.connecting.set(false);
+        }
+    }
+
+    /**
+     * Exponential backoff with jitter, the delay is a random value between the half and the full exponential delay.
+     *
+     * @param failures number of failed attempts, at least 1
+     * @param random between 0 and 1
+     */
+    static long backoffMillis(int failures, long minMillis, long maxMillis, double random) {
+        long exponential = minMillis << Math.min(failures - 1, 30);
+        if (exponential <= 0 || exponential > maxMillis) {
+            exponential = maxMillis;
+        }
+        return exponential / 2 + (long) (exponential / 2 * random);
+    }
+
+    private static class Supervised {
+        private final Bulb bulb;
+        private final long minBackoffMillis;
+        private final long maxBackoffMillis;
+        private final AtomicBoolean connecting = new AtomicBoolean();
+        private volatile int failures;
+        private volatile long nextAttemptAt;
+
+        private Supervised(Bulb bulb, long minBackoffMillis, long maxBackoffMillis) {
+            this.bulb = bulb;
+            this.minBackoffMillis = minBackoffMillis;
+            this.maxBackoffMillis = maxBackoffMillis;
+        }
+    }
+}
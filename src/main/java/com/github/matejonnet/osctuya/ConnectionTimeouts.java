@@ -0,0 +1,31 @@
+package com.github.matejonnet.osctuya;
+
+import com.github.matejonnet.osctuya.config.Config;
+
+/**
+ * @param connectMillis timeout of the first connect
+ * @param reconnectMillis timeout of the reconnects made by the {@link ConnectionSupervisor}
+ * @param readMillis the connection is closed when nothing is received for this long
+ * @param writeMillis the connection is closed when a frame cannot be written in time
+ */
+public record ConnectionTimeouts(int connectMillis, int reconnectMillis, int readMillis, int writeMillis) {
+
+    public static final ConnectionTimeouts DEFAULT = new ConnectionTimeouts(1000, 300, 10000, 1000);
+
+    /**
+     * A heartbeat is sent up to two intervals after the last received frame, its reply must arrive before the read timeout.
+     */
+    public static final double MIN_READ_TIMEOUT_HEARTBEATS = 2.5;
+
+    /**
+     * @throws IllegalArgumentException when the read timeout is shorter than {@link #MIN_READ_TIMEOUT_HEARTBEATS} heartbeat intervals
+     */
+    public static ConnectionTimeouts of(Config config) {
+        if (config.heartbeatIntervalMillis > 0 && config.readTimeoutMillis < MIN_READ_TIMEOUT_HEARTBEATS * config.heartbeatIntervalMillis) {
+            throw new IllegalArgumentException("readTimeoutMillis " + config.readTimeoutMillis + " must be at least "
+                    + MIN_READ_TIMEOUT_HEARTBEATS + " times heartbeatIntervalMillis " + config.heartbeatIntervalMillis + ".");
+        }
+        return new ConnectionTimeouts(config.connectTimeoutMillis, config.reconnectTimeoutMillis, config.readTimeoutMillis,
+                config.writeTimeoutMillis);
+    }
+}
@@ -0,0 +1,23 @@
+package com.github.matejonnet.osctuya;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Receives the bytes read from a connection.
+ */
+public interface DataListener {
+
+    DataListener NONE = data -> {};
+
+    /**
+     * @param data read bytes between position and limit, valid only during the call
+     */
+    void onData(ByteBuffer data);
+
+    /**
+     * Called when a new connection is established, before its first data.
+     * The data of the previous connection must not be combined with the new one.
+     */
+    default void onConnected() {
+    }
+}
@@ -0,0 +1,40 @@
+package com.github.matejonnet.osctuya;
+
+/**
+ * Tuya data points (DP) of the RGBW bulb.
+ */
+public enum DataPoint {
+    POWER("20"),
+    /**
+     * 0 - white, 1 - colour
+     */
+    MODE("21"),
+    BRIGHTNESS("22"),
+    TEMPERATURE("23"),
+    /**
+     * HSV packed with {@link Utils#packHsv(int, int, int)}.
+     */
+    COLOUR("24");
+
+    private final String id;
+
+    DataPoint(String id) {
+        this.id = id;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return null when the id is not a known data point
+     */
+    public static DataPoint byId(String id) {
+        for (DataPoint dataPoint : values()) {
+            if (dataPoint.id.equals(id)) {
+                return dataPoint;
+            }
+        }
+        return null;
+    }
+}
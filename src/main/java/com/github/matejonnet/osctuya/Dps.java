@@ -0,0 +1,118 @@
+package com.github.matejonnet.osctuya;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Set of data point values, all values are stored as int, see {@link DataPoint}.
+ * Not thread safe.
+ */
+public class Dps {
+
+    private static final DataPoint[] DATA_POINTS = DataPoint.values();
+
+    private int mask;
+    private final int[] values = new int[DATA_POINTS.length];
+
+    public Dps set(DataPoint dataPoint, int value) {
+        mask |= 1 << dataPoint.ordinal();
+        values[dataPoint.ordinal()] = value;
+        return this;
+    }
+
+    public Dps set(DataPoint dataPoint, boolean value) {
+        return set(dataPoint, value ? 1 : 0);
+    }
+
+    public Dps unset(DataPoint dataPoint) {
+        mask &= ~(1 << dataPoint.ordinal());
+        return this;
+    }
+
+    public boolean isSet(DataPoint dataPoint) {
+        return (mask & (1 << dataPoint.ordinal())) != 0;
+    }
+
+    public int get(DataPoint dataPoint) {
+        return values[dataPoint.ordinal()];
+    }
+
+    public boolean isEmpty() {
+        return mask == 0;
+    }
+
+    /**
+     * Copy all the values set in the other, the values from the other win.
+     */
+    public void merge(Dps other) {
+        for (DataPoint dataPoint : DATA_POINTS) {
+            if (other.isSet(dataPoint)) {
+                set(dataPoint, other.get(dataPoint));
+            }
+        }
+    }
+
+    /**
+     * Sets the values of the "dps" JSON object as sent to and reported by the bulb, unknown DP ids are ignored.
+     */
+    public Dps set(JsonNode dps) {
+        Iterator<Map.Entry<String, JsonNode>> fields = dps.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            DataPoint dataPoint = DataPoint.byId(field.getKey());
+            if (dataPoint != null) {
+                set(dataPoint, parseValue(dataPoint, field.getValue()));
+            }
+        }
+        return this;
+    }
+
+    private static int parseValue(DataPoint dataPoint, JsonNode value) {
+        return switch (dataPoint) {
+            case POWER -> value.asBoolean() ? 1 : 0;
+            case MODE -> "colour".equals(value.asText()) ? 1 : 0;
+            case COLOUR -> {
+                String hex = value.asText();
+                if (hex.length() < 12) {
+                    yield 0;
+                }
+                int hue = Integer.parseInt(hex, 0, 4, 16);
+                int saturation = Integer.parseInt(hex, 4, 8, 16);
+                int hsvValue = Integer.parseInt(hex, 8, 12, 16);
+                yield hue << 20 | saturation << 10 | hsvValue;
+            }
+            default -> value.asInt();
+        };
+    }
+
+    public void clear() {
+        mask = 0;
+    }
+
+    /**
+     * @return map of the DP ids and values as they are sent to the bulb
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<>();
+        for (DataPoint dataPoint : DATA_POINTS) {
+            if (isSet(dataPoint)) {
+                int value = get(dataPoint);
+                switch (dataPoint) {
+                    case POWER -> map.put(dataPoint.getId(), value != 0);
+                    case MODE -> map.put(dataPoint.getId(), value != 0 ? "colour" : "white");
+                    case COLOUR -> map.put(dataPoint.getId(), Utils.getHexColor(value));
+                    default -> map.put(dataPoint.getId(), value);
+                }
+            }
+        }
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return toMap().toString();
+    }
+}
@@ -0,0 +1,124 @@
+package com.github.matejonnet.osctuya;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Single thread serving many {@link SelectorConnection}s with one {@link Selector}.
+ * Registration and interest changes are submitted as tasks and executed by the loop thread.
+ * Connections are checked for connect and read timeouts on every tick.
+ */
+public class EventLoop implements Runnable, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventLoop.class);
+
+    private static final long TICK_MILLIS = 100;
+
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    /**
+     * Shared by all the connections of this loop, used only by the loop thread.
+     */
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(4096);
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    public EventLoop(String name) throws IOException {
+        selector = Selector.open();
+        thread = new Thread(this, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Runs the task on the loop thread.
+     */
+    public void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    Selector selector() {
+        return selector;
+    }
+
+    @Override
+    public void run() {
+        long nextTick = 0;
+        while (running) {
+            try {
+                selector.select(TICK_MILLIS);
+                runTasks();
+                Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+                while (selected.hasNext()) {
+                    SelectionKey key = selected.next();
+                    selected.remove();
+                    handle(key);
+                }
+                long now = System.currentTimeMillis();
+                if (now >= nextTick) {
+                    nextTick = now + TICK_MILLIS;
+                    for (SelectionKey key : selector.keys()) {
+                        if (key.isValid()) {
+                            ((SelectorConnection) key.attachment()).onTick(key, now);
+                        }
+                    }
+                }
+            } catch (Throwable e) {
+                logger.error("Error in the event loop.", e);
+            }
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                logger.error("Cannot run event loop task.", e);
+            }
+        }
+    }
+
+    private void handle(SelectionKey key) {
+        SelectorConnection connection = (SelectorConnection) key.attachment();
+        try {
+            if (key.isConnectable()) {
+                connection.onConnectable(key);
+            }
+            if (key.isValid() && key.isReadable()) {
+                connection.onReadable(key, readBuffer);
+            }
+            if (key.isValid() && key.isWritable()) {
+                connection.onWritable(key);
+            }
+        } catch (CancelledKeyException e) {
+            logger.debug("Connection closed while handling the key.");
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(1000);
+            selector.close();
+        } catch (IOException e) {
+            logger.warn("Cannot close selector.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.github.matejonnet.osctuya;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed number of {@link EventLoop}s, connections are assigned round-robin.
+ */
+public class EventLoopGroup implements Closeable {
+
+    private static EventLoopGroup shared;
+
+    private final EventLoop[] loops;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public EventLoopGroup(int size) throws IOException {
+        loops = new EventLoop[size];
+        for (int i = 0; i < size; i++) {
+            loops[i] = new EventLoop("bulb-event-loop-" + i);
+        }
+    }
+
+    /**
+     * @return group with one loop per core, shared by all the bulbs
+     */
+    public static synchronized EventLoopGroup shared() {
+        if (shared == null) {
+            try {
+                shared = new EventLoopGroup(Runtime.getRuntime().availableProcessors());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot open selector.", e);
+            }
+        }
+        return shared;
+    }
+
+    public EventLoop next() {
+        return loops[Math.floorMod(next.getAndIncrement(), loops.length)];
+    }
+
+    @Override
+    public void close() {
+        for (EventLoop loop : loops) {
+            loop.close();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.github.matejonnet.osctuya;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Streaming decoder of Tuya frames: prefix(4) sequence(4) command(4) length(4) [return code(4)] payload crc(4) suffix(4).
+ * Frames sent by the devices have the return code, frames sent to the devices do not.
+ *
+ * Each received byte is copied once into a reused buffer, the complete frames are validated
+ * and passed to the listener as a view of the buffer, so decoding a frame does not allocate.
+ * The incomplete frame is moved to the beginning of the buffer, invalid data is skipped up to the next prefix.
+ * Not thread safe, must be used by one reader at a time.
+ */
+public class FrameDecoder implements DataListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(FrameDecoder.class);
+
+    public static final int PREFIX = 0x000055AA;
+    public static final int SUFFIX = 0x0000AA55;
+    private static final int HEADER_SIZE = 16;
+    private static final int MAX_FRAME_SIZE = 4096;
+
+    public interface FrameListener {
+        /**
+         * @param payload view of the payload between position and limit (without the return code), valid only during the call
+         */
+        void onFrame(int sequence, int command, int returnCode, ByteBuffer payload);
+    }
+
+    private final boolean hasReturnCode;
+    private final FrameListener listener;
+    private final byte[] bytes = new byte[MAX_FRAME_SIZE];
+    private final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    private final ByteBuffer payload = ByteBuffer.wrap(bytes);
+    private final Utils.Crc32 crc = new Utils.Crc32();
+    private int invalidFrames;
+
+    public FrameDecoder(boolean hasReturnCode, FrameListener listener) {
+        this.hasReturnCode = hasReturnCode;
+        this.listener = listener;
+    }
+
+    @Override
+    public void onData(ByteBuffer data) {
+        while (data.hasRemaining()) {
+            int length = Math.min(data.remaining(), buffer.remaining());
+            buffer.put(buffer.position(), data, data.position(), length);
+            buffer.position(buffer.position() + length);
+            data.position(data.position() + length);
+            decodeFrames();
+        }
+    }
+
+    /**
+     * Drops the incomplete frame of the previous connection.
+     */
+    @Override
+    public void onConnected() {
+        buffer.clear();
+    }
+
+    /**
+     * Decodes the complete frames in the buffer, leaves the incomplete one at the beginning of the buffer.
+     */
+    private void decodeFrames() {
+        int start = 0;
+        int end = buffer.position();
+        while (end - start >= HEADER_SIZE) {
+            if (buffer.getInt(start) != PREFIX) {
+                start = skipToPrefix(start + 1, end);
+                continue;
+            }
+            int length = buffer.getInt(start + 12);
+            int minLength = (hasReturnCode ? 4 : 0) + 8;
+            if (length < minLength || HEADER_SIZE + length > MAX_FRAME_SIZE) {
+                invalid("Invalid frame length " + length + ".");
+                start = skipToPrefix(start + 1, end);
+                continue;
+            }
+            int frameEnd = start + HEADER_SIZE + length;
+            if (frameEnd > end) {
+                break; // incomplete
+            }
+            if (isValid(start, frameEnd)) {
+                int sequence = buffer.getInt(start + 4);
+                int command = buffer.getInt(start + 8);
+                int payloadStart = start + HEADER_SIZE;
+                int returnCode = 0;
+                if (hasReturnCode) {
+                    returnCode = buffer.getInt(payloadStart);
+                    payloadStart += 4;
+                }
+                payload.limit(frameEnd - 8).position(payloadStart);
+                listener.onFrame(sequence, command, returnCode, payload);
+            }
+            start = frameEnd;
+        }
+        // keep the incomplete frame
+        System.arraycopy(bytes, start, bytes, 0, end - start);
+        buffer.position(end - start);
+    }
+
+    private boolean isValid(int start, int frameEnd) {
+        if (buffer.getInt(frameEnd - 4) != SUFFIX) {
+            invalid("Invalid frame suffix.");
+            return false;
+        }
+        crc.reset();
+        crc.update(bytes, start, frameEnd - 8 - start);
+        if (crc.intValue() != buffer.getInt(frameEnd - 8)) {
+            invalid("Invalid frame crc.");
+            return false;
+        }
+        return true;
+    }
+
+    private int skipToPrefix(int from, int end) {
+        for (int i = from; i <= end - 4; i++) {
+            if (buffer.getInt(i) == PREFIX) {
+                return i;
+            }
+        }
+        // keep the last 3 bytes, they can be the beginning of a prefix
+        return Math.max(from, end - 3);
+    }
+
+    private void invalid(String message) {
+        invalidFrames++;
+        logger.debug(message);
+    }
+
+    public int getInvalidFrames() {
+        return invalidFrames;
+    }
+}
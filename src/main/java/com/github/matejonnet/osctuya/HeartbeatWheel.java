@@ -0,0 +1,60 @@
+package com.github.matejonnet.osctuya;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends the heartbeats to all the connected bulbs with a single timer.
+ * The bulbs are spread over the slots of the wheel, on each tick the bulbs of one slot get the heartbeat,
+ * so the heartbeats are not sent all at once. A bulb is checked once per interval, an idle bulb gets a heartbeat
+ * on every check. After the last reply to a command the first heartbeat is sent within two intervals less a tick,
+ * hence the read timeout of at least {@link ConnectionTimeouts#MIN_READ_TIMEOUT_HEARTBEATS} intervals.
+ */
+public class HeartbeatWheel {
+
+    private static final int SLOTS = 10;
+
+    private static final Map<Long, HeartbeatWheel> wheels = new ConcurrentHashMap<>();
+
+    private final List<List<Bulb>> slots = new CopyOnWriteArrayList<>();
+    private final AtomicInteger nextSlot = new AtomicInteger();
+    private final long tickMillis;
+    private int currentSlot;
+
+    public HeartbeatWheel(TimingWheel timer, long intervalMillis) {
+        for (int i = 0; i < SLOTS; i++) {
+            slots.add(new CopyOnWriteArrayList<>());
+        }
+        tickMillis = Math.max(1, intervalMillis / SLOTS);
+        timer.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return wheel shared by all the bulbs with the same interval
+     */
+    public static HeartbeatWheel shared(long intervalMillis) {
+        return wheels.computeIfAbsent(intervalMillis, interval -> new HeartbeatWheel(BulbExecutors.timer(), interval));
+    }
+
+    public void add(Bulb bulb) {
+        List<Bulb> slot = slots.get(Math.floorMod(nextSlot.getAndIncrement(), SLOTS));
+        if (!slot.contains(bulb)) {
+            slot.add(bulb);
+        }
+    }
+
+    public void remove(Bulb bulb) {
+        slots.forEach(slot -> slot.remove(bulb));
+    }
+
+    private void tick() {
+        for (Bulb bulb : slots.get(currentSlot)) {
+            bulb.heartbeat(tickMillis);
+        }
+        currentSlot = (currentSlot + 1) % SLOTS;
+    }
+}
@@ -0,0 +1,200 @@
+package com.github.matejonnet.osctuya;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Encodes DP commands into Tuya 3.3 frames for a single bulb.
+ * The cipher, the json template with the device id and the constant frame parts are prepared once,
+ * the json and the frame are written into the reusable buffers, so encoding does not allocate.
+ *
+ * The returned buffer is reused by the next encode call, it must be written before the next command is encoded.
+ * Not thread safe.
+ *
+ * Frame: prefix(4) sequence(4) command(4) length(4) version header(15) encrypted payload, crc(4) suffix(4)
+ */
+public class PayloadEncoder {
+
+    private static final int PREFIX = 0x000055AA;
+    private static final int SUFFIX = 0x0000AA55;
+    private static final int CONTROL = 0x07;
+    private static final int HEART_BEAT = 0x09;
+    private static final byte[] VERSION_HEADER = "3.3\0\0\0\0\0\0\0\0\0\0\0\0".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_SIZE = 16;
+    private static final int AES_BLOCK = 16;
+    /**
+     * Enough room for all the DPs: "20":false,"21":"colour","22":1000,"23":1000,"24":"0000000003E8"
+     */
+    private static final int MAX_DPS_SIZE = 128;
+
+    private static final byte[] DPS_START = "\",\"dps\":{".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] COLOUR = "\"colour\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] WHITE = "\"white\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+    private static final DataPoint[] DATA_POINTS = DataPoint.values();
+    private static final byte[][] DP_KEYS = new byte[DATA_POINTS.length][];
+
+    static {
+        for (DataPoint dataPoint : DATA_POINTS) {
+            DP_KEYS[dataPoint.ordinal()] = ("\"" + dataPoint.getId() + "\":").getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private final Cipher cipher;
+    /**
+     * {"devId":"...","uid":"...","t":"
+     */
+    private final byte[] jsonStart;
+    private final byte[] json;
+    private final byte[] frame;
+    private final ByteBuffer frameBuffer;
+    private final Utils.Crc32 crc = new Utils.Crc32();
+    /**
+     * Heartbeat payload is constant, it is encrypted once.
+     */
+    private final byte[] heartbeatPayload;
+
+    public PayloadEncoder(String devId, String localKey) throws PayloadGenerationException {
+        try {
+            cipher = Cipher.getInstance("AES/ECB/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(localKey.getBytes(StandardCharsets.UTF_8), "AES"));
+        } catch (GeneralSecurityException e) {
+            throw new PayloadGenerationException("Cannot initialize cipher.", e);
+        }
+        jsonStart = ("{\"devId\":\"" + devId + "\",\"uid\":\"" + devId + "\",\"t\":\"").getBytes(StandardCharsets.UTF_8);
+        json = new byte[jsonStart.length + 10 + DPS_START.length + MAX_DPS_SIZE + AES_BLOCK];
+        frame = new byte[HEADER_SIZE + VERSION_HEADER.length + json.length + 8];
+        frameBuffer = ByteBuffer.wrap(frame);
+        frameBuffer.putInt(0, PREFIX);
+        try {
+            Cipher heartbeatCipher = Cipher.getInstance("AES/ECB/PKCS5Padding");
+            heartbeatCipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(localKey.getBytes(StandardCharsets.UTF_8), "AES"));
+            heartbeatPayload = heartbeatCipher.doFinal(("{\"gwId\":\"" + devId + "\",\"devId\":\"" + devId + "\"}").getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new PayloadGenerationException("Cannot encode heartbeat.", e);
+        }
+    }
+
+    /**
+     * @return frame ready to be written, valid until the next encode call
+     */
+    public ByteBuffer encode(Dps dps, int sequence) throws PayloadGenerationException {
+        // the previous frame left the limit at its end, a larger frame would not fit
+        frameBuffer.clear();
+        int jsonLength = writeJson(dps, System.currentTimeMillis() / 1000);
+        int encryptedLength = pad(jsonLength);
+        int payloadOffset = HEADER_SIZE + VERSION_HEADER.length;
+        try {
+            cipher.doFinal(json, 0, encryptedLength, frame, payloadOffset);
+        } catch (GeneralSecurityException e) {
+            throw new PayloadGenerationException("Cannot encode payload.", e);
+        }
+        frameBuffer.put(HEADER_SIZE, VERSION_HEADER);
+        return finishFrame(sequence, CONTROL, VERSION_HEADER.length + encryptedLength);
+    }
+
+    /**
+     * Heartbeat frame (command 0x09), the payload has no version header.
+     *
+     * @return frame ready to be written, valid until the next encode call
+     */
+    public ByteBuffer encodeHeartbeat(int sequence) {
+        frameBuffer.clear();
+        frameBuffer.put(HEADER_SIZE, heartbeatPayload);
+        return finishFrame(sequence, HEART_BEAT, heartbeatPayload.length);
+    }
+
+    private ByteBuffer finishFrame(int sequence, int command, int payloadLength) {
+        int crcOffset = HEADER_SIZE + payloadLength;
+        frameBuffer.putInt(4, sequence);
+        frameBuffer.putInt(8, command);
+        frameBuffer.putInt(12, payloadLength + 8);
+        crc.reset();
+        crc.update(frame, 0, crcOffset);
+        frameBuffer.putInt(crcOffset, crc.intValue());
+        frameBuffer.putInt(crcOffset + 4, SUFFIX);
+        frameBuffer.limit(crcOffset + 8).position(0);
+        return frameBuffer;
+    }
+
+    /**
+     * {"devId":"0123456789abcdef012345","uid":"0123456789abcdef012345","t":"1647038373","dps":{"20":true}}
+     */
+    private int writeJson(Dps dps, long epochSecond) {
+        System.arraycopy(jsonStart, 0, json, 0, jsonStart.length);
+        int pos = writeDecimal(jsonStart.length, epochSecond);
+        pos = write(pos, DPS_START);
+        boolean first = true;
+        for (DataPoint dataPoint : DATA_POINTS) {
+            if (!dps.isSet(dataPoint)) {
+                continue;
+            }
+            if (!first) {
+                json[pos++] = ',';
+            }
+            first = false;
+            pos = write(pos, DP_KEYS[dataPoint.ordinal()]);
+            int value = dps.get(dataPoint);
+            switch (dataPoint) {
+                case POWER -> pos = write(pos, value != 0 ? TRUE : FALSE);
+                case MODE -> pos = write(pos, value != 0 ? COLOUR : WHITE);
+                case COLOUR -> {
+                    json[pos++] = '"';
+                    pos = writeHex4(pos, Utils.hue(value));
+                    pos = writeHex4(pos, Utils.saturation(value));
+                    pos = writeHex4(pos, Utils.value(value));
+                    json[pos++] = '"';
+                }
+                default -> pos = writeDecimal(pos, value);
+            }
+        }
+        json[pos++] = '}';
+        json[pos++] = '}';
+        return pos;
+    }
+
+    /**
+     * PKCS5 padding.
+     */
+    private int pad(int length) {
+        int padding = AES_BLOCK - length % AES_BLOCK;
+        for (int i = 0; i < padding; i++) {
+            json[length + i] = (byte) padding;
+        }
+        return length + padding;
+    }
+
+    private int write(int pos, byte[] bytes) {
+        System.arraycopy(bytes, 0, json, pos, bytes.length);
+        return pos + bytes.length;
+    }
+
+    private int writeDecimal(int pos, long value) {
+        if (value < 0) {
+            json[pos++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value / 10; v > 0; v /= 10) {
+            digits++;
+        }
+        for (int i = pos + digits - 1; i >= pos; i--) {
+            json[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return pos + digits;
+    }
+
+    private int writeHex4(int pos, int value) {
+        json[pos++] = HEX[(value >>> 12) & 0xF];
+        json[pos++] = HEX[(value >>> 8) & 0xF];
+        json[pos++] = HEX[(value >>> 4) & 0xF];
+        json[pos++] = HEX[value & 0xF];
+        return pos;
+    }
+}
@@ -0,0 +1,79 @@
+package com.github.matejonnet.osctuya;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adaptive frame rate of a bulb, additive increase / multiplicative decrease (AIMD).
+ * Each frame acknowledged within the latency target raises the rate by {@link #INCREASE} frames/s per second of sending,
+ * a slow acknowledgement or write, an expired acknowledgement or a failed connection halves it.
+ * After a decrease, the rate is not decreased again within the latency target, the frames in flight were sent at the old rate.
+ * Thread safe.
+ */
+public class RateController {
+
+    static final double INCREASE = 2;
+    static final double DECREASE = 0.5;
+
+    private final double minRate;
+    private final double maxRate;
+    private final long latencyTargetNanos;
+
+    /**
+     * Guarded by this, frames per second.
+     */
+    private double rate;
+    private long decreasedAt;
+    private long decreases;
+
+    /**
+     * Starts at the minimum rate.
+     */
+    public RateController(double minFramesPerSecond, double maxFramesPerSecond, long latencyTargetMillis) {
+        this.minRate = minFramesPerSecond;
+        this.maxRate = maxFramesPerSecond;
+        this.latencyTargetNanos = TimeUnit.MILLISECONDS.toNanos(latencyTargetMillis);
+        this.rate = minFramesPerSecond;
+        this.decreasedAt = System.nanoTime() - latencyTargetNanos;
+    }
+
+    public synchronized void acknowledged(long roundTripNanos, long nanoTime) {
+        if (roundTripNanos > latencyTargetNanos) {
+            congested(nanoTime);
+        } else {
+            rate = Math.min(maxRate, rate + INCREASE / rate);
+        }
+    }
+
+    public synchronized void written(long writeNanos, long nanoTime) {
+        if (writeNanos > latencyTargetNanos) {
+            congested(nanoTime);
+        }
+    }
+
+    /**
+     * Called on expired acknowledgements, failed writes and reconnects.
+     */
+    public synchronized void congested(long nanoTime) {
+        if (nanoTime - decreasedAt < latencyTargetNanos || rate <= minRate) {
+            return;
+        }
+        rate = Math.max(minRate, rate * DECREASE);
+        decreasedAt = nanoTime;
+        decreases++;
+    }
+
+    /**
+     * @return frames per second
+     */
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    public synchronized long getIntervalMillis() {
+        return Math.round(1000 / rate);
+    }
+
+    public synchronized long getDecreases() {
+        return decreases;
+    }
+}
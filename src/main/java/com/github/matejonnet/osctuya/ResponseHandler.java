@@ -0,0 +1,167 @@
+package com.github.matejonnet.osctuya;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.function.Consumer;
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Handles the frames received from a bulb: acknowledges the sent commands and keeps the state confirmed by the bulb.
+ *
+ * Status payloads are prefixed by the version header "3.3" + 12 bytes and encrypted with the local key.
+ */
+public class ResponseHandler implements DataListener, FrameDecoder.FrameListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResponseHandler.class);
+
+    public static final int CONTROL = 0x07;
+    public static final int STATUS = 0x08;
+    public static final int HEART_BEAT = 0x09;
+    private static final int VERSION_HEADER_SIZE = 15;
+    private static final int AES_BLOCK = 16;
+
+    private final String bulbName;
+    private final boolean logResponse;
+    private final FrameDecoder decoder = new FrameDecoder(true, this);
+    private final AckTracker ackTracker;
+    private final Consumer<Dps> onReported;
+    private final Cipher cipher;
+    private final byte[] decrypted = new byte[4096];
+    /**
+     * Guarded by itself.
+     */
+    private final Dps confirmed = new Dps();
+    private volatile long lastReceivedAt;
+
+    public ResponseHandler(String bulbName, String localKey, boolean logResponse, AckTracker ackTracker) throws PayloadGenerationException {
+        this(bulbName, localKey, logResponse, ackTracker, dps -> {});
+    }
+
+    /**
+     * @param onReported called with the DP values of each status reported by the bulb
+     */
+    public ResponseHandler(String bulbName, String localKey, boolean logResponse, AckTracker ackTracker, Consumer<Dps> onReported)
+            throws PayloadGenerationException {
+        this.bulbName = bulbName;
+        this.logResponse = logResponse;
+        this.ackTracker = ackTracker;
+        this.onReported = onReported;
+        try {
+            cipher = Cipher.getInstance("AES/ECB/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(localKey.getBytes(StandardCharsets.UTF_8), "AES"));
+        } catch (GeneralSecurityException e) {
+            throw new PayloadGenerationException("Cannot initialize cipher.", e);
+        }
+    }
+
+    @Override
+    public void onData(ByteBuffer data) {
+        decoder.onData(data);
+    }
+
+    @Override
+    public void onConnected() {
+        // the read timeout counts from the connect
+        lastReceivedAt = System.currentTimeMillis();
+        decoder.onConnected();
+    }
+
+    @Override
+    public void onFrame(int sequence, int command, int returnCode, ByteBuffer payload) {
+        long now = System.nanoTime();
+        lastReceivedAt = System.currentTimeMillis();
+        if (command == CONTROL) {
+            long roundTrip = ackTracker.acknowledged(sequence, now);
+            logger.debug("Bulb {} acknowledged {} in {}ns.", bulbName, sequence, roundTrip);
+        } else if (command == HEART_BEAT) {
+            logger.debug("Heartbeat reply from {}.", bulbName);
+        }
+        if (returnCode != 0) {
+            logger.warn("Bulb {} returned code {} for command {}, sequence {}.", bulbName, returnCode, command, sequence);
+        }
+        if (isVersionHeader(payload)) {
+            payload.position(payload.position() + VERSION_HEADER_SIZE);
+        }
+        int length = payload.remaining();
+        if (length == 0) {
+            if (logResponse) {
+                logger.info("Response from {}: command {}, sequence {}, return code {}.", bulbName, command, sequence, returnCode);
+            }
+            return;
+        }
+        if (length % AES_BLOCK != 0 || length > decrypted.length) {
+            logger.debug("Ignoring payload of {} bytes from {}.", length, bulbName);
+            return;
+        }
+        try {
+            cipher.doFinal(payload.array(), payload.arrayOffset() + payload.position(), length, decrypted, 0);
+        } catch (GeneralSecurityException e) {
+            logger.warn("Cannot decrypt response from {}.", bulbName, e);
+            return;
+        }
+        int padding = decrypted[length - 1];
+        if (padding < 1 || padding > AES_BLOCK) {
+            logger.warn("Invalid response padding from {}.", bulbName);
+            return;
+        }
+        int jsonLength = length - padding;
+        if (logResponse) {
+            logger.info("Response from {}: command {}, sequence {}, return code {}: {}.", bulbName, command, sequence, returnCode,
+                    new String(decrypted, 0, jsonLength, StandardCharsets.UTF_8));
+        }
+        updateConfirmed(jsonLength);
+    }
+
+    private boolean isVersionHeader(ByteBuffer payload) {
+        int position = payload.position();
+        return payload.remaining() >= VERSION_HEADER_SIZE
+                && payload.get(position) == '3' && payload.get(position + 1) == '.' && payload.get(position + 2) == '3';
+    }
+
+    private void updateConfirmed(int jsonLength) {
+        JsonNode dps;
+        try {
+            dps = Mapper.getJson().readTree(decrypted, 0, jsonLength).get("dps");
+        } catch (IOException e) {
+            logger.warn("Cannot parse response from {}.", bulbName);
+            return;
+        }
+        if (dps == null) {
+            return;
+        }
+        Dps reported = new Dps().set(dps);
+        synchronized (confirmed) {
+            confirmed.merge(reported);
+        }
+        onReported.accept(reported);
+    }
+
+    /**
+     * @return copy of the state reported by the bulb
+     */
+    public Dps getConfirmed() {
+        Dps copy = new Dps();
+        synchronized (confirmed) {
+            copy.merge(confirmed);
+        }
+        return copy;
+    }
+
+    /**
+     * @return time in millis of the last frame received from the bulb or of the connect, 0 when never connected
+     */
+    public long getLastReceivedAt() {
+        return lastReceivedAt;
+    }
+
+    public int getInvalidFrames() {
+        return decoder.getInvalidFrames();
+    }
+}
@@ -0,0 +1,301 @@
+package com.github.matejonnet.osctuya;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Non-blocking connection served by an {@link EventLoop}, the number of threads does not grow with the number of bulbs.
+ *
+ * A send writes directly to the channel when nothing is waiting, what can not be written is queued
+ * and written by the event loop. When the connection is closed, a send reconnects and the frame is
+ * written once connected. Read and connect timeouts are checked by the event loop ticks.
+ */
+public class SelectorConnection implements Closeable, Connection {
+
+    private static final int MAX_QUEUED_WRITES = 16;
+
+    private static final Logger logger = LoggerFactory.getLogger(SelectorConnection.class);
+    private final SocketAddress address;
+    private final String bulbName;
+    private final EventLoop eventLoop;
+    private final DataListener dataListener;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+
+    private final Object lock = new Object();
+    /**
+     * Guarded by lock.
+     */
+    private SocketChannel channel;
+    /**
+     * Guarded by lock, completed by the event loop when the channel is connected.
+     */
+    private CompletableFuture<Void> connected;
+    /**
+     * Guarded by lock.
+     */
+    private final ArrayDeque<ByteBuffer> writeQueue = new ArrayDeque<>();
+    private volatile long connectStartedAt;
+    private volatile long lastReadAt;
+
+    public SelectorConnection(String ip, String bulbName, EventLoop eventLoop, ConnectionTimeouts timeouts, DataListener dataListener) {
+        this(ip, DEFAULT_PORT, bulbName, eventLoop, timeouts, dataListener);
+    }
+
+    public SelectorConnection(String ip, int port, String bulbName, EventLoop eventLoop, ConnectionTimeouts timeouts, DataListener dataListener) {
+        this.bulbName = bulbName;
+        this.connectTimeoutMillis = timeouts.connectMillis();
+        this.readTimeoutMillis = timeouts.readMillis();
+        this.eventLoop = eventLoop;
+        this.dataListener = dataListener;
+        address = new InetSocketAddress(ip, port);
+    }
+
+    @Override
+    public void connect() throws IOException {
+        connect(connectTimeoutMillis);
+    }
+
+    @Override
+    public void connect(int timeoutMillis) throws IOException {
+        CompletableFuture<Void> future;
+        synchronized (lock) {
+            future = connectAsync();
+        }
+        try {
+            future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new IOException("Cannot connect to: " + bulbName, e.getCause());
+        } catch (InterruptedException | TimeoutException e) {
+            close();
+            throw new IOException("Cannot connect to: " + bulbName, e);
+        }
+    }
+
+    /**
+     * Must be called holding the lock.
+     */
+    private CompletableFuture<Void> connectAsync() throws IOException {
+        if (channel != null && channel.isOpen()) {
+            return connected;
+        }
+        logger.debug("Connecting to {} ...", address);
+        SocketChannel newChannel = SocketChannel.open();
+        try {
+            newChannel.configureBlocking(false);
+            newChannel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            channel = newChannel;
+            connected = future;
+            connectStartedAt = System.currentTimeMillis();
+            boolean connectedImmediately = newChannel.connect(address);
+            eventLoop.execute(() -> register(newChannel, connectedImmediately));
+            return future;
+        } catch (IOException e) {
+            channel = null;
+            newChannel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        synchronized (lock) {
+            return channel != null && channel.isOpen() && connected.isDone() && !connected.isCompletedExceptionally();
+        }
+    }
+
+    @Override
+    public void send(ByteBuffer buffer) throws IOException {
+        logger.debug("Sending to {}", bulbName);
+        synchronized (lock) {
+            if (channel == null || !channel.isOpen()) {
+                connectAsync();
+            }
+            boolean isConnected = connected.isDone() && !connected.isCompletedExceptionally();
+            if (isConnected && writeQueue.isEmpty()) {
+                try {
+                    channel.write(buffer);
+                } catch (IOException e) {
+                    closeChannel(channel);
+                    throw e;
+                }
+                if (!buffer.hasRemaining()) {
+                    return;
+                }
+            }
+            if (writeQueue.size() >= MAX_QUEUED_WRITES) {
+                throw new IOException("Too many writes waiting for " + bulbName + ".");
+            }
+            ByteBuffer copy = ByteBuffer.allocate(buffer.remaining());
+            copy.put(buffer).flip();
+            writeQueue.add(copy);
+            if (isConnected) {
+                SocketChannel writeChannel = channel;
+                eventLoop.execute(() -> enableWrite(writeChannel));
+            }
+        }
+    }
+
+    // Event loop callbacks
+
+    private void register(SocketChannel registeredChannel, boolean connectedImmediately) {
+        try {
+            SelectionKey key = registeredChannel.register(eventLoop.selector(), connectedImmediately ? 0 : SelectionKey.OP_CONNECT, this);
+            if (connectedImmediately) {
+                onConnected(key);
+            }
+        } catch (ClosedChannelException e) {
+            fail(registeredChannel, e);
+        }
+    }
+
+    void onConnectable(SelectionKey key) {
+        SocketChannel keyChannel = (SocketChannel) key.channel();
+        try {
+            keyChannel.finishConnect();
+        } catch (IOException e) {
+            fail(keyChannel, e);
+            return;
+        }
+        onConnected(key);
+    }
+
+    private void onConnected(SelectionKey key) {
+        lastReadAt = System.currentTimeMillis();
+        synchronized (lock) {
+            if (channel != key.channel()) {
+                return;
+            }
+            dataListener.onConnected();
+            key.interestOps(writeQueue.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            connected.complete(null);
+        }
+        logger.info("Connected to {}, address:{}.", bulbName, address);
+    }
+
+    void onReadable(SelectionKey key, ByteBuffer readBuffer) {
+        SocketChannel keyChannel = (SocketChannel) key.channel();
+        readBuffer.clear();
+        int read;
+        try {
+            read = keyChannel.read(readBuffer);
+        } catch (IOException e) {
+            logger.info("Cannot read from {}: {}.", bulbName, e.getMessage());
+            closeChannel(keyChannel);
+            return;
+        }
+        if (read == -1) { // when bulbs send end of stream it ignores the first command
+            logger.info("End of data for {}.", bulbName);
+            closeChannel(keyChannel);
+        } else {
+            lastReadAt = System.currentTimeMillis();
+            readBuffer.flip();
+            dataListener.onData(readBuffer);
+        }
+    }
+
+    void onWritable(SelectionKey key) {
+        SocketChannel keyChannel = (SocketChannel) key.channel();
+        synchronized (lock) {
+            try {
+                while (!writeQueue.isEmpty()) {
+                    ByteBuffer head = writeQueue.peek();
+                    keyChannel.write(head);
+                    if (head.hasRemaining()) {
+                        return;
+                    }
+                    writeQueue.poll();
+                }
+            } catch (IOException e) {
+                logger.info("Cannot write to {}: {}.", bulbName, e.getMessage());
+                closeChannel(keyChannel);
+                return;
+            }
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    void onTick(SelectionKey key, long now) {
+        SocketChannel keyChannel = (SocketChannel) key.channel();
+        if ((key.interestOps() & SelectionKey.OP_CONNECT) != 0) {
+            if (now - connectStartedAt > connectTimeoutMillis) {
+                fail(keyChannel, new IOException("Connect timeout."));
+            }
+        } else if (now - lastReadAt > readTimeoutMillis) {
+            // no traffic could mean
+            // - client was silently disconnected
+            // - no commands
+            logger.info("No data for " + readTimeoutMillis + "ms from {}.", bulbName);
+            closeChannel(keyChannel);
+        }
+    }
+
+    private void enableWrite(SocketChannel writeChannel) {
+        SelectionKey key = writeChannel.keyFor(eventLoop.selector());
+        if (key != null && key.isValid()) {
+            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+        }
+    }
+
+    private void fail(SocketChannel failedChannel, IOException e) {
+        logger.info("Cannot connect to {}: {}.", bulbName, e.getMessage());
+        CompletableFuture<Void> future = null;
+        synchronized (lock) {
+            if (channel == failedChannel) {
+                future = connected;
+            }
+        }
+        closeChannel(failedChannel);
+        if (future != null) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    private void closeChannel(SocketChannel closingChannel) {
+        synchronized (lock) {
+            if (channel == closingChannel) {
+                channel = null;
+                writeQueue.clear();
+            }
+        }
+        try {
+            closingChannel.close();
+        } catch (IOException e) {
+            logger.warn("Cannot close connection to {}.", bulbName);
+        }
+    }
+
+    @Override
+    public void close() {
+        logger.debug("Closing connection to {}, address: {} ...", bulbName, address);
+        SocketChannel closingChannel;
+        CompletableFuture<Void> future;
+        synchronized (lock) {
+            closingChannel = channel;
+            future = connected;
+        }
+        if (closingChannel != null) {
+            closeChannel(closingChannel);
+        }
+        if (future != null) {
+            future.completeExceptionally(new ClosedChannelException());
+        }
+        logger.info("Connection closed {}, address: {}.", bulbName, address);
+    }
+}
@@ -0,0 +1,169 @@
+package com.github.matejonnet.osctuya;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free, multi producer, single consumer send queue of a bulb.
+ *
+ * DP values are conflated, the latest value wins: there is one slot per {@link DataPoint}
+ * and a mask of the slots waiting to be sent.
+ * Power changes are not conflated, they are kept in order so that a toggle is never lost.
+ * Only when more than maxPowerChanges are waiting, the new ones are dropped.
+ */
+public class SendQueue {
+
+    private static final DataPoint[] DATA_POINTS = DataPoint.values();
+
+    private final AtomicIntegerArray values = new AtomicIntegerArray(DATA_POINTS.length);
+    private final AtomicInteger pendingMask = new AtomicInteger();
+    private final Queue<Boolean> powerChanges = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger powerChangesSize = new AtomicInteger();
+    private final int maxPowerChanges;
+
+    /**
+     * Nano time of the oldest command waiting, 0 when nothing is waiting.
+     */
+    private final AtomicLong oldestAt = new AtomicLong();
+    /**
+     * Used only by the consumer.
+     */
+    private long frameEnqueuedAt;
+
+    private final AtomicLong conflated = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public SendQueue(int maxPowerChanges) {
+        this.maxPowerChanges = maxPowerChanges;
+    }
+
+    public void offer(DataPoint dataPoint, int value) {
+        stamp(System.nanoTime());
+        values.set(dataPoint.ordinal(), value);
+        markPending(1 << dataPoint.ordinal());
+    }
+
+    /**
+     * Enqueue both values, they are sent in the same frame.
+     */
+    public void offer(DataPoint dataPoint, int value, DataPoint otherDataPoint, int otherValue) {
+        stamp(System.nanoTime());
+        values.set(dataPoint.ordinal(), value);
+        values.set(otherDataPoint.ordinal(), otherValue);
+        markPending(1 << dataPoint.ordinal() | 1 << otherDataPoint.ordinal());
+    }
+
+    /**
+     * Enqueue the values, all of them are sent in the same frame.
+     * The POWER value is ignored, see {@link #offerPower(boolean)}.
+     */
+    public void offer(Dps dps) {
+        stamp(System.nanoTime());
+        int mask = 0;
+        for (DataPoint dataPoint : DATA_POINTS) {
+            if (dataPoint != DataPoint.POWER && dps.isSet(dataPoint)) {
+                values.set(dataPoint.ordinal(), dps.get(dataPoint));
+                mask |= 1 << dataPoint.ordinal();
+            }
+        }
+        markPending(mask);
+    }
+
+    private void markPending(int mask) {
+        int previous = pendingMask.getAndAccumulate(mask, (current, added) -> current | added);
+        int replaced = Integer.bitCount(previous & mask);
+        if (replaced > 0) {
+            conflated.addAndGet(replaced);
+        }
+    }
+
+    /**
+     * @return false when the power change was dropped because too many changes are waiting
+     */
+    public boolean offerPower(boolean on) {
+        if (powerChangesSize.incrementAndGet() > maxPowerChanges) {
+            powerChangesSize.decrementAndGet();
+            dropped.incrementAndGet();
+            return false;
+        }
+        stamp(System.nanoTime());
+        powerChanges.offer(on);
+        return true;
+    }
+
+    /**
+     * Moves the waiting values to the frame: all the conflated DPs and the oldest power change.
+     * Must be called by a single consumer.
+     *
+     * @return false when there is nothing to send
+     */
+    public boolean poll(Dps frame) {
+        frame.clear();
+        frameEnqueuedAt = oldestAt.getAndSet(0);
+        Boolean power = powerChanges.poll();
+        if (power != null) {
+            powerChangesSize.decrementAndGet();
+            frame.set(DataPoint.POWER, power);
+        }
+        int mask = pendingMask.getAndSet(0);
+        for (DataPoint dataPoint : DATA_POINTS) {
+            if ((mask & (1 << dataPoint.ordinal())) != 0) {
+                frame.set(dataPoint, values.get(dataPoint.ordinal()));
+            }
+        }
+        return !frame.isEmpty();
+    }
+
+    /**
+     * Marks the time the commands waiting were received, when it is older than the oldest command waiting.
+     * Used to measure the latency from the OSC message, before the command is offered.
+     */
+    public void stamp(long nanoTime) {
+        if (oldestAt.get() == 0) {
+            oldestAt.compareAndSet(0, nanoTime);
+        }
+    }
+
+    /**
+     * @return nano time of the oldest command of the last polled frame, approximate: the commands offered
+     * while polling can be stamped for the next frame
+     */
+    public long getFrameEnqueuedAt() {
+        return frameEnqueuedAt;
+    }
+
+    /**
+     * @return number of DP values and power changes waiting
+     */
+    public int size() {
+        return Integer.bitCount(pendingMask.get()) + powerChangesSize.get();
+    }
+
+    public boolean isEmpty() {
+        return pendingMask.get() == 0 && powerChanges.isEmpty();
+    }
+
+    /**
+     * Counts a frame which could not be sent.
+     */
+    public void dropped() {
+        dropped.incrementAndGet();
+    }
+
+    /**
+     * @return number of DP values replaced by a newer value before they were sent
+     */
+    public long getConflated() {
+        return conflated.get();
+    }
+
+    /**
+     * @return number of dropped power changes and frames that could not be sent
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+}
@@ -0,0 +1,83 @@
+package com.github.matejonnet.osctuya;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Last known state of a bulb, for every DP: the values sent to the bulb, overwritten by the values the bulb reports.
+ * Used to suppress the DP changes which would not change anything, consoles re-send the same values continuously.
+ * Once per refresh interval a frame is sent unchanged, to re-assert the state.
+ * Thread safe.
+ */
+public class ShadowState {
+
+    private static final DataPoint[] DATA_POINTS = DataPoint.values();
+
+    /**
+     * Guarded by this.
+     */
+    private final Dps state = new Dps();
+    private final long refreshNanos;
+    private long refreshedAt;
+
+    /**
+     * @param refreshMillis 0 disables the suppression, the state is only tracked
+     */
+    public ShadowState(long refreshMillis) {
+        this.refreshNanos = TimeUnit.MILLISECONDS.toNanos(refreshMillis);
+    }
+
+    /**
+     * Removes from the frame the values which are equal to the known state, unless the state is due for a refresh.
+     *
+     * @return number of removed values
+     */
+    public synchronized int removeUnchanged(Dps frame, long nanoTime) {
+        if (refreshNanos <= 0) {
+            return 0;
+        }
+        if (nanoTime - refreshedAt >= refreshNanos) {
+            refreshedAt = nanoTime;
+            return 0;
+        }
+        int removed = 0;
+        for (DataPoint dataPoint : DATA_POINTS) {
+            if (frame.isSet(dataPoint) && state.isSet(dataPoint) && state.get(dataPoint) == frame.get(dataPoint)) {
+                frame.unset(dataPoint);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Called with the values written to the bulb.
+     */
+    public synchronized void sent(Dps frame) {
+        state.merge(frame);
+    }
+
+    /**
+     * Called with the values reported by the bulb, it should be called only when no frames are in flight,
+     * a report sent before the last frame was applied would overwrite the newer values.
+     */
+    public synchronized void reported(Dps dps) {
+        state.merge(dps);
+    }
+
+    /**
+     * Forgets the state, the bulb might have been power cycled while it was disconnected.
+     */
+    public synchronized void clear() {
+        state.clear();
+        refreshedAt = 0;
+    }
+
+    /**
+     * @return copy of the state
+     */
+    public synchronized Dps get() {
+        Dps copy = new Dps();
+        copy.merge(state);
+        return copy;
+    }
+}
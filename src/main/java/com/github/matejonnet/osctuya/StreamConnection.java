@@ -6,101 +6,153 @@ import org.slf4j.LoggerFactory;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
 import java.nio.ByteBuffer;
-import java.time.Instant;
-import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static com.github.matejonnet.osctuya.Utils.bytesToHex;
 
 /**
+ * The writes to the socket block without a timeout, a write which does not complete in the write timeout
+ * is ended by a watchdog on the {@link BulbExecutors#timer()} which closes the socket.
+ *
  * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
  */
 public class StreamConnection implements Closeable, Connection {
 
-    private static final int PORT = 6668;
-
     private static final Logger logger = LoggerFactory.getLogger(StreamConnection.class);
     private final SocketAddress address;
     private String bulbName;
+    private final DataListener dataListener;
+    private final ConnectionTimeouts timeouts;
+    private final TimingWheel timer;
 
-    private Socket clientSocket;
-    OutputStream outputStream;
+    private volatile Socket clientSocket;
 
     public StreamConnection(String ip, String bulbName) {
+        this(ip, bulbName, ConnectionTimeouts.DEFAULT, DataListener.NONE);
+    }
+
+    public StreamConnection(String ip, String bulbName, ConnectionTimeouts timeouts, DataListener dataListener) {
+        this(ip, DEFAULT_PORT, bulbName, timeouts, dataListener);
+    }
+
+    public StreamConnection(String ip, int port, String bulbName, ConnectionTimeouts timeouts, DataListener dataListener) {
         this.bulbName = bulbName;
-        address = new InetSocketAddress(ip, PORT);
+        this.timeouts = timeouts;
+        this.dataListener = dataListener;
+        this.timer = BulbExecutors.timer();
+        address = new InetSocketAddress(ip, port);
     }
 
     @Override
     public void connect() throws IOException {
-        connect(1000); //TODO configurable
+        connect(timeouts.connectMillis());
     }
 
+    @Override
     public void connect(int timeoutMillis) throws IOException {
         logger.debug("Connecting to {} ...", address);
-        clientSocket = new Socket();
-        clientSocket.connect(address, timeoutMillis);
-        outputStream = clientSocket.getOutputStream();
+        Socket socket = new Socket();
+        try {
+            socket.connect(address, timeoutMillis);
+            // the reader gets a timeout when there is no traffic
+            socket.setSoTimeout(timeouts.readMillis());
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        clientSocket = socket;
         logger.info("Connected to {}, address:{}.", bulbName, address);
-        InputStream inputStream = clientSocket.getInputStream();
-        Executors.newSingleThreadExecutor().submit(() -> {
-            while (true) {
+        // the reader is bound to this socket, it ends when the socket is closed
+        InputStream inputStream = socket.getInputStream();
+        Thread reader = BulbExecutors.threadFactory("reader-" + bulbName + "-").newThread(() -> {
+            byte[] bytes = new byte[256];
+            ByteBuffer data = ByteBuffer.wrap(bytes);
+            while (!socket.isClosed()) {
                 logger.info("Reading input for {}", bulbName);
                 try {
-                    int b = inputStream.read();
-//                    logger.info("Read from {}", bulbName);
-                    if (b == -1) { // when bulbs send end of stream it ignores the first command
-                        close();
+                    int read = inputStream.read(bytes);
+                    if (read == -1) { // when bulbs send end of stream it ignores the first command
+                        closeSocket(socket);
                         break;
                     }
+                    data.limit(read).position(0);
+                    dataListener.onData(data);
+                } catch (SocketTimeoutException e) {
+                    logger.info("No data for " + timeouts.readMillis() + "ms from {}.", bulbName);
+                    closeSocket(socket);
+                    break;
                 } catch (IOException e) {
-                    logger.warn("Cannot read stream from {}.", bulbName);
-                    close();
+                    if (!socket.isClosed()) {
+                        logger.warn("Cannot read stream from {}.", bulbName);
+                    }
+                    closeSocket(socket);
                     break;
                 }
             }
         });
+        dataListener.onConnected();
+        reader.start();
+    }
+
+    /**
+     * Closes the socket, when it is not the current one anymore, the current is left open.
+     */
+    private void closeSocket(Socket socket) {
+        if (socket == clientSocket) {
+            close();
+        } else {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                logger.warn("Cannot close connection to {}.", bulbName);
+            }
+        }
     }
 
     @Override
     public void send(ByteBuffer buffer) throws IOException {
         logger.info("Sending to {} ...", bulbName); // TODO log level
-        logger.debug("Sending to {} : {} ...", bulbName, bytesToHex(buffer.array()));
-        try {
-            outputStream.write(buffer.array());
-        } catch (Exception e) {
-            logger.warn("Retrying to {} because: {} ...", bulbName, e.getMessage());
-            retry(buffer, Instant.now().plusMillis(200), 5);
+        if (logger.isDebugEnabled()) {
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(buffer.position(), bytes);
+            logger.debug("Sending to {} : {} ...", bulbName, bytesToHex(bytes));
         }
-    }
-
-    private void retry(ByteBuffer buffer, Instant retryUntil, int maxRetries) throws IOException {
+        Socket socket = clientSocket;
+        if (socket == null || socket.isClosed()) {
+            throw new IOException("Not connected to " + bulbName + ".");
+        }
+        TimingWheel.Timeout watchdog = timer.schedule(() -> {
+            logger.warn("Cannot write to {} in {}ms, closing the connection.", bulbName, timeouts.writeMillis());
+            closeSocket(socket);
+        }, timeouts.writeMillis(), TimeUnit.MILLISECONDS);
+        // a failed write closes the socket, the reconnect is left to the ConnectionSupervisor
         try {
-            close();
-            connect(300); //TODO configurable
-            outputStream.write(buffer.array());
-//            outputStream.flush();
-        } catch (Exception ex) {
-            if (Instant.now().isBefore(retryUntil) && maxRetries > 0) {
-                logger.info("Retrying again to {} because: {} ...", bulbName, ex.getMessage());
-                retry(buffer, retryUntil, --maxRetries);
-            } else {
-                throw new IOException("Cannot retry to " + bulbName + ".", ex);
+            socket.getOutputStream().write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        } catch (IOException e) {
+            closeSocket(socket);
+            if (!watchdog.cancel()) {
+                throw new IOException("Cannot write to " + bulbName + " in " + timeouts.writeMillis() + "ms.", e);
             }
+            throw e;
         }
+        watchdog.cancel();
+    }
+
+    @Override
+    public boolean isConnected() {
+        Socket socket = clientSocket;
+        return socket != null && socket.isConnected() && !socket.isClosed();
     }
 
     @Override
     public void close()  {
         logger.debug("Closing connection to {}, address: {} ...", bulbName, address);
         try {
-            if (outputStream != null) {
-                outputStream.close();
-            }
             if (clientSocket != null) {
                 clientSocket.close();
             }
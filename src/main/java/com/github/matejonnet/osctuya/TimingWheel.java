@@ -0,0 +1,196 @@
+package com.github.matejonnet.osctuya;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timing wheel, a single thread runs the delayed and the periodic tasks: repeats, timeouts, heartbeats and reconnects.
+ * A task is put to the bucket of its deadline tick, on each tick the thread runs the due tasks of one bucket,
+ * so scheduling and cancelling are O(1) regardless of the number of waiting tasks. A cancelled task is removed when its bucket is visited.
+ * The tasks run up to one tick late, on the wheel thread: they must be short and hand over any blocking work to an executor.
+ */
+public class TimingWheel implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(TimingWheel.class);
+
+    private final long tickNanos;
+    private final Timeout[] buckets;
+    private final int mask;
+    /**
+     * Scheduled tasks not yet in a bucket, the buckets are accessed only by the wheel thread.
+     */
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final long startedAt;
+    private final Thread thread;
+    private volatile boolean closed;
+    private long tick;
+
+    /**
+     * @param wheelSize number of buckets, rounded up to a power of two
+     */
+    public TimingWheel(String name, long tickMillis, int wheelSize) {
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.buckets = new Timeout[size];
+        this.mask = size - 1;
+        this.startedAt = System.nanoTime();
+        thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        return add(new Timeout(task, System.nanoTime() + unit.toNanos(delay), 0));
+    }
+
+    /**
+     * The task is run every period until the returned timeout is cancelled.
+     */
+    public Timeout scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        return add(new Timeout(task, System.nanoTime() + unit.toNanos(initialDelay), unit.toNanos(period)));
+    }
+
+    private Timeout add(Timeout timeout) {
+        if (closed) {
+            throw new IllegalStateException("Timing wheel is closed.");
+        }
+        added.offer(timeout);
+        return timeout;
+    }
+
+    private void run() {
+        List<Timeout> periodic = new ArrayList<>();
+        while (!closed) {
+            long tickAt = startedAt + (tick + 1) * tickNanos;
+            long sleep;
+            while ((sleep = tickAt - System.nanoTime()) > 0 && !closed) {
+                LockSupport.parkNanos(sleep);
+            }
+            Timeout timeout;
+            while ((timeout = added.poll()) != null) {
+                put(timeout);
+            }
+            expire((int) (tick & mask), periodic);
+            tick++;
+            // put back after the tick moved, not to the bucket just expired
+            for (Timeout again : periodic) {
+                again.deadline += again.periodNanos;
+                put(again);
+            }
+            periodic.clear();
+        }
+    }
+
+    private void put(Timeout timeout) {
+        if (timeout.state.get() == Timeout.CANCELLED) {
+            return;
+        }
+        long deadlineTick = Math.max(tick, (timeout.deadline - startedAt + tickNanos - 1) / tickNanos - 1);
+        timeout.rounds = (deadlineTick - tick) / buckets.length;
+        int bucket = (int) (deadlineTick & mask);
+        timeout.next = buckets[bucket];
+        timeout.previous = null;
+        if (buckets[bucket] != null) {
+            buckets[bucket].previous = timeout;
+        }
+        buckets[bucket] = timeout;
+    }
+
+    private void expire(int bucket, List<Timeout> periodic) {
+        Timeout timeout = buckets[bucket];
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.state.get() == Timeout.CANCELLED) {
+                remove(bucket, timeout);
+            } else if (timeout.rounds <= 0) {
+                remove(bucket, timeout);
+                if (timeout.periodNanos > 0) {
+                    runTask(timeout);
+                    periodic.add(timeout);
+                } else if (timeout.state.compareAndSet(Timeout.WAITING, Timeout.EXPIRED)) {
+                    runTask(timeout);
+                }
+            } else {
+                timeout.rounds--;
+            }
+            timeout = next;
+        }
+    }
+
+    private void remove(int bucket, Timeout timeout) {
+        if (timeout.previous != null) {
+            timeout.previous.next = timeout.next;
+        } else {
+            buckets[bucket] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.previous = timeout.previous;
+        }
+        timeout.next = null;
+        timeout.previous = null;
+    }
+
+    private void runTask(Timeout timeout) {
+        try {
+            timeout.task.run();
+        } catch (Throwable e) {
+            logger.error("Timer task failed.", e);
+        }
+    }
+
+    /**
+     * Stops the wheel thread, the waiting tasks are not run.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Handle of a scheduled task.
+     */
+    public static final class Timeout {
+
+        private static final int WAITING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final Runnable task;
+        private final long periodNanos;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+        /**
+         * Accessed only by the wheel thread.
+         */
+        private long deadline;
+        private long rounds;
+        private Timeout next;
+        private Timeout previous;
+
+        private Timeout(Runnable task, long deadline, long periodNanos) {
+            this.task = task;
+            this.deadline = deadline;
+            this.periodNanos = periodNanos;
+        }
+
+        /**
+         * @return false when the task already ran, a periodic task is not run again
+         */
+        public boolean cancel() {
+            return state.compareAndSet(WAITING, CANCELLED);
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+    }
+}
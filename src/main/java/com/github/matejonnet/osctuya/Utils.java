@@ -25,16 +25,43 @@ public class Utils {
     }
 
     public static String getHexColor(int r, int g, int b) {
-        float[] hsv = new float[3];
-        Color.RGBtoHSB(r, g, b, hsv);
-        Integer[] hsvArray = new Integer[]{Math.round(hsv[0] * 360), Math.round(hsv[1] * 1000), Math.round(hsv[2] * 1000)};
-        StringBuilder colorValue = new StringBuilder();
-        for (int v : hsvArray) {
+        return getHexColor(packHsv(r, g, b));
+    }
+
+    /**
+     * @param packedHsv HSV packed with {@link #packHsv(int, int, int)}
+     * @return HSV as Tuya hex string: 4 hex digits for each of the hue (0-360), saturation (0-1000) and value (0-1000)
+     */
+    public static String getHexColor(int packedHsv) {
+        StringBuilder colorValue = new StringBuilder(12);
+        for (int v : new int[]{hue(packedHsv), saturation(packedHsv), value(packedHsv)}) {
             colorValue.append(String.format("%04X", v));
         }
         return colorValue.toString();
     }
 
+    /**
+     * Converts RGB to HSV in the Tuya ranges and packs it into an int:
+     * 9 bits of hue (0-360), 10 bits of saturation (0-1000) and 10 bits of value (0-1000).
+     */
+    public static int packHsv(int r, int g, int b) {
+        float[] hsv = new float[3];
+        Color.RGBtoHSB(r, g, b, hsv);
+        return Math.round(hsv[0] * 360) << 20 | Math.round(hsv[1] * 1000) << 10 | Math.round(hsv[2] * 1000);
+    }
+
+    public static int hue(int packedHsv) {
+        return packedHsv >>> 20;
+    }
+
+    public static int saturation(int packedHsv) {
+        return (packedHsv >>> 10) & 0x3FF;
+    }
+
+    public static int value(int packedHsv) {
+        return packedHsv & 0x3FF;
+    }
+
     public static byte[] intToHexArray(int value) {
         ByteBuffer buffer = ByteBuffer.allocate(4);
         buffer.putInt(value);
@@ -55,6 +82,14 @@ public class Utils {
             crc.update(buffer);
         }
 
+        public void update(byte[] bytes, int offset, int length) {
+            crc.update(bytes, offset, length);
+        }
+
+        public void reset() {
+            crc.reset();
+        }
+
         /**
          *
          * @return array of 4 bytes
@@ -66,5 +101,12 @@ public class Utils {
             buffer.get(4, result);
             return result;
         }
+
+        /**
+         * @return the same 4 bytes as {@link #getValue()}, as an int
+         */
+        public int intValue() {
+            return (int) crc.getValue();
+        }
     }
 }
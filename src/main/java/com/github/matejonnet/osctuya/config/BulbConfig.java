@@ -16,10 +16,16 @@ public class BulbConfig {
 
     private final String name;
     private final String ip;
+    /**
+     * Defaults to the Tuya port 6668, other ports are useful with the simulator.
+     */
+    private final Optional<Integer> port;
     private final String id;
     private final String key;
     private final String mac;
     private final Osc osc;
+    @Builder.Default
+    private final Optional<DmxAddress> dmx = Optional.empty();
     private final Optional<Boolean> enabled;
 
 }
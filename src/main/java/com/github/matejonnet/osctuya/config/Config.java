@@ -13,6 +13,18 @@ public class Config {
     public final String bindHost;
     public final Integer bindPort;
 
+    /**
+     * Number of threads receiving the OSC packets over UDP, each on its own socket bound to bindPort with SO_REUSEPORT.
+     * The kernel spreads the senders over the sockets, the packets of one sender are received by one thread.
+     */
+    @Builder.Default
+    public final int oscReceiverThreads = 1;
+
+    /**
+     * TCP port receiving the OSC packets framed with SLIP (OSC 1.1), 0 to disable it.
+     */
+    public final int oscTcpPort;
+
     /**
      * Sends "power on" before every command.
      * Used to workaround responsiveness issues.
@@ -21,16 +33,171 @@ public class Config {
 
     public final List<BulbConfig> bulbs;
 
+    /**
+     * Groups of bulbs addressed together, one OSC message is fanned out to all the members.
+     */
+    @Builder.Default
+    public final List<GroupConfig> groups = List.of();
+
+    /**
+     * Maximum number of power changes waiting to be sent to a bulb, the other DP values are conflated.
+     */
     public final int sendQueueSize;
 
+    /**
+     * Scheduler of the commands received over OSC.
+     */
+    @Builder.Default
+    public final SchedulerType commandScheduler = SchedulerType.DIRECT;
+
+    /**
+     * Used by {@link SchedulerType#REPEATABLE_EXECUTOR_PER_BULB}, a command is cancelled when not processed in time.
+     */
     public final long commandTimeoutMillis;
 
+    /**
+     * Used by {@link SchedulerType#REPEATABLE_EXECUTOR_PER_BULB}, the n-th repeat is delayed by repeatDelayMillis * n^2.
+     */
     public final long repeatDelayMillis;
 
+    /**
+     * Used by {@link SchedulerType#REPEATABLE_EXECUTOR_PER_BULB}, the number of times a command is processed.
+     */
     public final int repeatCommandTimes;
 
+    /**
+     * When greater than 0, the DP changes of a bulb received within the interval are merged and sent as a single frame.
+     */
+    public final long frameIntervalMillis;
+
+    /**
+     * Maximum number of bulbs connecting at the same time at startup.
+     */
+    @Builder.Default
+    public final int connectParallelism = 32;
+
+    /**
+     * Adapts the frame interval of each bulb to the rate it sustains, replaces frameIntervalMillis.
+     * The rate is raised while the bulb acknowledges the frames within the latency target and halved when it does not,
+     * when the writes are slow or the connection fails. The commands are conflated to the current rate.
+     */
+    public final boolean adaptiveRate;
+
+    @Builder.Default
+    public final double minFramesPerSecond = 5;
+
+    @Builder.Default
+    public final double maxFramesPerSecond = 50;
+
+    @Builder.Default
+    public final long latencyTargetMillis = 150;
+
     /**
      * Read and log response sent from the Bulbs.
      */
     public final boolean logResponse;
+
+    @Builder.Default
+    public final ConnectionType connectionType = ConnectionType.CHANNEL;
+
+    @Builder.Default
+    public final int connectTimeoutMillis = 1000;
+
+    /**
+     * Connect timeout of the background reconnects.
+     */
+    @Builder.Default
+    public final int reconnectTimeoutMillis = 300;
+
+    /**
+     * Delay of the first reconnect retry, doubled (with jitter) by each failed attempt.
+     */
+    @Builder.Default
+    public final long reconnectBackoffMillis = 100;
+
+    @Builder.Default
+    public final long maxReconnectBackoffMillis = 30000;
+
+    /**
+     * The connection is closed when a frame cannot be written in time.
+     */
+    @Builder.Default
+    public final int writeTimeoutMillis = 1000;
+
+    /**
+     * The connection is closed when nothing is received from the bulb for this long,
+     * must be at least 2.5 times the heartbeat interval, the bulbs reply to the heartbeats.
+     */
+    @Builder.Default
+    public final int readTimeoutMillis = 10000;
+
+    /**
+     * A heartbeat is sent to the bulbs from which nothing was received in the interval, 0 to disable.
+     */
+    @Builder.Default
+    public final long heartbeatIntervalMillis = 4000;
+
+    /**
+     * Maximum number of frames sent to a bulb and not yet acknowledged, 0 for no limit.
+     * While the window is full, the commands are conflated.
+     */
+    public final int inFlightWindow;
+
+    /**
+     * A frame which is not acknowledged in time does not count to the in flight window anymore.
+     */
+    @Builder.Default
+    public final long ackTimeoutMillis = 1000;
+
+    /**
+     * Threads used for the bulb sends, the connection readers and the command schedulers.
+     */
+    @Builder.Default
+    public final ThreadMode threadMode = ThreadMode.PLATFORM;
+
+    /**
+     * When greater than 0, the DP values equal to the last sent or reported state of the bulb are not sent,
+     * once per interval a frame is sent unchanged to re-assert the state. 0 sends every command.
+     */
+    public final long stateRefreshMillis;
+
+    /**
+     * Path of the cue file played by the cue player, none when null.
+     */
+    public final String cueFile;
+
+    /**
+     * The cue player is controlled by the OSC messages [cueAddress]/play and [cueAddress]/stop.
+     */
+    @Builder.Default
+    public final String cueAddress = "/cue";
+
+    /**
+     * UDP port of the Art-Net receiver, usually 6454, 0 to disable it.
+     */
+    public final int artNetPort;
+
+    /**
+     * UDP port of the sACN (E1.31) receiver, usually 5568, 0 to disable it.
+     */
+    public final int sacnPort;
+
+    /**
+     * Address the Art-Net and sACN receivers are bound to, the wildcard address also receives the broadcasts.
+     */
+    @Builder.Default
+    public final String dmxBindHost = "0.0.0.0";
+
+    /**
+     * Network interface joining the sACN multicast groups of the mapped universes, unicast only when null.
+     */
+    public final String sacnMulticastInterface;
+
+    /**
+     * Port of the Prometheus /metrics endpoint, 0 to disable it. The metrics are always exported as JMX MBeans.
+     */
+    public final int metricsPort;
+
+    @Builder.Default
+    public final String metricsHost = "127.0.0.1";
 }
@@ -0,0 +1,19 @@
+package com.github.matejonnet.osctuya.config;
+
+/**
+ * Implementation of the connection to the bulbs.
+ */
+public enum ConnectionType {
+    /**
+     * Asynchronous channel with a reader thread per bulb.
+     */
+    CHANNEL,
+    /**
+     * Blocking socket with a reader thread per bulb.
+     */
+    STREAM,
+    /**
+     * Non-blocking channels served by one selector event loop per core.
+     */
+    SELECTOR
+}
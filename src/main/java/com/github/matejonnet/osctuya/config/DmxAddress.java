@@ -0,0 +1,32 @@
+package com.github.matejonnet.osctuya.config;
+
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+
+import java.util.Optional;
+
+/**
+ * DMX channels of a bulb or a group, received over Art-Net or sACN.
+ * The channels are numbered from 1 to 512, the channel value 0 - 255 is scaled to the command range.
+ */
+@Value
+@Builder
+@Jacksonized
+public class DmxAddress {
+    @Builder.Default
+    private int universe = 0;
+    @Builder.Default
+    private Optional<Integer> power = Optional.empty();
+    @Builder.Default
+    private Optional<Integer> brightness = Optional.empty();
+    @Builder.Default
+    private Optional<Integer> temperature = Optional.empty();
+    @Builder.Default
+    private Optional<Integer> red = Optional.empty();
+    @Builder.Default
+    private Optional<Integer> green = Optional.empty();
+    @Builder.Default
+    private Optional<Integer> blue = Optional.empty();
+
+}
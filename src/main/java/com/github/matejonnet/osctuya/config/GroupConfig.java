@@ -0,0 +1,27 @@
+package com.github.matejonnet.osctuya.config;
+
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Named group of bulbs, a message sent to an address of the group is applied to all the member bulbs.
+ */
+@Value
+@Builder
+@Jacksonized
+public class GroupConfig {
+
+    private final String name;
+    /**
+     * Names of the member bulbs.
+     */
+    private final List<String> bulbs;
+    private final Osc osc;
+    @Builder.Default
+    private final Optional<DmxAddress> dmx = Optional.empty();
+
+}
@@ -13,11 +13,17 @@ import java.util.Optional;
 @Builder
 @Jacksonized
 public class OscAddress {
-    private Optional<String> power;
-    private Optional<String> brighnes;
-    private Optional<String> temperature;
-    private Optional<String> red;
-    private Optional<String> green;
-    private Optional<String> blue;
+    @Builder.Default
+    private Optional<String> power = Optional.empty();
+    @Builder.Default
+    private Optional<String> brighnes = Optional.empty();
+    @Builder.Default
+    private Optional<String> temperature = Optional.empty();
+    @Builder.Default
+    private Optional<String> red = Optional.empty();
+    @Builder.Default
+    private Optional<String> green = Optional.empty();
+    @Builder.Default
+    private Optional<String> blue = Optional.empty();
 
 }
@@ -0,0 +1,27 @@
+package com.github.matejonnet.osctuya.config;
+
+/**
+ * Scheduler of the commands received over OSC, see the implementations in the osc.schedulers package.
+ */
+public enum SchedulerType {
+    /**
+     * Commands are processed on the OSC receiver thread, the bulbs conflate and send them asynchronously.
+     */
+    DIRECT,
+    /**
+     * One queue and one thread for all the bulbs.
+     */
+    SINGLE_QUEUE,
+    /**
+     * Bounded queue per bulb drained by a shared pool.
+     */
+    QUEUE_PER_BULB,
+    /**
+     * Single thread executor per bulb.
+     */
+    EXECUTOR_PER_BULB,
+    /**
+     * Executor per bulb, repeats the last command repeatCommandTimes.
+     */
+    REPEATABLE_EXECUTOR_PER_BULB
+}
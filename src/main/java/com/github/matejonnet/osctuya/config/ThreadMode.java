@@ -0,0 +1,12 @@
+package com.github.matejonnet.osctuya.config;
+
+/**
+ * Threads used for the bulb sends, the connection readers and the command schedulers.
+ */
+public enum ThreadMode {
+    PLATFORM,
+    /**
+     * Requires a JDK with virtual threads (21+), falls back to platform threads when not available.
+     */
+    VIRTUAL
+}
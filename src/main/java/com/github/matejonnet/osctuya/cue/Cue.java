@@ -0,0 +1,21 @@
+package com.github.matejonnet.osctuya.cue;
+
+import com.github.matejonnet.osctuya.Bulb;
+import com.github.matejonnet.osctuya.Dps;
+
+import java.awt.*;
+
+/**
+ * A cue compiled ahead of the show: the bulbs are resolved and the DP values computed.
+ *
+ * @param atNanos from the start of the show
+ * @param color the color the COLOUR value was computed from, null when the cue does not set the color
+ */
+record Cue(long atNanos, Bulb[] bulbs, Dps dps, Color color) {
+
+    void apply() {
+        for (Bulb bulb : bulbs) {
+            bulb.apply(dps, color);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.github.matejonnet.osctuya.cue;
+
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A cue of the cue file: the DP values set on the target bulbs at a time of the show.
+ */
+@Value
+@Builder
+@Jacksonized
+public class CueConfig {
+
+    /**
+     * Millis from the start of the show.
+     */
+    private final long at;
+    /**
+     * Names of the bulbs and the groups.
+     */
+    private final List<String> targets;
+    @Builder.Default
+    private final Optional<Boolean> power = Optional.empty();
+    /**
+     * 0 - 100
+     */
+    @Builder.Default
+    private final Optional<Integer> brightness = Optional.empty();
+    /**
+     * 0 - 1000 (warm to cold)
+     */
+    @Builder.Default
+    private final Optional<Integer> temperature = Optional.empty();
+    /**
+     * RGB hex, e.g. "#ff8000".
+     */
+    @Builder.Default
+    private final Optional<String> color = Optional.empty();
+
+}
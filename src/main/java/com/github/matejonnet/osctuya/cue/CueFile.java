@@ -0,0 +1,32 @@
+package com.github.matejonnet.osctuya.cue;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.github.matejonnet.osctuya.Mapper;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Choreography played by the {@link CuePlayer}.
+ */
+@Value
+@Builder
+@Jacksonized
+public class CueFile {
+
+    private final List<CueConfig> cues;
+    /**
+     * When greater than 0, the show starts again after this many millis.
+     */
+    private final long loopMillis;
+
+    public static CueFile read(File file) throws IOException {
+        Mapper.getYaml().registerModule(new Jdk8Module());
+        return Mapper.getYaml().readValue(file, new TypeReference<>() {});
+    }
+}
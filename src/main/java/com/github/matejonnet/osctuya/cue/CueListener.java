@@ -0,0 +1,39 @@
+package com.github.matejonnet.osctuya.cue;
+
+import com.illposed.osc.OSCMessage;
+import com.illposed.osc.OSCMessageEvent;
+import com.illposed.osc.OSCMessageListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Controls the {@link CuePlayer} by OSC: [address]/play with an optional position in seconds and [address]/stop.
+ */
+public class CueListener implements OSCMessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(CueListener.class);
+
+    private final CuePlayer player;
+    private final String playAddress;
+    private final String stopAddress;
+
+    public CueListener(CuePlayer player, String address) {
+        this.player = player;
+        this.playAddress = address + "/play";
+        this.stopAddress = address + "/stop";
+    }
+
+    @Override
+    public void acceptMessage(OSCMessageEvent event) {
+        OSCMessage message = event.getMessage();
+        String address = message.getAddress();
+        if (playAddress.equals(address)) {
+            Object position = message.getArguments().isEmpty() ? null : message.getArguments().get(0);
+            float seconds = position instanceof Number number ? number.floatValue() : 0;
+            player.play(Math.round(seconds * 1000));
+        } else if (stopAddress.equals(address)) {
+            player.stop();
+            logger.info("Cues stopped.");
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.github.matejonnet.osctuya.cue;
+
+import com.github.matejonnet.osctuya.Bulb;
+import com.github.matejonnet.osctuya.DataPoint;
+import com.github.matejonnet.osctuya.Dps;
+import com.github.matejonnet.osctuya.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.*;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Plays a {@link CueFile} on the bulbs, without the console and the network jitter in the loop.
+ * The cues are compiled when the player is created: the targets are resolved and the DP values computed,
+ * at the cue time the values are only offered to the send queues of the bulbs.
+ * The player thread parks until shortly before a cue and spins for the rest, parking alone is late by up to a few millis.
+ */
+public class CuePlayer implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(CuePlayer.class);
+
+    private static final long SPIN_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Cue[] cues;
+    private final long loopNanos;
+    /**
+     * Incremented on each play and stop, a player thread runs while the generation is the one it was started with.
+     */
+    private final AtomicInteger generation = new AtomicInteger();
+    private Thread thread;
+
+    /**
+     * @param targets bulbs by the bulb and group names
+     */
+    public CuePlayer(CueFile cueFile, Map<String, List<Bulb>> targets) {
+        this.cues = compile(cueFile.getCues() == null ? List.of() : cueFile.getCues(), targets);
+        this.loopNanos = TimeUnit.MILLISECONDS.toNanos(cueFile.getLoopMillis());
+    }
+
+    static Cue[] compile(List<CueConfig> cueConfigs, Map<String, List<Bulb>> targets) {
+        List<Cue> compiled = new ArrayList<>(cueConfigs.size());
+        for (CueConfig cueConfig : cueConfigs) {
+            Set<Bulb> bulbs = new LinkedHashSet<>();
+            for (String target : cueConfig.getTargets()) {
+                List<Bulb> targetBulbs = targets.get(target);
+                if (targetBulbs == null) {
+                    logger.warn("Unknown target {} of the cue at {}ms.", target, cueConfig.getAt());
+                    continue;
+                }
+                bulbs.addAll(targetBulbs);
+            }
+            Dps dps = new Dps();
+            cueConfig.getPower().ifPresent(on -> dps.set(DataPoint.POWER, on));
+            cueConfig.getBrightness().ifPresent(percentage -> dps.set(DataPoint.BRIGHTNESS, Bulb.brightnessValue(percentage)));
+            cueConfig.getTemperature().ifPresent(relative -> dps.set(DataPoint.TEMPERATURE, Bulb.temperatureValue(relative)));
+            Color color = cueConfig.getColor().map(Color::decode).orElse(null);
+            if (color != null) {
+                dps.set(DataPoint.MODE, 1);
+                dps.set(DataPoint.COLOUR, Utils.packHsv(color.getRed(), color.getGreen(), color.getBlue()));
+            }
+            compiled.add(new Cue(TimeUnit.MILLISECONDS.toNanos(cueConfig.getAt()), bulbs.toArray(new Bulb[0]), dps, color));
+        }
+        compiled.sort(Comparator.comparingLong(Cue::atNanos));
+        return compiled.toArray(new Cue[0]);
+    }
+
+    /**
+     * Plays the show from the position, the state of the cues before the position is applied first.
+     * The current play is stopped.
+     */
+    public synchronized void play(long fromMillis) {
+        stop();
+        if (cues.length == 0) {
+            logger.warn("There are no cues to play.");
+            return;
+        }
+        int playGeneration = generation.get();
+        long fromNanos = TimeUnit.MILLISECONDS.toNanos(fromMillis);
+        if (loopNanos > 0) {
+            fromNanos %= loopNanos;
+        }
+        long from = fromNanos;
+        thread = new Thread(() -> run(playGeneration, from), "cue-player");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+        logger.info("Playing {} cues from {}ms.", cues.length, fromMillis);
+    }
+
+    public synchronized void stop() {
+        generation.incrementAndGet();
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread = null;
+        }
+    }
+
+    public synchronized boolean isPlaying() {
+        return thread != null && thread.isAlive();
+    }
+
+    private void run(int playGeneration, long fromNanos) {
+        long startedAt = System.nanoTime() - fromNanos;
+        int index = seek(fromNanos);
+        while (generation.get() == playGeneration) {
+            if (index == cues.length) {
+                if (loopNanos <= 0) {
+                    break;
+                }
+                startedAt += loopNanos;
+                index = 0;
+            }
+            Cue cue = cues[index];
+            if (!waitUntil(startedAt + cue.atNanos(), playGeneration)) {
+                break;
+            }
+            cue.apply();
+            index++;
+        }
+    }
+
+    /**
+     * Applies the state of the cues before the position, merged per bulb.
+     *
+     * @return index of the first cue at or after the position
+     */
+    private int seek(long positionNanos) {
+        Map<Bulb, Dps> states = new LinkedHashMap<>();
+        Map<Bulb, Color> colors = new LinkedHashMap<>();
+        int index = 0;
+        for (; index < cues.length && cues[index].atNanos() < positionNanos; index++) {
+            Cue cue = cues[index];
+            for (Bulb bulb : cue.bulbs()) {
+                states.computeIfAbsent(bulb, b -> new Dps()).merge(cue.dps());
+                if (cue.color() != null) {
+                    colors.put(bulb, cue.color());
+                }
+            }
+        }
+        states.forEach((bulb, dps) -> bulb.apply(dps, colors.get(bulb)));
+        return index;
+    }
+
+    /**
+     * @return false when the play was stopped
+     */
+    private boolean waitUntil(long nanoTime, int playGeneration) {
+        while (generation.get() == playGeneration) {
+            long remaining = nanoTime - System.nanoTime();
+            if (remaining <= 0) {
+                return true;
+            }
+            if (remaining > SPIN_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_NANOS);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return number of compiled cues
+     */
+    public int size() {
+        return cues.length;
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+}
@@ -0,0 +1,24 @@
+package com.github.matejonnet.osctuya.dmx;
+
+/**
+ * Universe and channel levels of the last received packet, reused for every packet.
+ */
+final class DmxFrame {
+
+    static final int CHANNELS = 512;
+
+    /**
+     * False for the valid packets which do not carry the DMX levels: polls, preview data, alternate start codes.
+     */
+    boolean dmx;
+    int universe;
+    /**
+     * Sequence number 0 - 255 or -1 when the sender does not number the packets.
+     */
+    int sequence;
+    /**
+     * Number of channels received, the following channels are unchanged.
+     */
+    int length;
+    final byte[] data = new byte[CHANNELS];
+}
@@ -0,0 +1,136 @@
+package com.github.matejonnet.osctuya.dmx;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * DMX over Ethernet protocols, a packet carries up to a whole universe of 512 channels.
+ */
+public enum DmxProtocol {
+
+    /**
+     * Art-Net 4 ArtDmx packets, universes are numbered from 0 (15 bit port address).
+     */
+    ARTNET(6454, "Art-Net", 0, 0x7fff) {
+        private final byte[] id = "Art-Net\0".getBytes(StandardCharsets.US_ASCII);
+
+        @Override
+        boolean parse(ByteBuffer packet, DmxFrame frame) {
+            if (packet.remaining() < 10 || !startsWith(packet, 0, id)) {
+                return false;
+            }
+            int opCode = packet.order(ByteOrder.LITTLE_ENDIAN).getShort(8) & 0xffff;
+            packet.order(ByteOrder.BIG_ENDIAN);
+            if (opCode != OP_DMX) {
+                frame.dmx = false;
+                return true;
+            }
+            if (packet.remaining() < 18) {
+                return false;
+            }
+            int length = packet.getShort(16) & 0xffff;
+            if (length < 1 || length > DmxFrame.CHANNELS || packet.remaining() < 18 + length) {
+                return false;
+            }
+            int sequence = packet.get(12) & 0xff;
+            frame.dmx = true;
+            frame.sequence = sequence == 0 ? -1 : sequence;
+            frame.universe = (packet.get(15) & 0x7f) << 8 | packet.get(14) & 0xff;
+            frame.length = length;
+            packet.get(18, frame.data, 0, length);
+            return true;
+        }
+    },
+
+    /**
+     * ANSI E1.31 data packets, universes are numbered from 1.
+     */
+    SACN(5568, "sACN", 1, 63999) {
+        private final byte[] id = "ASC-E1.17\0\0\0".getBytes(StandardCharsets.US_ASCII);
+
+        @Override
+        boolean parse(ByteBuffer packet, DmxFrame frame) {
+            if (packet.remaining() < 126 || packet.getShort(0) != 0x0010 || !startsWith(packet, 4, id)
+                    || packet.getInt(18) != VECTOR_ROOT_E131_DATA || packet.getInt(40) != VECTOR_E131_DATA_PACKET
+                    || packet.get(117) != VECTOR_DMP_SET_PROPERTY || (packet.get(118) & 0xff) != 0xa1) {
+                return false;
+            }
+            int count = packet.getShort(123) & 0xffff;
+            if (count < 1 || count > DmxFrame.CHANNELS + 1 || packet.remaining() < 125 + count) {
+                return false;
+            }
+            int options = packet.get(112);
+            frame.dmx = (options & (OPTION_PREVIEW | OPTION_TERMINATED)) == 0 && packet.get(125) == 0;
+            frame.sequence = packet.get(111) & 0xff;
+            frame.universe = packet.getShort(113) & 0xffff;
+            frame.length = count - 1;
+            packet.get(126, frame.data, 0, count - 1);
+            return true;
+        }
+    };
+
+    private static final int OP_DMX = 0x5000;
+    private static final int VECTOR_ROOT_E131_DATA = 0x00000004;
+    private static final int VECTOR_E131_DATA_PACKET = 0x00000002;
+    private static final byte VECTOR_DMP_SET_PROPERTY = 0x02;
+    private static final int OPTION_PREVIEW = 0x80;
+    private static final int OPTION_TERMINATED = 0x40;
+
+    private final int defaultPort;
+    private final String label;
+    private final int minUniverse;
+    private final int maxUniverse;
+
+    DmxProtocol(int defaultPort, String label, int minUniverse, int maxUniverse) {
+        this.defaultPort = defaultPort;
+        this.label = label;
+        this.minUniverse = minUniverse;
+        this.maxUniverse = maxUniverse;
+    }
+
+    public int getDefaultPort() {
+        return defaultPort;
+    }
+
+    /**
+     * A universe out of the range is never received, for sACN it would join an invalid multicast group.
+     *
+     * @param owner bulb or group the universe is configured for, used in the error message
+     * @throws IllegalArgumentException when the protocol has no such universe
+     */
+    public void checkUniverse(int universe, String owner) {
+        if (universe < minUniverse || universe > maxUniverse) {
+            throw new IllegalArgumentException(label + " universe of " + owner + " must be " + minUniverse + " - " + maxUniverse
+                    + ", not " + universe + ".");
+        }
+    }
+
+    /**
+     * Reads the packet from position 0 to the limit into the frame, the frame is only valid when true is returned.
+     *
+     * @return false when the packet is not a packet of the protocol or it is malformed
+     */
+    abstract boolean parse(ByteBuffer packet, DmxFrame frame);
+
+    /**
+     * @return multicast group of the sACN universe, 239.255.[universe high byte].[universe low byte]
+     */
+    public static InetAddress sacnMulticastGroup(int universe) throws UnknownHostException {
+        return InetAddress.getByAddress(new byte[] {(byte) 239, (byte) 255, (byte) (universe >> 8), (byte) universe});
+    }
+
+    private static boolean startsWith(ByteBuffer packet, int offset, byte[] id) {
+        if (packet.remaining() < offset + id.length) {
+            return false;
+        }
+        for (int i = 0; i < id.length; i++) {
+            if (packet.get(offset + i) != id[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,105 @@
+package com.github.matejonnet.osctuya.dmx;
+
+import com.github.matejonnet.osctuya.metrics.DmxMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * Receives the Art-Net or sACN packets on a dedicated thread, one packet updates a whole universe.
+ * The receive buffer and the frame are reused, a packet allocates only the commands of the changed channels.
+ */
+public class DmxReceiver implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(DmxReceiver.class);
+
+    private static final int MAX_PACKET = 1024;
+
+    private final DmxProtocol protocol;
+    private final DmxRouter router;
+    private final DmxMetrics metrics;
+    private final DatagramChannel channel;
+    private final Thread thread;
+
+    /**
+     * @param multicastInterface name of the network interface joining the sACN multicast groups of the routed universes, null for unicast only
+     */
+    public DmxReceiver(DmxProtocol protocol, InetSocketAddress bindAddress, String multicastInterface, DmxRouter router, DmxMetrics metrics)
+            throws IOException {
+        this.protocol = protocol;
+        this.router = router;
+        this.metrics = metrics;
+        channel = DatagramChannel.open(StandardProtocolFamily.INET);
+        try {
+            channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            channel.bind(bindAddress);
+            if (protocol == DmxProtocol.SACN && multicastInterface != null) {
+                NetworkInterface networkInterface = NetworkInterface.getByName(multicastInterface);
+                if (networkInterface == null) {
+                    throw new IOException("Unknown network interface " + multicastInterface + ".");
+                }
+                for (int universe : router.getUniverses()) {
+                    channel.join(DmxProtocol.sacnMulticastGroup(universe), networkInterface);
+                }
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        thread = new Thread(this::receive, "dmx-" + protocol.name().toLowerCase());
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("Receiving {} universes {} on {}.", protocol, router.getUniverses(), channel.getLocalAddress());
+    }
+
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) channel.getLocalAddress()).getPort();
+    }
+
+    private void receive() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(MAX_PACKET);
+        DmxFrame frame = new DmxFrame();
+        while (channel.isOpen()) {
+            buffer.clear();
+            try {
+                channel.receive(buffer);
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                logger.warn("Cannot receive {} packet.", protocol, e);
+                continue;
+            }
+            buffer.flip();
+            long receivedAt = System.nanoTime();
+            metrics.packetReceived();
+            try {
+                if (!protocol.parse(buffer, frame)) {
+                    metrics.packetInvalid();
+                    continue;
+                }
+                router.accept(frame, receivedAt);
+            } catch (Throwable e) {
+                logger.error("Failed to handle {} packet.", protocol, e);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.github.matejonnet.osctuya.dmx;
+
+import com.github.matejonnet.osctuya.Bulb;
+import com.github.matejonnet.osctuya.osc.TuyaCommand;
+
+/**
+ * DMX channel mapped to a bulb command.
+ *
+ * @param channel 1 - 512
+ */
+public record DmxRoute(int universe, int channel, Bulb bulb, TuyaCommand command) {
+
+    public DmxRoute {
+        if (channel < 1 || channel > DmxFrame.CHANNELS) {
+            throw new IllegalArgumentException("DMX channel of bulb " + bulb.getName() + " must be 1 - 512, not " + channel + ".");
+        }
+    }
+}
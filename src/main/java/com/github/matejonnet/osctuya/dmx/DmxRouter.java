@@ -0,0 +1,98 @@
+package com.github.matejonnet.osctuya.dmx;
+
+import com.github.matejonnet.osctuya.metrics.DmxMetrics;
+import com.github.matejonnet.osctuya.osc.BulbCommand;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Routes the DMX channels to the bulb commands, only the channels which changed since the previous packet of the universe are passed on.
+ * The consoles re-send the whole universe many times per second, most of the channels do not change.
+ * Not thread safe, used by the single receiver thread.
+ */
+public class DmxRouter {
+
+    /**
+     * Packets received up to this many sequence numbers behind the last one are late, older ones mean the sender restarted.
+     */
+    private static final int SEQUENCE_WINDOW = 20;
+
+    private final Map<Integer, Universe> universes = new HashMap<>();
+    private final Consumer<BulbCommand> onCommand;
+    private final DmxMetrics metrics;
+
+    public DmxRouter(Collection<DmxRoute> routes, Consumer<BulbCommand> onCommand, DmxMetrics metrics) {
+        this.onCommand = onCommand;
+        this.metrics = metrics;
+        Map<Integer, List<DmxRoute>> byUniverse = new HashMap<>();
+        for (DmxRoute route : routes) {
+            byUniverse.computeIfAbsent(route.universe(), k -> new ArrayList<>()).add(route);
+        }
+        byUniverse.forEach((universe, universeRoutes) -> {
+            universeRoutes.sort(Comparator.comparingInt(DmxRoute::channel));
+            universes.put(universe, new Universe(universeRoutes.toArray(new DmxRoute[0])));
+        });
+    }
+
+    /**
+     * @return the universes with at least one mapped channel
+     */
+    public Set<Integer> getUniverses() {
+        return universes.keySet();
+    }
+
+    void accept(DmxFrame frame, long receivedAt) {
+        if (!frame.dmx) {
+            return;
+        }
+        Universe universe = universes.get(frame.universe);
+        if (universe == null) {
+            return;
+        }
+        if (universe.known > 0 && frame.sequence >= 0 && universe.sequence >= 0) {
+            int behind = (byte) (universe.sequence - frame.sequence);
+            if (behind >= 0 && behind < SEQUENCE_WINDOW) {
+                metrics.packetOutOfOrder();
+                return;
+            }
+        }
+        int changed = 0;
+        for (DmxRoute route : universe.routes) {
+            int index = route.channel() - 1;
+            if (index >= frame.length) {
+                break;
+            }
+            byte value = frame.data[index];
+            if (index < universe.known && value == universe.levels[index]) {
+                continue;
+            }
+            onCommand.accept(new BulbCommand(route.bulb(), route.command(), BulbCommand.level(value & 0xff), receivedAt));
+            changed++;
+        }
+        System.arraycopy(frame.data, 0, universe.levels, 0, frame.length);
+        universe.known = Math.max(universe.known, frame.length);
+        universe.sequence = frame.sequence;
+        metrics.channelsChanged(changed);
+    }
+
+    private static class Universe {
+        private final DmxRoute[] routes;
+        private final byte[] levels = new byte[DmxFrame.CHANNELS];
+        /**
+         * Number of leading channels with a received level, the other channels are sent when they are first received.
+         */
+        private int known;
+        private int sequence = -1;
+
+        private Universe(DmxRoute[] routes) {
+            this.routes = routes;
+        }
+    }
+}
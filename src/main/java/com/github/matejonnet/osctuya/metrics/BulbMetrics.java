@@ -0,0 +1,123 @@
+package com.github.matejonnet.osctuya.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms of the pipeline of one bulb, from the OSC message to the socket write.
+ *
+ * Stages: the scheduler (OSC message received until the command is processed), the send queue
+ * (oldest command of a frame until the frame is encoded), the encoding and the write.
+ * The OSC to write latency covers the whole pipeline for the oldest command of each frame.
+ */
+public class BulbMetrics {
+
+    private final LongAdder commandsReceived = new LongAdder();
+    private final LongAdder commandsSuppressed = new LongAdder();
+    private final LongAdder framesSent = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder writeErrors = new LongAdder();
+    private final LongAdder reconnects = new LongAdder();
+    private final LongAdder reconnectFailures = new LongAdder();
+
+    private final LatencyHistogram schedulerLatency = new LatencyHistogram();
+    private final LatencyHistogram queueLatency = new LatencyHistogram();
+    private final LatencyHistogram encodeLatency = new LatencyHistogram();
+    private final LatencyHistogram writeLatency = new LatencyHistogram();
+    private final LatencyHistogram oscToWriteLatency = new LatencyHistogram();
+    private final LatencyHistogram reconnectDuration = new LatencyHistogram();
+    private final LatencyHistogram ackRoundTrip = new LatencyHistogram();
+
+    public void commandReceived() {
+        commandsReceived.increment();
+    }
+
+    /**
+     * @param count number of DP values not sent because the bulb already has them
+     */
+    public void commandsSuppressed(int count) {
+        commandsSuppressed.add(count);
+    }
+
+    /**
+     * @param enqueuedAt nano time of the oldest command of the frame, 0 when unknown
+     */
+    public void frameSent(int bytes, long enqueuedAt, long encodeStartedAt, long writeStartedAt, long writtenAt) {
+        framesSent.increment();
+        bytesSent.add(bytes);
+        encodeLatency.record(writeStartedAt - encodeStartedAt);
+        writeLatency.record(writtenAt - writeStartedAt);
+        if (enqueuedAt != 0) {
+            queueLatency.record(encodeStartedAt - enqueuedAt);
+            oscToWriteLatency.record(writtenAt - enqueuedAt);
+        }
+    }
+
+    public void writeFailed() {
+        writeErrors.increment();
+    }
+
+    public void reconnected(long durationNanos) {
+        reconnects.increment();
+        reconnectDuration.record(durationNanos);
+    }
+
+    public void reconnectFailed() {
+        reconnectFailures.increment();
+    }
+
+    public long getCommandsReceived() {
+        return commandsReceived.sum();
+    }
+
+    public long getCommandsSuppressed() {
+        return commandsSuppressed.sum();
+    }
+
+    public long getFramesSent() {
+        return framesSent.sum();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    public long getWriteErrors() {
+        return writeErrors.sum();
+    }
+
+    public long getReconnects() {
+        return reconnects.sum();
+    }
+
+    public long getReconnectFailures() {
+        return reconnectFailures.sum();
+    }
+
+    public LatencyHistogram getSchedulerLatency() {
+        return schedulerLatency;
+    }
+
+    public LatencyHistogram getQueueLatency() {
+        return queueLatency;
+    }
+
+    public LatencyHistogram getEncodeLatency() {
+        return encodeLatency;
+    }
+
+    public LatencyHistogram getWriteLatency() {
+        return writeLatency;
+    }
+
+    public LatencyHistogram getOscToWriteLatency() {
+        return oscToWriteLatency;
+    }
+
+    public LatencyHistogram getReconnectDuration() {
+        return reconnectDuration;
+    }
+
+    public LatencyHistogram getAckRoundTrip() {
+        return ackRoundTrip;
+    }
+}
@@ -0,0 +1,47 @@
+package com.github.matejonnet.osctuya.metrics;
+
+/**
+ * Metrics of a bulb exposed over JMX, the latencies are in microseconds.
+ */
+public interface BulbMetricsMXBean {
+
+    boolean isConnected();
+
+    long getCommandsReceived();
+
+    long getCommandsConflated();
+
+    long getCommandsSuppressed();
+
+    long getCommandsDropped();
+
+    long getFramesSent();
+
+    long getFramesAcknowledged();
+
+    long getBytesSent();
+
+    long getWriteErrors();
+
+    long getReconnects();
+
+    long getReconnectFailures();
+
+    int getQueueDepth();
+
+    int getInFlight();
+
+    double getFrameRate();
+
+    long getOscToWriteP50Micros();
+
+    long getOscToWriteP99Micros();
+
+    long getOscToWriteP999Micros();
+
+    long getQueueP99Micros();
+
+    long getWriteP99Micros();
+
+    long getAckRoundTripP99Micros();
+}
@@ -0,0 +1,123 @@
+package com.github.matejonnet.osctuya.metrics;
+
+import com.github.matejonnet.osctuya.Bulb;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link BulbMetricsMXBean} of a bulb, combines the pipeline metrics with the state of the bulb.
+ */
+public class BulbMetricsView implements BulbMetricsMXBean {
+
+    private final Bulb bulb;
+    private final BulbMetrics metrics;
+
+    public BulbMetricsView(Bulb bulb) {
+        this.bulb = bulb;
+        this.metrics = bulb.getMetrics();
+    }
+
+    @Override
+    public boolean isConnected() {
+        return bulb.isConnected();
+    }
+
+    @Override
+    public long getCommandsReceived() {
+        return metrics.getCommandsReceived();
+    }
+
+    @Override
+    public double getFrameRate() {
+        return bulb.getFrameRate();
+    }
+
+    @Override
+    public long getCommandsSuppressed() {
+        return metrics.getCommandsSuppressed();
+    }
+
+    @Override
+    public long getCommandsConflated() {
+        return bulb.getConflatedCommands();
+    }
+
+    @Override
+    public long getCommandsDropped() {
+        return bulb.getDroppedCommands();
+    }
+
+    @Override
+    public long getFramesSent() {
+        return metrics.getFramesSent();
+    }
+
+    @Override
+    public long getFramesAcknowledged() {
+        return bulb.getAcknowledgedCommands();
+    }
+
+    @Override
+    public long getBytesSent() {
+        return metrics.getBytesSent();
+    }
+
+    @Override
+    public long getWriteErrors() {
+        return metrics.getWriteErrors();
+    }
+
+    @Override
+    public long getReconnects() {
+        return metrics.getReconnects();
+    }
+
+    @Override
+    public long getReconnectFailures() {
+        return metrics.getReconnectFailures();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return bulb.getQueueDepth();
+    }
+
+    @Override
+    public int getInFlight() {
+        return bulb.getInFlightCommands();
+    }
+
+    @Override
+    public long getOscToWriteP50Micros() {
+        return micros(metrics.getOscToWriteLatency(), 0.5);
+    }
+
+    @Override
+    public long getOscToWriteP99Micros() {
+        return micros(metrics.getOscToWriteLatency(), 0.99);
+    }
+
+    @Override
+    public long getOscToWriteP999Micros() {
+        return micros(metrics.getOscToWriteLatency(), 0.999);
+    }
+
+    @Override
+    public long getQueueP99Micros() {
+        return micros(metrics.getQueueLatency(), 0.99);
+    }
+
+    @Override
+    public long getWriteP99Micros() {
+        return micros(metrics.getWriteLatency(), 0.99);
+    }
+
+    @Override
+    public long getAckRoundTripP99Micros() {
+        return micros(metrics.getAckRoundTrip(), 0.99);
+    }
+
+    private static long micros(LatencyHistogram histogram, double quantile) {
+        return TimeUnit.NANOSECONDS.toMicros(histogram.getValueAtQuantile(quantile));
+    }
+}
@@ -0,0 +1,33 @@
+package com.github.matejonnet.osctuya.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event. A connection or reconnection attempt to a bulb.
+ */
+@Name("com.github.matejonnet.osctuya.Connect")
+@Label("Connect")
+@Description("A connection or reconnection attempt to a bulb.")
+@Category({"OSC Tuya", "Connection"})
+@StackTrace(false)
+public class ConnectEvent extends Event {
+
+    @Label("Bulb")
+    public String bulb;
+
+    @Label("Reconnect")
+    public boolean reconnect;
+
+    @Label("Success")
+    public boolean success;
+
+    @Timespan(Timespan.MILLISECONDS)
+    @Label("Timeout")
+    public int timeout;
+}
@@ -0,0 +1,36 @@
+package com.github.matejonnet.osctuya.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event. A frame taken from the send queue of a bulb.
+ */
+@Name("com.github.matejonnet.osctuya.Dequeue")
+@Label("Dequeue")
+@Description("A frame taken from the send queue of a bulb.")
+@Category({"OSC Tuya", "Bulb"})
+@StackTrace(false)
+public class DequeueEvent extends Event {
+
+    @Label("Bulb")
+    public String bulb;
+
+    @Label("Sequence")
+    public int sequence;
+
+    @Label("DPs")
+    public String dps;
+
+    @Timespan
+    @Label("Queued")
+    public long queued;
+
+    @Label("Queue Depth")
+    public int queueDepth;
+}
@@ -0,0 +1,46 @@
+package com.github.matejonnet.osctuya.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the Art-Net and sACN ingress, shared by all the bulbs.
+ */
+public class DmxMetrics {
+
+    private final LongAdder packetsReceived = new LongAdder();
+    private final LongAdder packetsInvalid = new LongAdder();
+    private final LongAdder packetsOutOfOrder = new LongAdder();
+    private final LongAdder channelsChanged = new LongAdder();
+
+    public void packetReceived() {
+        packetsReceived.increment();
+    }
+
+    public void packetInvalid() {
+        packetsInvalid.increment();
+    }
+
+    public void packetOutOfOrder() {
+        packetsOutOfOrder.increment();
+    }
+
+    public void channelsChanged(int channels) {
+        channelsChanged.add(channels);
+    }
+
+    public long getPacketsReceived() {
+        return packetsReceived.sum();
+    }
+
+    public long getPacketsInvalid() {
+        return packetsInvalid.sum();
+    }
+
+    public long getPacketsOutOfOrder() {
+        return packetsOutOfOrder.sum();
+    }
+
+    public long getChannelsChanged() {
+        return channelsChanged.sum();
+    }
+}
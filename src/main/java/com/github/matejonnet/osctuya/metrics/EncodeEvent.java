@@ -0,0 +1,25 @@
+package com.github.matejonnet.osctuya.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event. Encoding and encryption of a frame.
+ */
+@Name("com.github.matejonnet.osctuya.Encode")
+@Label("Encode")
+@Description("Encoding and encryption of a frame.")
+@Category({"OSC Tuya", "Bulb"})
+@StackTrace(false)
+public class EncodeEvent extends Event {
+
+    @Label("Bulb")
+    public String bulb;
+
+    @Label("Sequence")
+    public int sequence;
+}
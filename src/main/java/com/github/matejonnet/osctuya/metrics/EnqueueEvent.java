@@ -0,0 +1,25 @@
+package com.github.matejonnet.osctuya.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event. A command applied to a bulb and offered to its send queue.
+ */
+@Name("com.github.matejonnet.osctuya.Enqueue")
+@Label("Enqueue")
+@Description("A command applied to a bulb and offered to its send queue.")
+@Category({"OSC Tuya", "Bulb"})
+@StackTrace(false)
+public class EnqueueEvent extends Event {
+
+    @Label("Bulb")
+    public String bulb;
+
+    @Label("Command")
+    public String command;
+}
@@ -0,0 +1,187 @@
+package com.github.matejonnet.osctuya.metrics;
+
+import com.github.matejonnet.osctuya.Bulb;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Exposes the metrics of the bulbs as JMX MBeans and in the Prometheus text format on http://host:port/metrics.
+ */
+public class MetricsExporter implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsExporter.class);
+
+    private static final String DOMAIN = "com.github.matejonnet.osctuya";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final Collection<Bulb> bulbs;
+    private final OscMetrics oscMetrics;
+    private final DmxMetrics dmxMetrics;
+    private final List<ObjectName> registered = new ArrayList<>();
+    private HttpServer httpServer;
+
+    public MetricsExporter(Collection<Bulb> bulbs, OscMetrics oscMetrics) {
+        this(bulbs, oscMetrics, new DmxMetrics());
+    }
+
+    public MetricsExporter(Collection<Bulb> bulbs, OscMetrics oscMetrics, DmxMetrics dmxMetrics) {
+        this.bulbs = bulbs;
+        this.oscMetrics = oscMetrics;
+        this.dmxMetrics = dmxMetrics;
+    }
+
+    /**
+     * Registers an MBean per bulb: com.github.matejonnet.osctuya:type=Bulb,name=[bulb name].
+     */
+    public void registerMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (Bulb bulb : bulbs) {
+            try {
+                ObjectName name = new ObjectName(DOMAIN + ":type=Bulb,name=" + ObjectName.quote(bulb.getName()));
+                server.registerMBean(new BulbMetricsView(bulb), name);
+                registered.add(name);
+            } catch (JMException e) {
+                logger.warn("Cannot register metrics MBean of bulb {}.", bulb.getName(), e);
+            }
+        }
+    }
+
+    public void startHttp(String host, int port) throws IOException {
+        httpServer = HttpServer.create(new InetSocketAddress(host, port), 0);
+        httpServer.setExecutor(Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-http");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        httpServer.createContext("/metrics", exchange -> {
+            byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        httpServer.start();
+        logger.info("Metrics available on http://{}:{}/metrics.", host, getHttpPort());
+    }
+
+    public int getHttpPort() {
+        return httpServer.getAddress().getPort();
+    }
+
+    /**
+     * @return all the metrics in the Prometheus text exposition format
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        counter(out, "osctuya_osc_messages_received_total", oscMetrics.getMessagesReceived());
+        counter(out, "osctuya_osc_messages_unmapped_total", oscMetrics.getMessagesUnmapped());
+        counter(out, "osctuya_osc_messages_failed_total", oscMetrics.getMessagesFailed());
+        counter(out, "osctuya_osc_bundles_received_total", oscMetrics.getBundlesReceived());
+        counter(out, "osctuya_osc_bundles_late_total", oscMetrics.getBundlesLate());
+        counter(out, "osctuya_dmx_packets_received_total", dmxMetrics.getPacketsReceived());
+        counter(out, "osctuya_dmx_packets_invalid_total", dmxMetrics.getPacketsInvalid());
+        counter(out, "osctuya_dmx_packets_out_of_order_total", dmxMetrics.getPacketsOutOfOrder());
+        counter(out, "osctuya_dmx_channels_changed_total", dmxMetrics.getChannelsChanged());
+
+        gauge(out, "osctuya_bulb_connected", bulb -> bulb.isConnected() ? 1 : 0);
+        gauge(out, "osctuya_bulb_queue_depth", Bulb::getQueueDepth);
+        gauge(out, "osctuya_bulb_in_flight", Bulb::getInFlightCommands);
+        gauge(out, "osctuya_bulb_frame_rate", bulb -> Math.round(bulb.getFrameRate()));
+        counter(out, "osctuya_bulb_commands_received_total", bulb -> bulb.getMetrics().getCommandsReceived());
+        counter(out, "osctuya_bulb_commands_conflated_total", Bulb::getConflatedCommands);
+        counter(out, "osctuya_bulb_commands_dropped_total", Bulb::getDroppedCommands);
+        counter(out, "osctuya_bulb_commands_suppressed_total", bulb -> bulb.getMetrics().getCommandsSuppressed());
+        counter(out, "osctuya_bulb_frames_sent_total", bulb -> bulb.getMetrics().getFramesSent());
+        counter(out, "osctuya_bulb_frames_acknowledged_total", Bulb::getAcknowledgedCommands);
+        counter(out, "osctuya_bulb_bytes_sent_total", bulb -> bulb.getMetrics().getBytesSent());
+        counter(out, "osctuya_bulb_write_errors_total", bulb -> bulb.getMetrics().getWriteErrors());
+        counter(out, "osctuya_bulb_reconnects_total", bulb -> bulb.getMetrics().getReconnects());
+        counter(out, "osctuya_bulb_reconnect_failures_total", bulb -> bulb.getMetrics().getReconnectFailures());
+
+        summary(out, "osctuya_bulb_scheduler_latency_seconds", BulbMetrics::getSchedulerLatency);
+        summary(out, "osctuya_bulb_queue_latency_seconds", BulbMetrics::getQueueLatency);
+        summary(out, "osctuya_bulb_encode_latency_seconds", BulbMetrics::getEncodeLatency);
+        summary(out, "osctuya_bulb_write_latency_seconds", BulbMetrics::getWriteLatency);
+        summary(out, "osctuya_bulb_osc_to_write_latency_seconds", BulbMetrics::getOscToWriteLatency);
+        summary(out, "osctuya_bulb_reconnect_duration_seconds", BulbMetrics::getReconnectDuration);
+        summary(out, "osctuya_bulb_ack_round_trip_seconds", BulbMetrics::getAckRoundTrip);
+        return out.toString();
+    }
+
+    private void counter(StringBuilder out, String name, long value) {
+        out.append("# TYPE ").append(name).append(" counter\n");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private void counter(StringBuilder out, String name, ToLongFunction<Bulb> value) {
+        perBulb(out, name, "counter", value);
+    }
+
+    private void gauge(StringBuilder out, String name, ToLongFunction<Bulb> value) {
+        perBulb(out, name, "gauge", value);
+    }
+
+    private void perBulb(StringBuilder out, String name, String type, ToLongFunction<Bulb> value) {
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        for (Bulb bulb : bulbs) {
+            out.append(name).append("{bulb=\"").append(escape(bulb.getName())).append("\"} ").append(value.applyAsLong(bulb)).append('\n');
+        }
+    }
+
+    private void summary(StringBuilder out, String name, Function<BulbMetrics, LatencyHistogram> histogramOf) {
+        out.append("# TYPE ").append(name).append(" summary\n");
+        for (Bulb bulb : bulbs) {
+            LatencyHistogram histogram = histogramOf.apply(bulb.getMetrics());
+            String label = "bulb=\"" + escape(bulb.getName()) + "\"";
+            for (double quantile : QUANTILES) {
+                out.append(name).append('{').append(label).append(",quantile=\"").append(quantile).append("\"} ")
+                        .append(seconds(histogram.getValueAtQuantile(quantile))).append('\n');
+            }
+            out.append(name).append("_sum{").append(label).append("} ").append(seconds(histogram.getSum())).append('\n');
+            out.append(name).append("_count{").append(label).append("} ").append(histogram.getCount()).append('\n');
+        }
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+
+    private static String escape(String label) {
+        return label.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    @Override
+    public void close() {
+        if (httpServer != null) {
+            httpServer.stop(0);
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registered) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException e) {
+                logger.debug("Cannot unregister {}.", name);
+            }
+        }
+        registered.clear();
+    }
+}
@@ -0,0 +1,58 @@
+package com.github.matejonnet.osctuya.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the OSC ingress, shared by all the bulbs.
+ */
+public class OscMetrics {
+
+    private final LongAdder messagesReceived = new LongAdder();
+    private final LongAdder messagesUnmapped = new LongAdder();
+    private final LongAdder messagesFailed = new LongAdder();
+    private final LongAdder bundlesReceived = new LongAdder();
+    private final LongAdder bundlesLate = new LongAdder();
+
+    public void messageReceived() {
+        messagesReceived.increment();
+    }
+
+    public void messageUnmapped() {
+        messagesUnmapped.increment();
+    }
+
+    public void messageFailed() {
+        messagesFailed.increment();
+    }
+
+    public void bundleReceived() {
+        bundlesReceived.increment();
+    }
+
+    public void bundleLate() {
+        bundlesLate.increment();
+    }
+
+    public long getMessagesReceived() {
+        return messagesReceived.sum();
+    }
+
+    public long getMessagesUnmapped() {
+        return messagesUnmapped.sum();
+    }
+
+    public long getMessagesFailed() {
+        return messagesFailed.sum();
+    }
+
+    public long getBundlesReceived() {
+        return bundlesReceived.sum();
+    }
+
+    /**
+     * Bundles received after their time tag, applied immediately.
+     */
+    public long getBundlesLate() {
+        return bundlesLate.sum();
+    }
+}
@@ -0,0 +1,25 @@
+package com.github.matejonnet.osctuya.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event. An OSC message handled by the listener, from receipt to the hand-off of its commands.
+ */
+@Name("com.github.matejonnet.osctuya.OscReceive")
+@Label("OSC Receive")
+@Description("An OSC message handled by the listener, from receipt to the hand-off of its commands.")
+@Category({"OSC Tuya", "OSC"})
+@StackTrace(false)
+public class OscReceiveEvent extends Event {
+
+    @Label("Address")
+    public String address;
+
+    @Label("Routes")
+    public int routes;
+}
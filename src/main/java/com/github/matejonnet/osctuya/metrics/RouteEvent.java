@@ -0,0 +1,25 @@
+package com.github.matejonnet.osctuya.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event. Lookup of the bulbs and commands mapped to an OSC address.
+ */
+@Name("com.github.matejonnet.osctuya.Route")
+@Label("Route")
+@Description("Lookup of the bulbs and commands mapped to an OSC address.")
+@Category({"OSC Tuya", "OSC"})
+@StackTrace(false)
+public class RouteEvent extends Event {
+
+    @Label("Address")
+    public String address;
+
+    @Label("Routes")
+    public int routes;
+}
@@ -0,0 +1,33 @@
+package com.github.matejonnet.osctuya.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event. A frame written to the bulb connection.
+ */
+@Name("com.github.matejonnet.osctuya.Write")
+@Label("Write")
+@Description("A frame written to the bulb connection.")
+@Category({"OSC Tuya", "Connection"})
+@StackTrace(false)
+public class WriteEvent extends Event {
+
+    @Label("Bulb")
+    public String bulb;
+
+    @Label("Sequence")
+    public int sequence;
+
+    @DataAmount
+    @Label("Bytes")
+    public int bytes;
+
+    @Label("Success")
+    public boolean success;
+}
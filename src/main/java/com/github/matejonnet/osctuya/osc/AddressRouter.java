@@ -0,0 +1,99 @@
+package com.github.matejonnet.osctuya.osc;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Routing table from OSC address to the bulb commands, compiled once from the bulb mappings.
+ * Lookup is a single hash lookup regardless of the number of configured bulbs.
+ * When several bulbs share the same address, the message is routed to all of them.
+ * The addresses are also indexed by their bytes, to route the OSC packets without decoding the address.
+ */
+public class AddressRouter {
+
+    private static final BulbRoute[] NO_ROUTES = new BulbRoute[0];
+
+    private final Map<String, BulbRoute[]> routes;
+    /**
+     * Open addressing table of the address bytes, with linear probing.
+     */
+    private final byte[][] keys;
+    private final BulbRoute[][] values;
+    private final int mask;
+
+    public AddressRouter(Collection<BulbWithAddresses> bulbsWithAddresses) {
+        Map<String, List<BulbRoute>> byAddress = new HashMap<>();
+        for (BulbWithAddresses bulbWithAddresses : bulbsWithAddresses) {
+            for (CommandMapping mapping : bulbWithAddresses.getMappings()) {
+                byAddress.computeIfAbsent(mapping.address(), k -> new ArrayList<>())
+                        .add(new BulbRoute(bulbWithAddresses.getBulb(), mapping.command()));
+            }
+        }
+        routes = new HashMap<>(byAddress.size() * 2);
+        byAddress.forEach((address, bulbRoutes) -> routes.put(address, bulbRoutes.toArray(NO_ROUTES)));
+
+        int capacity = Integer.highestOneBit(Math.max(routes.size(), 1) * 4 - 1) << 1;
+        keys = new byte[capacity][];
+        values = new BulbRoute[capacity][];
+        mask = capacity - 1;
+        routes.forEach((address, bulbRoutes) -> {
+            byte[] key = address.getBytes(StandardCharsets.UTF_8);
+            int i = hash(ByteBuffer.wrap(key), 0, key.length) & mask;
+            while (keys[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = bulbRoutes;
+        });
+    }
+
+    /**
+     * @return routes for the address, empty array when the address is not mapped. The array must not be modified.
+     */
+    public BulbRoute[] route(String address) {
+        return routes.getOrDefault(address, NO_ROUTES);
+    }
+
+    /**
+     * Routes the address in the bytes [offset, offset + length) of the packet without allocating.
+     *
+     * @return routes for the address, empty array when the address is not mapped. The array must not be modified.
+     */
+    public BulbRoute[] route(ByteBuffer packet, int offset, int length) {
+        for (int i = hash(packet, offset, length) & mask; keys[i] != null; i = (i + 1) & mask) {
+            if (matches(keys[i], packet, offset, length)) {
+                return values[i];
+            }
+        }
+        return NO_ROUTES;
+    }
+
+    private static int hash(ByteBuffer bytes, int offset, int length) {
+        int hash = 1;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + bytes.get(i);
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean matches(byte[] key, ByteBuffer packet, int offset, int length) {
+        if (key.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (key[i] != packet.get(offset + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int size() {
+        return routes.size();
+    }
+}
@@ -1,12 +1,53 @@
 package com.github.matejonnet.osctuya.osc;
 
 import com.github.matejonnet.osctuya.Bulb;
+import com.github.matejonnet.osctuya.InvalidValueException;
 
 import java.util.List;
 
 /**
+ * @param value the first OSC argument, 0 - 1, see {@link #value(List)}
+ * @param receivedAt nano time the OSC message was received
+ *
  * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
  */
-public record BulbCommand(Bulb bulb, TuyaCommand command, List<Object> arguments) {
+public record BulbCommand(Bulb bulb, TuyaCommand command, float value, long receivedAt) {
 
+    public BulbCommand(Bulb bulb, TuyaCommand command, float value) {
+        this(bulb, command, value, System.nanoTime());
+    }
+
+    /**
+     * The int and long arguments are levels, as the DMX channels.
+     */
+    public static final int MAX_LEVEL = 255;
+
+    /**
+     * @return the first OSC argument as a float: the float and double arguments as they are, the int and long arguments
+     *      are levels 0 - {@link #MAX_LEVEL} scaled to 0 - 1, true and false are 1 and 0
+     */
+    public static float value(List<Object> arguments) {
+        if (arguments.isEmpty()) {
+            throw new InvalidValueException("Missing the command argument.");
+        }
+        Object argument = arguments.get(0);
+        if (argument instanceof Integer || argument instanceof Long) {
+            return level(((Number) argument).longValue());
+        }
+        if (argument instanceof Number number) {
+            return number.floatValue();
+        }
+        if (argument instanceof Boolean bool) {
+            return bool ? 1 : 0;
+        }
+        throw new InvalidValueException("Unsupported command argument: " + argument + ".");
+    }
+
+    /**
+     * @param level 0 - {@link #MAX_LEVEL}, the values out of the range are rejected by the {@link BulbCommandProcessor}
+     * @return the level scaled to 0 - 1
+     */
+    public static float level(long level) {
+        return (float) level / MAX_LEVEL;
+    }
 }
@@ -1,6 +1,8 @@
 package com.github.matejonnet.osctuya.osc;
 
-import java.util.List;
+import com.github.matejonnet.osctuya.Bulb;
+import com.github.matejonnet.osctuya.InvalidValueException;
+import com.github.matejonnet.osctuya.metrics.EnqueueEvent;
 
 /**
  * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
@@ -8,42 +10,53 @@ import java.util.List;
 public class BulbCommandProcessor {
 
     public void process(BulbCommand bulbCommand) {
-        switch (bulbCommand.command()) {
+        process(bulbCommand.bulb(), bulbCommand.command(), bulbCommand.value(), bulbCommand.receivedAt());
+    }
+
+    /**
+     * @param value the first OSC argument, 0 - 1
+     * @throws InvalidValueException when the value is out of the range
+     */
+    public void process(Bulb bulb, TuyaCommand command, float value, long receivedAt) {
+        if (!(value >= 0 && value <= 1)) {
+            throw new InvalidValueException("Value of " + command + " must be between 0 and 1, not " + value + ".");
+        }
+        bulb.received(receivedAt);
+        EnqueueEvent event = new EnqueueEvent();
+        event.begin();
+        apply(bulb, command, value);
+        event.end();
+        if (event.shouldCommit()) {
+            event.bulb = bulb.getName();
+            event.command = command.name();
+            event.commit();
+        }
+    }
+
+    private void apply(Bulb bulb, TuyaCommand command, float value) {
+        switch (command) {
             case POWER:
-                bulbCommand.bulb().setPower(parsePower(bulbCommand.arguments()));
+                bulb.setPower(value > 0.1);
                 break;
             case BRIGHTNESS:
-                bulbCommand.bulb().setBrightness(parseBrightness(bulbCommand.arguments()));
+                bulb.setBrightness(Math.round(value * 100));
                 break;
             case TEMPERATURE:
-                bulbCommand.bulb().setTemperature(parseTemperature(bulbCommand.arguments()));
+                bulb.setTemperature(Math.round(value * 1000));
                 break;
             case RED:
-                bulbCommand.bulb().updateRed(parseColor(bulbCommand.arguments()));
+                bulb.updateRed(parseColor(value));
                 break;
             case GREEN:
-                bulbCommand.bulb().updateGreen(parseColor(bulbCommand.arguments()));
+                bulb.updateGreen(parseColor(value));
                 break;
             case BLUE:
-                bulbCommand.bulb().updateBlue(parseColor(bulbCommand.arguments()));
+                bulb.updateBlue(parseColor(value));
                 break;
         }
-
-    }
-
-    private boolean parsePower(List<Object> arguments) {
-        return (Float)arguments.get(0) > 0.1;
-    }
-
-    private int parseBrightness(List<Object> arguments) {
-        return Math.round((Float)arguments.get(0) * 100);
-    }
-
-    private int parseTemperature(List<Object> arguments) {
-        return Math.round((Float)arguments.get(0) * 1000);
     }
 
-    private int parseColor(List<Object> arguments) {
-        return Math.round(255 * (float)arguments.get(0));
+    private int parseColor(float value) {
+        return Math.round(255 * value);
     }
 }
@@ -0,0 +1,10 @@
+package com.github.matejonnet.osctuya.osc;
+
+import com.github.matejonnet.osctuya.Bulb;
+
+/**
+ * Target of a routed OSC address: the bulb and the command to apply on it.
+ */
+public record BulbRoute(Bulb bulb, TuyaCommand command) {
+
+}
@@ -2,9 +2,9 @@ package com.github.matejonnet.osctuya.osc;
 
 import com.github.matejonnet.osctuya.Bulb;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Optional;
 
 /**
  * Bulb with mapped OSC addresses and commands
@@ -27,13 +27,8 @@ public class BulbWithAddresses {
         commands.put(address, new CommandMapping(address, command));
     }
 
-    public Optional<TuyaCommand> getCommand(String address) {
-        CommandMapping commandMapping = commands.get(address);
-        if (commandMapping != null) {
-            return Optional.of(commandMapping.command());
-        } else {
-            return Optional.empty();
-        }
+    public Collection<CommandMapping> getMappings() {
+        return commands.values();
     }
 
     public Bulb getBulb() {
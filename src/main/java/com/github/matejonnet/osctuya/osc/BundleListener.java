@@ -0,0 +1,141 @@
+package com.github.matejonnet.osctuya.osc;
+
+import com.github.matejonnet.osctuya.Bulb;
+import com.github.matejonnet.osctuya.InvalidValueException;
+import com.github.matejonnet.osctuya.TimingWheel;
+import com.github.matejonnet.osctuya.metrics.OscMetrics;
+import com.illposed.osc.OSCBadDataEvent;
+import com.illposed.osc.OSCBundle;
+import com.illposed.osc.OSCMessage;
+import com.illposed.osc.OSCPacket;
+import com.illposed.osc.OSCPacketEvent;
+import com.illposed.osc.OSCPacketListener;
+import com.illposed.osc.argument.OSCTimeTag64;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies an OSC bundle as one unit. The messages of the bundle are routed and coalesced per bulb when the bundle is received,
+ * at the time tag of the bundle (or immediately when it is "now" or already passed) all the bulbs are updated in one pass,
+ * the changes of each bulb in the same frame. The bulb commands of a bundle bypass the command scheduler.
+ * <p>
+ * Wraps the OSC packet dispatcher: the single messages and the messages of a bundle which are not routed to a bulb
+ * are passed to the dispatcher.
+ */
+public class BundleListener implements OSCPacketListener {
+
+    private static final Logger log = LoggerFactory.getLogger(BundleListener.class);
+
+    private final OSCPacketListener dispatcher;
+    private final AddressRouter router;
+    private final OscMetrics metrics;
+    private final TimingWheel timer;
+    private final BulbCommandProcessor processor = new BulbCommandProcessor();
+
+    public BundleListener(OSCPacketListener dispatcher, AddressRouter router, OscMetrics metrics, TimingWheel timer) {
+        this.dispatcher = dispatcher;
+        this.router = router;
+        this.metrics = metrics;
+        this.timer = timer;
+    }
+
+    @Override
+    public void handlePacket(OSCPacketEvent event) {
+        if (event.getPacket() instanceof OSCBundle bundle) {
+            handleBundle(event.getSource(), bundle, System.nanoTime());
+        } else {
+            dispatcher.handlePacket(event);
+        }
+    }
+
+    @Override
+    public void handleBadData(OSCBadDataEvent event) {
+        dispatcher.handleBadData(event);
+    }
+
+    /**
+     * A nested bundle is a separate unit with its own time tag.
+     */
+    private void handleBundle(Object source, OSCBundle bundle, long receivedAt) {
+        metrics.bundleReceived();
+        Map<Bulb, Map<TuyaCommand, BulbCommand>> byBulb = new LinkedHashMap<>();
+        OSCBundle unrouted = null;
+        for (OSCPacket packet : bundle.getPackets()) {
+            if (packet instanceof OSCBundle nested) {
+                handleBundle(source, nested, receivedAt);
+                continue;
+            }
+            OSCMessage message = (OSCMessage) packet;
+            BulbRoute[] routes = router.route(message.getAddress());
+            if (routes.length == 0) {
+                if (unrouted == null) {
+                    unrouted = new OSCBundle(bundle.getTimestamp());
+                }
+                unrouted.addPacket(message);
+                continue;
+            }
+            metrics.messageReceived();
+            float value;
+            try {
+                value = BulbCommand.value(message.getArguments());
+            } catch (InvalidValueException e) {
+                metrics.messageFailed();
+                log.warn("Ignoring bundled message {}: {}", message.getAddress(), e.getMessage());
+                continue;
+            }
+            for (BulbRoute route : routes) {
+                byBulb.computeIfAbsent(route.bulb(), bulb -> new EnumMap<>(TuyaCommand.class))
+                        .put(route.command(), new BulbCommand(route.bulb(), route.command(), value, receivedAt));
+            }
+        }
+        if (unrouted != null) {
+            dispatcher.handlePacket(new OSCPacketEvent(source, unrouted));
+        }
+        if (byBulb.isEmpty()) {
+            return;
+        }
+        List<List<BulbCommand>> commands = new ArrayList<>(byBulb.size());
+        byBulb.values().forEach(bulbCommands -> commands.add(new ArrayList<>(bulbCommands.values())));
+        long delayNanos = delayNanos(bundle.getTimestamp());
+        if (delayNanos > 0) {
+            // the release only enqueues the DP changes, the sends are handed over to the senders
+            timer.schedule(() -> release(commands), delayNanos, TimeUnit.NANOSECONDS);
+        } else {
+            if (delayNanos < 0) {
+                metrics.bundleLate();
+            }
+            release(commands);
+        }
+    }
+
+    /**
+     * @return 0 when immediate, negative when the time tag already passed
+     */
+    private long delayNanos(OSCTimeTag64 timeTag) {
+        if (timeTag == null || timeTag.isImmediate()) {
+            return 0;
+        }
+        long delayNanos = Duration.between(Instant.now(), timeTag.toInstant()).toNanos();
+        return delayNanos == 0 ? -1 : delayNanos;
+    }
+
+    private void release(List<List<BulbCommand>> commands) {
+        for (List<BulbCommand> bulbCommands : commands) {
+            try {
+                bulbCommands.get(0).bulb().applyTogether(() -> bulbCommands.forEach(processor::process));
+            } catch (Throwable e) {
+                metrics.messageFailed();
+                log.error("Failed to apply bundle to bulb {}.", bulbCommands.get(0).bulb().getName(), e);
+            }
+        }
+    }
+}
@@ -1,5 +1,19 @@
 package com.github.matejonnet.osctuya.osc;
 
+import com.github.matejonnet.osctuya.Bulb;
+
 public interface CommandScheduler {
     void submit(BulbCommand bulbCommand);
+
+    /**
+     * Submits a command with a single value, the schedulers which apply the command on the calling thread do not allocate.
+     */
+    default void submit(Bulb bulb, TuyaCommand command, float value, long receivedAt) {
+        submit(new BulbCommand(bulb, command, value, receivedAt));
+    }
+
+    /**
+     * Stops the threads of the scheduler, the commands waiting are discarded.
+     */
+    void close();
 }
@@ -1,74 +1,166 @@
 package com.github.matejonnet.osctuya.osc;
 
 import com.github.matejonnet.osctuya.Bulb;
+import com.github.matejonnet.osctuya.BulbConnector;
+import com.github.matejonnet.osctuya.BulbExecutors;
+import com.github.matejonnet.osctuya.Connection;
 import com.github.matejonnet.osctuya.config.BulbConfig;
 import com.github.matejonnet.osctuya.config.Config;
 import com.github.matejonnet.osctuya.config.ConfigReader;
+import com.github.matejonnet.osctuya.config.DmxAddress;
+import com.github.matejonnet.osctuya.config.GroupConfig;
+import com.github.matejonnet.osctuya.config.Osc;
 import com.github.matejonnet.osctuya.config.OscAddress;
-import com.github.matejonnet.osctuya.osc.schedulers.DirectCommandScheduler;
+import com.github.matejonnet.osctuya.cue.CueFile;
+import com.github.matejonnet.osctuya.cue.CueListener;
+import com.github.matejonnet.osctuya.cue.CuePlayer;
+import com.github.matejonnet.osctuya.dmx.DmxProtocol;
+import com.github.matejonnet.osctuya.dmx.DmxReceiver;
+import com.github.matejonnet.osctuya.dmx.DmxRoute;
+import com.github.matejonnet.osctuya.dmx.DmxRouter;
+import com.github.matejonnet.osctuya.metrics.DmxMetrics;
+import com.github.matejonnet.osctuya.metrics.MetricsExporter;
+import com.github.matejonnet.osctuya.osc.schedulers.CommandSchedulers;
 import com.illposed.osc.OSCBadDataEvent;
 import com.illposed.osc.OSCBadDataListener;
-import com.illposed.osc.OSCMessageListener;
+import com.illposed.osc.OSCPacketDispatcher;
 import com.illposed.osc.messageselector.JavaRegexAddressMessageSelector;
-import com.illposed.osc.transport.OSCPortIn;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.Consumer;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
  * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
  */
-public class OSCApplication extends OSCPortIn {
+public class OSCApplication implements Closeable {
 
     private static final Logger log = LoggerFactory.getLogger(OSCApplication.class);
 
-    private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(1);
+    private final CommandScheduler commandScheduler;
 
-    public OSCApplication(Config config) throws IOException {
-        super(new InetSocketAddress(config.bindHost, config.bindPort));
+    private final Set<BulbWithAddresses> bulbsWithAddresses;
+
+    /**
+     * Enabled bulbs by name, referenced by the groups and the cues.
+     */
+    private final Map<String, BulbWithAddresses> bulbsByName;
+
+    private final MetricsExporter metricsExporter;
+
+    private final BulbConnector bulbConnector;
+
+    private final List<DmxReceiver> dmxReceivers = new ArrayList<>();
+
+    private final OscReceiver oscReceiver;
+
+    /**
+     * Null when no cue file is configured.
+     */
+    private final CuePlayer cuePlayer;
 
-        CommandScheduler commandScheduler = new DirectCommandScheduler();
+    public OSCApplication(Config config) throws IOException {
+        BulbExecutors.configure(config.threadMode);
+        commandScheduler = CommandSchedulers.create(config);
 
-        Set<BulbWithAddresses> bulbsWithAddresses = getBulbsWithAddresses(config.getBulbs(), config);
+        bulbsWithAddresses = getBulbsWithAddresses(config.getBulbs(), config);
+        bulbsByName = getBulbsByName(bulbsWithAddresses);
+        addGroupAddresses(config.getGroups(), bulbsByName);
+        // a config error fails before the receivers are started
+        List<DmxRoute> dmxRoutes = getDmxRoutes(config);
 
         Consumer<BulbCommand> onMessage = (bulbCommand) -> {
             commandScheduler.submit(bulbCommand);
         };
-        OSCMessageListener listener = new TuyaMessageListener(bulbsWithAddresses, onMessage);
+        AddressRouter router = new AddressRouter(bulbsWithAddresses);
+        TuyaMessageListener listener = new TuyaMessageListener(router, onMessage);
+        OSCPacketDispatcher dispatcher = new OSCPacketDispatcher();
+        // the bundles are applied by the bundle listener, the other packets are passed to the dispatcher
+        BundleListener bundleListener = new BundleListener(dispatcher, router, listener.getMetrics(), BulbExecutors.timer());
         // select all messages
-        getDispatcher().addListener(new JavaRegexAddressMessageSelector(".*"), listener);
+        dispatcher.addListener(new JavaRegexAddressMessageSelector(".*"), listener);
+        if (config.cueFile != null) {
+            cuePlayer = new CuePlayer(CueFile.read(new File(config.cueFile)), getTargets(bulbsByName, config.getGroups()));
+            dispatcher.addListener(new JavaRegexAddressMessageSelector(Pattern.quote(config.cueAddress) + "/.*"),
+                    new CueListener(cuePlayer, config.cueAddress));
+            log.info("Loaded {} cues from {}.", cuePlayer.size(), config.cueFile);
+        } else {
+            cuePlayer = null;
+        }
         // log errors to console
-        getDispatcher().addBadDataListener(new PrintBadDataListener());
+        dispatcher.addBadDataListener(new PrintBadDataListener());
         // never stop listening
-        setResilient(true);
-        setDaemonListener(false);
-        startListening();
-        log.info("# Listening for OSC Packets via {} ...", getTransport());
-
-        bulbsWithAddresses.stream().forEach(bulbWithAddresses -> {
-            try {
-                bulbWithAddresses.getBulb().connect();
-            } catch (IOException e) {
-                log.error("Cannot connect bulb {}.", bulbWithAddresses.getBulb().getName());
-            }
-        });
+        DmxMetrics dmxMetrics = new DmxMetrics();
+        metricsExporter = new MetricsExporter(
+                bulbsWithAddresses.stream().map(BulbWithAddresses::getBulb).collect(Collectors.toList()),
+                listener.getMetrics(),
+                dmxMetrics);
+        metricsExporter.registerMBeans();
+        if (config.metricsPort > 0) {
+            metricsExporter.startHttp(config.metricsHost, config.metricsPort);
+        }
+
+        oscReceiver = new OscReceiver(
+                new InetSocketAddress(config.bindHost, config.bindPort),
+                config.oscReceiverThreads,
+                config.oscTcpPort > 0 ? new InetSocketAddress(config.bindHost, config.oscTcpPort) : null,
+                () -> new OscPacketHandler(router, commandScheduler, listener.getMetrics(), bundleListener));
+        log.info("# Listening for OSC Packets on {}:{} over UDP ({} threads){} ...", config.bindHost, oscReceiver.getPort(),
+                oscReceiver.getUdpThreads(), config.oscTcpPort > 0 ? " and on TCP port " + oscReceiver.getTcpPort() : "");
+        startDmxReceiver(DmxProtocol.ARTNET, config.artNetPort, config, dmxRoutes, onMessage, dmxMetrics);
+        startDmxReceiver(DmxProtocol.SACN, config.sacnPort, config, dmxRoutes, onMessage, dmxMetrics);
+
+        bulbConnector = new BulbConnector(
+                bulbsWithAddresses.stream().map(BulbWithAddresses::getBulb).collect(Collectors.toList()),
+                config.connectParallelism).start();
+    }
+
+    /**
+     * Stops listening, the command scheduler and closes the bulb connections.
+     */
+    @Override
+    public void close() throws IOException {
+        oscReceiver.close();
+        bulbConnector.close();
+        if (cuePlayer != null) {
+            cuePlayer.close();
+        }
+        for (DmxReceiver dmxReceiver : dmxReceivers) {
+            dmxReceiver.close();
+        }
+        metricsExporter.close();
+        commandScheduler.close();
+        bulbsWithAddresses.forEach(bulbWithAddresses -> bulbWithAddresses.getBulb().close());
+    }
+
+    /**
+     * @return tracks the startup connection of the bulbs
+     */
+    public BulbConnector getBulbConnector() {
+        return bulbConnector;
     }
 
     private Set<BulbWithAddresses> getBulbsWithAddresses(List<BulbConfig> bulbConfigs, Config config) {
         return bulbConfigs.stream()
                 .filter(bc -> {
-                    boolean enabled = bc.getEnabled().isEmpty() || bc.getEnabled().get().equals(true);
+                    boolean enabled = isEnabled(bc);
                     if (!enabled) {
                         log.info("Build {} is disabled.", bc.getName());
                     }
@@ -76,21 +168,153 @@ public class OSCApplication extends OSCPortIn {
                 })
                 .map(bc -> getBulbWithAddresses(bc, config))
                 .filter(Objects::nonNull)
-                .collect(Collectors.toSet());
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private static boolean isEnabled(BulbConfig bc) {
+        return bc.getEnabled().isEmpty() || bc.getEnabled().get().equals(true);
     }
 
     private BulbWithAddresses getBulbWithAddresses(BulbConfig bc, Config config) {
-        Bulb bulb = new Bulb(bc.getIp(), bc.getId(), bc.getKey(), bc.getName(), config);
+        Bulb bulb = new Bulb(bc.getIp(), bc.getPort().orElse(Connection.DEFAULT_PORT), bc.getId(), bc.getKey(), bc.getName(), config);
         BulbWithAddresses bulbWithAddresses = new BulbWithAddresses(bulb);
-        OscAddress addresses = bc.getOsc().getAddresses();
+        putMappings(bulbWithAddresses, bc.getOsc());
+        return bulbWithAddresses;
+    }
+
+    /**
+     * The names are not required to be unique,
+     * when several bulbs have the same name the first one is referenced by the groups and the cues.
+     *
+     * @return bulbs by name, in the config order
+     */
+    static Map<String, BulbWithAddresses> getBulbsByName(Collection<BulbWithAddresses> bulbsWithAddresses) {
+        Map<String, BulbWithAddresses> byName = new LinkedHashMap<>();
+        for (BulbWithAddresses bulbWithAddresses : bulbsWithAddresses) {
+            String name = bulbWithAddresses.getBulb().getName();
+            if (byName.putIfAbsent(name, bulbWithAddresses) != null) {
+                log.warn("Bulb name {} is used by more than one bulb, the groups and the cues refer to the first one.", name);
+            }
+        }
+        return byName;
+    }
 
+    /**
+     * Maps the group addresses to each member bulb, the router sends a group message to all of them.
+     */
+    static void addGroupAddresses(List<GroupConfig> groups, Map<String, BulbWithAddresses> bulbsByName) {
+        for (GroupConfig group : groups) {
+            if (group.getBulbs() == null || group.getBulbs().isEmpty()) {
+                log.warn("Group {} has no bulbs.", group.getName());
+                continue;
+            }
+            int members = 0;
+            for (String bulbName : group.getBulbs()) {
+                BulbWithAddresses bulbWithAddresses = bulbsByName.get(bulbName);
+                if (bulbWithAddresses == null) {
+                    log.warn("Group {} member {} is not an enabled bulb.", group.getName(), bulbName);
+                    continue;
+                }
+                putMappings(bulbWithAddresses, group.getOsc());
+                members++;
+            }
+            log.info("Group {} has {} bulbs.", group.getName(), members);
+        }
+    }
+
+    /**
+     * @return bulbs by the bulb and group names
+     */
+    private static Map<String, List<Bulb>> getTargets(Map<String, BulbWithAddresses> bulbsByName, List<GroupConfig> groups) {
+        Map<String, List<Bulb>> targets = new HashMap<>();
+        bulbsByName.forEach((name, bulbWithAddresses) -> targets.put(name, List.of(bulbWithAddresses.getBulb())));
+        for (GroupConfig group : groups) {
+            if (group.getBulbs() == null) {
+                continue;
+            }
+            targets.put(group.getName(), group.getBulbs().stream()
+                    .map(bulbsByName::get)
+                    .filter(Objects::nonNull)
+                    .map(BulbWithAddresses::getBulb)
+                    .collect(Collectors.toList()));
+        }
+        return targets;
+    }
+
+    private static void putMappings(BulbWithAddresses bulbWithAddresses, Osc osc) {
+        if (osc == null || osc.getAddresses() == null) {
+            return;
+        }
+        OscAddress addresses = osc.getAddresses();
         addresses.getPower().ifPresent(v -> bulbWithAddresses.putMapping(TuyaCommand.POWER, v));
         addresses.getBrighnes().ifPresent(v -> bulbWithAddresses.putMapping(TuyaCommand.BRIGHTNESS, v));
         addresses.getTemperature().ifPresent(v -> bulbWithAddresses.putMapping(TuyaCommand.TEMPERATURE, v));
         addresses.getRed().ifPresent(v -> bulbWithAddresses.putMapping(TuyaCommand.RED, v));
         addresses.getGreen().ifPresent(v -> bulbWithAddresses.putMapping(TuyaCommand.GREEN, v));
         addresses.getBlue().ifPresent(v -> bulbWithAddresses.putMapping(TuyaCommand.BLUE, v));
-        return bulbWithAddresses;
+    }
+
+    /**
+     * @return DMX channels of the bulbs and of the groups, a group channel is routed to each member bulb
+     */
+    private List<DmxRoute> getDmxRoutes(Config config) {
+        List<DmxRoute> routes = new ArrayList<>();
+        // the bulbs are created in the order of the enabled configs, the names are not unique
+        Iterator<BulbWithAddresses> bulbs = bulbsWithAddresses.iterator();
+        for (BulbConfig bulbConfig : config.getBulbs()) {
+            if (isEnabled(bulbConfig)) {
+                Bulb bulb = bulbs.next().getBulb();
+                bulbConfig.getDmx().ifPresent(dmx -> {
+                    checkUniverse(config, dmx, "bulb " + bulbConfig.getName());
+                    putDmxRoutes(routes, bulb, dmx);
+                });
+            }
+        }
+        for (GroupConfig group : config.getGroups()) {
+            if (group.getBulbs() == null) {
+                continue;
+            }
+            group.getDmx().ifPresent(dmx -> {
+                checkUniverse(config, dmx, "group " + group.getName());
+                group.getBulbs().stream()
+                        .map(bulbsByName::get)
+                        .filter(Objects::nonNull)
+                        .forEach(bulbWithAddresses -> putDmxRoutes(routes, bulbWithAddresses.getBulb(), dmx));
+            });
+        }
+        return routes;
+    }
+
+    /**
+     * The routes are shared by the receivers, the universe must be valid for each enabled protocol.
+     */
+    private static void checkUniverse(Config config, DmxAddress dmx, String owner) {
+        if (config.artNetPort > 0) {
+            DmxProtocol.ARTNET.checkUniverse(dmx.getUniverse(), owner);
+        }
+        if (config.sacnPort > 0) {
+            DmxProtocol.SACN.checkUniverse(dmx.getUniverse(), owner);
+        }
+    }
+
+    private void putDmxRoutes(List<DmxRoute> routes, Bulb bulb, DmxAddress dmx) {
+        int universe = dmx.getUniverse();
+        dmx.getPower().ifPresent(c -> routes.add(new DmxRoute(universe, c, bulb, TuyaCommand.POWER)));
+        dmx.getBrightness().ifPresent(c -> routes.add(new DmxRoute(universe, c, bulb, TuyaCommand.BRIGHTNESS)));
+        dmx.getTemperature().ifPresent(c -> routes.add(new DmxRoute(universe, c, bulb, TuyaCommand.TEMPERATURE)));
+        dmx.getRed().ifPresent(c -> routes.add(new DmxRoute(universe, c, bulb, TuyaCommand.RED)));
+        dmx.getGreen().ifPresent(c -> routes.add(new DmxRoute(universe, c, bulb, TuyaCommand.GREEN)));
+        dmx.getBlue().ifPresent(c -> routes.add(new DmxRoute(universe, c, bulb, TuyaCommand.BLUE)));
+    }
+
+    private void startDmxReceiver(DmxProtocol protocol, int port, Config config, List<DmxRoute> routes,
+            Consumer<BulbCommand> onCommand, DmxMetrics dmxMetrics) throws IOException {
+        if (port <= 0) {
+            return;
+        }
+        DmxRouter router = new DmxRouter(routes, onCommand, dmxMetrics);
+        dmxReceivers.add(new DmxReceiver(protocol, new InetSocketAddress(config.dmxBindHost, port),
+                config.sacnMulticastInterface, router, dmxMetrics));
     }
 
     public static void main(String[] args) throws IOException {
@@ -0,0 +1,154 @@
+package com.github.matejonnet.osctuya.osc;
+
+import com.github.matejonnet.osctuya.metrics.OscMetrics;
+import com.github.matejonnet.osctuya.metrics.OscReceiveEvent;
+import com.illposed.osc.OSCBadDataEvent;
+import com.illposed.osc.OSCPacketEvent;
+import com.illposed.osc.OSCPacketListener;
+import com.illposed.osc.OSCParseException;
+import com.illposed.osc.OSCParser;
+import com.illposed.osc.OSCSerializerAndParserBuilder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Handles the received OSC packets. A message with a numeric or a boolean first argument, sent to an address routed to the bulbs,
+ * is decoded in place and its value is passed to the command scheduler without allocating.
+ * The bundles, the other messages and the unmapped addresses are parsed by javaosc and passed to the packet listener.
+ * Not thread safe, each receiver thread has its own handler.
+ */
+public class OscPacketHandler {
+
+    private final AddressRouter router;
+    private final CommandScheduler scheduler;
+    private final OscMetrics metrics;
+    private final OSCPacketListener fallback;
+    private final OSCParser parser = new OSCSerializerAndParserBuilder().buildParser();
+
+    public OscPacketHandler(AddressRouter router, CommandScheduler scheduler, OscMetrics metrics, OSCPacketListener fallback) {
+        this.router = router;
+        this.scheduler = scheduler;
+        this.metrics = metrics;
+        this.fallback = fallback;
+    }
+
+    /**
+     * @param packet the packet from position 0 to the limit, the buffer is not retained
+     */
+    public void handle(ByteBuffer packet, Object source, long receivedAt) {
+        if (!handleMessage(packet, receivedAt)) {
+            parse(packet, source);
+        }
+    }
+
+    /**
+     * @return false when the message is not handled in place
+     */
+    private boolean handleMessage(ByteBuffer packet, long receivedAt) {
+        int limit = packet.limit();
+        if (limit < 8 || packet.get(0) != '/') {
+            return false;
+        }
+        int addressLength = terminator(packet, 0);
+        if (addressLength < 0) {
+            return false;
+        }
+        int typeTags = align(addressLength + 1);
+        if (typeTags + 2 > limit || packet.get(typeTags) != ',') {
+            return false;
+        }
+        int typeTagsEnd = terminator(packet, typeTags);
+        if (typeTagsEnd < 0) {
+            return false;
+        }
+        int arguments = align(typeTagsEnd + 1);
+        float value;
+        switch (packet.get(typeTags + 1)) {
+            case 'f':
+                if (arguments + 4 > limit) {
+                    return false;
+                }
+                value = packet.getFloat(arguments);
+                break;
+            case 'i':
+                if (arguments + 4 > limit) {
+                    return false;
+                }
+                value = BulbCommand.level(packet.getInt(arguments));
+                break;
+            case 'd':
+                if (arguments + 8 > limit) {
+                    return false;
+                }
+                value = (float) packet.getDouble(arguments);
+                break;
+            case 'h':
+                if (arguments + 8 > limit) {
+                    return false;
+                }
+                value = BulbCommand.level(packet.getLong(arguments));
+                break;
+            case 'T':
+                value = 1;
+                break;
+            case 'F':
+                value = 0;
+                break;
+            default:
+                return false;
+        }
+        BulbRoute[] routes = router.route(packet, 0, addressLength);
+        if (routes.length == 0) {
+            // counted and reported by the message listener
+            return false;
+        }
+        metrics.messageReceived();
+        OscReceiveEvent event = new OscReceiveEvent();
+        event.begin();
+        try {
+            for (BulbRoute route : routes) {
+                scheduler.submit(route.bulb(), route.command(), value, receivedAt);
+            }
+        } catch (RuntimeException e) {
+            metrics.messageFailed();
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                byte[] address = new byte[addressLength];
+                packet.get(0, address);
+                event.address = new String(address, StandardCharsets.UTF_8);
+                event.routes = routes.length;
+                event.commit();
+            }
+        }
+        return true;
+    }
+
+    private void parse(ByteBuffer packet, Object source) {
+        try {
+            fallback.handlePacket(new OSCPacketEvent(source, parser.convert(packet)));
+        } catch (OSCParseException e) {
+            byte[] data = new byte[packet.limit()];
+            packet.get(0, data);
+            fallback.handleBadData(new OSCBadDataEvent(source, ByteBuffer.wrap(data), e));
+        }
+    }
+
+    /**
+     * @return index of the 0 terminating the string starting at the offset, -1 when there is none
+     */
+    private static int terminator(ByteBuffer packet, int offset) {
+        for (int i = offset; i < packet.limit(); i++) {
+            if (packet.get(i) == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int align(int index) {
+        return (index + 3) & ~3;
+    }
+}
@@ -0,0 +1,201 @@
+package com.github.matejonnet.osctuya.osc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Receives the OSC packets over UDP and over TCP with the SLIP framing.
+ * <p>
+ * With more than one UDP thread, each thread receives on its own channel bound to the same port with SO_REUSEPORT,
+ * the kernel spreads the senders over the channels (by the hash of the source address, one sender is always received by the same thread).
+ * Each thread reuses its receive buffer and its {@link OscPacketHandler}. A TCP connection is read by its own thread.
+ */
+public class OscReceiver implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(OscReceiver.class);
+
+    private static final int MAX_PACKET = 65536;
+
+    private final List<DatagramChannel> datagramChannels = new ArrayList<>();
+    private final ServerSocketChannel serverChannel;
+    private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+    private final Supplier<OscPacketHandler> handlers;
+    private final List<Thread> threads = new ArrayList<>();
+
+    /**
+     * @param udpThreads number of UDP receive threads, 1 when SO_REUSEPORT is not supported
+     * @param tcpAddress address of the TCP listener, null for UDP only
+     * @param handlers creates the handler of each receive thread
+     */
+    public OscReceiver(InetSocketAddress udpAddress, int udpThreads, InetSocketAddress tcpAddress, Supplier<OscPacketHandler> handlers)
+            throws IOException {
+        this.handlers = handlers;
+        try {
+            DatagramChannel first = DatagramChannel.open();
+            datagramChannels.add(first);
+            boolean reusePort = udpThreads > 1 && first.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+            if (udpThreads > 1 && !reusePort) {
+                log.warn("SO_REUSEPORT is not supported, receiving OSC over UDP on a single thread.");
+            }
+            if (reusePort) {
+                first.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            }
+            first.setOption(StandardSocketOptions.SO_RCVBUF, 1 << 20);
+            first.bind(udpAddress);
+            // bind the others to the same port when the port is chosen by the system
+            SocketAddress boundAddress = first.getLocalAddress();
+            for (int i = 1; reusePort && i < udpThreads; i++) {
+                DatagramChannel channel = DatagramChannel.open();
+                datagramChannels.add(channel);
+                channel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+                channel.setOption(StandardSocketOptions.SO_RCVBUF, 1 << 20);
+                channel.bind(boundAddress);
+            }
+            if (tcpAddress != null) {
+                serverChannel = ServerSocketChannel.open();
+                serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+                serverChannel.bind(tcpAddress);
+            } else {
+                serverChannel = null;
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        for (int i = 0; i < datagramChannels.size(); i++) {
+            DatagramChannel channel = datagramChannels.get(i);
+            OscPacketHandler handler = handlers.get();
+            startThread(() -> receive(channel, handler), "osc-receiver-" + (i + 1));
+        }
+        if (serverChannel != null) {
+            startThread(this::accept, "osc-tcp-acceptor");
+        }
+    }
+
+    private void startThread(Runnable task, String name) {
+        // not daemon, the receivers keep the application running
+        Thread thread = new Thread(task, name);
+        threads.add(thread);
+        thread.start();
+    }
+
+    private void receive(DatagramChannel channel, OscPacketHandler handler) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(MAX_PACKET);
+        while (channel.isOpen()) {
+            buffer.clear();
+            SocketAddress source;
+            try {
+                source = channel.receive(buffer);
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                log.warn("Cannot receive OSC packet.", e);
+                continue;
+            }
+            buffer.flip();
+            handle(handler, buffer, source);
+        }
+    }
+
+    private void accept() {
+        while (serverChannel.isOpen()) {
+            SocketChannel connection;
+            try {
+                connection = serverChannel.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                log.warn("Cannot accept OSC connection.", e);
+                continue;
+            }
+            connections.add(connection);
+            Thread thread = new Thread(() -> read(connection), "osc-tcp-" + connection.socket().getRemoteSocketAddress());
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private void read(SocketChannel connection) {
+        SocketAddress source = connection.socket().getRemoteSocketAddress();
+        log.info("OSC connection from {}.", source);
+        OscPacketHandler handler = handlers.get();
+        SlipDecoder decoder = new SlipDecoder(MAX_PACKET);
+        ByteBuffer input = ByteBuffer.allocateDirect(8192);
+        Consumer<ByteBuffer> onPacket = packet -> handle(handler, packet, source);
+        try (connection) {
+            while (connection.read(input) >= 0) {
+                input.flip();
+                decoder.decode(input, onPacket);
+                input.clear();
+            }
+        } catch (IOException e) {
+            if (connection.isOpen()) {
+                log.warn("OSC connection from {} failed: {}.", source, e.getMessage());
+            }
+        } finally {
+            connections.remove(connection);
+        }
+        log.info("OSC connection from {} closed.", source);
+    }
+
+    private void handle(OscPacketHandler handler, ByteBuffer packet, SocketAddress source) {
+        try {
+            handler.handle(packet, source, System.nanoTime());
+        } catch (Throwable e) {
+            log.error("Failed to handle OSC packet.", e);
+        }
+    }
+
+    /**
+     * @return the bound UDP port
+     */
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) datagramChannels.get(0).getLocalAddress()).getPort();
+    }
+
+    public int getTcpPort() throws IOException {
+        return serverChannel == null ? -1 : ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    public int getUdpThreads() {
+        return datagramChannels.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (DatagramChannel channel : datagramChannels) {
+            channel.close();
+        }
+        if (serverChannel != null) {
+            serverChannel.close();
+        }
+        for (SocketChannel connection : connections) {
+            connection.close();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
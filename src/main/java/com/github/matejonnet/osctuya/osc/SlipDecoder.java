@@ -0,0 +1,69 @@
+package com.github.matejonnet.osctuya.osc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+/**
+ * Decodes the SLIP (RFC 1055) framed packets of the OSC 1.1 stream transports. The packets are delimited by END,
+ * END and ESC in a packet are escaped. Not thread safe, a decoder per connection.
+ */
+class SlipDecoder {
+
+    private static final Logger log = LoggerFactory.getLogger(SlipDecoder.class);
+
+    static final byte END = (byte) 0xC0;
+    static final byte ESC = (byte) 0xDB;
+    static final byte ESC_END = (byte) 0xDC;
+    static final byte ESC_ESC = (byte) 0xDD;
+
+    private final ByteBuffer packet;
+    private boolean escaped;
+    /**
+     * Set when the packet does not fit into the buffer, the bytes are skipped until the next END.
+     */
+    private boolean overflow;
+
+    SlipDecoder(int maxPacketSize) {
+        packet = ByteBuffer.allocate(maxPacketSize);
+    }
+
+    /**
+     * Decodes the bytes from the position to the limit of the input, a packet may span several inputs.
+     *
+     * @param onPacket called with each complete packet from position 0 to the limit, the buffer is reused for the next packet
+     */
+    void decode(ByteBuffer input, Consumer<ByteBuffer> onPacket) {
+        while (input.hasRemaining()) {
+            byte b = input.get();
+            if (b == END) {
+                if (!overflow && packet.position() > 0) {
+                    packet.flip();
+                    onPacket.accept(packet);
+                }
+                packet.clear();
+                escaped = false;
+                overflow = false;
+                continue;
+            }
+            if (escaped) {
+                escaped = false;
+                b = b == ESC_END ? END : b == ESC_ESC ? ESC : b;
+            } else if (b == ESC) {
+                escaped = true;
+                continue;
+            }
+            if (overflow) {
+                continue;
+            }
+            if (!packet.hasRemaining()) {
+                log.warn("Dropping SLIP packet larger than {} bytes.", packet.capacity());
+                overflow = true;
+                continue;
+            }
+            packet.put(b);
+        }
+    }
+}
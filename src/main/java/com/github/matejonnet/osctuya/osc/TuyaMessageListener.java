@@ -1,5 +1,8 @@
 package com.github.matejonnet.osctuya.osc;
 
+import com.github.matejonnet.osctuya.metrics.OscMetrics;
+import com.github.matejonnet.osctuya.metrics.OscReceiveEvent;
+import com.github.matejonnet.osctuya.metrics.RouteEvent;
 import com.illposed.osc.OSCMessage;
 import com.illposed.osc.OSCMessageEvent;
 import com.illposed.osc.OSCMessageListener;
@@ -7,8 +10,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
-import java.util.Optional;
-import java.util.Set;
 import java.util.function.Consumer;
 
 /**
@@ -18,40 +19,55 @@ public class TuyaMessageListener implements OSCMessageListener {
 
     private static final Logger log = LoggerFactory.getLogger(TuyaMessageListener.class);
 
-    private Set<BulbWithAddresses> bulbsWithAddresses;
-    private Consumer<BulbCommand> onCommand;
+    private final AddressRouter router;
+    private final Consumer<BulbCommand> onCommand;
+    private final OscMetrics metrics = new OscMetrics();
 
-    public TuyaMessageListener(Set<BulbWithAddresses> bulbsWithAddressees, Consumer<BulbCommand> onCommand) {
-        this.bulbsWithAddresses = bulbsWithAddressees;
+    public TuyaMessageListener(AddressRouter router, Consumer<BulbCommand> onCommand) {
+        this.router = router;
         this.onCommand = onCommand;
     }
 
     @Override
     public void acceptMessage(OSCMessageEvent oscMessageEvent) {
+        long receivedAt = System.nanoTime();
+        metrics.messageReceived();
+        OscReceiveEvent receiveEvent = new OscReceiveEvent();
+        receiveEvent.begin();
         try {
             OSCMessage message = oscMessageEvent.getMessage();
             String address = message.getAddress();
-            getBulbCommand(address, message.getArguments())
-                    .ifPresentOrElse(
-                        bulbCommand -> {
-                            log.debug("Received addr:{}, arg:{}.", message.getAddress(), message.getArguments());
-                            onCommand.accept(bulbCommand);
-                        },
-                        () -> log.debug("Ignoring unmapped address: {}.", address)
-                    );
+            receiveEvent.address = address;
+            RouteEvent routeEvent = new RouteEvent();
+            routeEvent.begin();
+            BulbRoute[] routes = router.route(address);
+            routeEvent.end();
+            if (routeEvent.shouldCommit()) {
+                routeEvent.address = address;
+                routeEvent.routes = routes.length;
+                routeEvent.commit();
+            }
+            receiveEvent.routes = routes.length;
+            if (routes.length == 0) {
+                metrics.messageUnmapped();
+                log.debug("Ignoring unmapped address: {}.", address);
+                return;
+            }
+            List<Object> arguments = message.getArguments();
+            log.debug("Received addr:{}, arg:{}.", address, arguments);
+            float value = BulbCommand.value(arguments);
+            for (BulbRoute route : routes) {
+                onCommand.accept(new BulbCommand(route.bulb(), route.command(), value, receivedAt));
+            }
         } catch (Throwable e) {
+            metrics.messageFailed();
             log.error("Failed to handle input message.", e);
+        } finally {
+            receiveEvent.commit();
         }
     }
 
-    private Optional<BulbCommand> getBulbCommand(String address, List<Object> arguments) {
-        for (BulbWithAddresses bulbWithAddresses : bulbsWithAddresses) {
-            Optional<TuyaCommand> maybeCommand = bulbWithAddresses.getCommand(address);
-            if (maybeCommand.isPresent()) {
-                return Optional.of(new BulbCommand(bulbWithAddresses.getBulb(), maybeCommand.get(), arguments));
-            }
-        }
-        return Optional.empty();
+    public OscMetrics getMetrics() {
+        return metrics;
     }
-
 }
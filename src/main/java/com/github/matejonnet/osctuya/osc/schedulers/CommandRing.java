@@ -0,0 +1,147 @@
+package com.github.matejonnet.osctuya.osc.schedulers;
+
+import com.github.matejonnet.osctuya.Bulb;
+import com.github.matejonnet.osctuya.osc.TuyaCommand;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded FIFO of the bulb commands in preallocated arrays, one array per command field.
+ * A command is stored and taken without allocating. Thread safe.
+ */
+class CommandRing {
+
+    private static final TuyaCommand[] COMMANDS = TuyaCommand.values();
+
+    private final Bulb[] bulbs;
+    private final byte[] commands;
+    private final float[] values;
+    private final long[] receivedAt;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private int head;
+    private int size;
+
+    CommandRing(int capacity) {
+        bulbs = new Bulb[capacity];
+        commands = new byte[capacity];
+        values = new float[capacity];
+        receivedAt = new long[capacity];
+    }
+
+    /**
+     * @return false when the ring is full, the command is not added
+     */
+    boolean offer(Bulb bulb, TuyaCommand command, float value, long receivedAt) {
+        lock.lock();
+        try {
+            if (size == bulbs.length) {
+                return false;
+            }
+            put(bulb, command, value, receivedAt);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the oldest command when the ring is full.
+     *
+     * @return false when the oldest command was dropped
+     */
+    boolean offerDroppingOldest(Bulb bulb, TuyaCommand command, float value, long receivedAt) {
+        lock.lock();
+        try {
+            boolean dropped = size == bulbs.length;
+            if (dropped) {
+                head = next(head);
+                size--;
+            }
+            put(bulb, command, value, receivedAt);
+            return !dropped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void put(Bulb bulb, TuyaCommand command, float value, long receivedAt) {
+        int tail = (head + size) % bulbs.length;
+        bulbs[tail] = bulb;
+        commands[tail] = (byte) command.ordinal();
+        values[tail] = value;
+        this.receivedAt[tail] = receivedAt;
+        size++;
+        notEmpty.signal();
+    }
+
+    /**
+     * Takes the oldest command and passes it to the consumer, the consumer is called outside of the lock.
+     *
+     * @return false when the ring is empty
+     */
+    boolean poll(CommandConsumer consumer) {
+        Bulb bulb;
+        TuyaCommand command;
+        float value;
+        long at;
+        lock.lock();
+        try {
+            if (size == 0) {
+                return false;
+            }
+            bulb = bulbs[head];
+            command = COMMANDS[commands[head]];
+            value = values[head];
+            at = receivedAt[head];
+            bulbs[head] = null;
+            head = next(head);
+            size--;
+        } finally {
+            lock.unlock();
+        }
+        consumer.accept(bulb, command, value, at);
+        return true;
+    }
+
+    /**
+     * Waits up to the timeout for a command and passes it to the consumer.
+     *
+     * @return false when no command was received in time
+     */
+    boolean poll(CommandConsumer consumer, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return poll(consumer);
+    }
+
+    boolean isEmpty() {
+        lock.lock();
+        try {
+            return size == 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int next(int index) {
+        return index + 1 == bulbs.length ? 0 : index + 1;
+    }
+
+    @FunctionalInterface
+    interface CommandConsumer {
+        void accept(Bulb bulb, TuyaCommand command, float value, long receivedAt);
+    }
+}
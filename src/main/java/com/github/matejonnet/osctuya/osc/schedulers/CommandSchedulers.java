@@ -0,0 +1,26 @@
+package com.github.matejonnet.osctuya.osc.schedulers;
+
+import com.github.matejonnet.osctuya.config.Config;
+import com.github.matejonnet.osctuya.config.SchedulerType;
+import com.github.matejonnet.osctuya.osc.CommandScheduler;
+
+public class CommandSchedulers {
+
+    public static CommandScheduler create(Config config) {
+        return create(config.commandScheduler, config);
+    }
+
+    public static CommandScheduler create(SchedulerType type, Config config) {
+        return switch (type) {
+            case DIRECT -> new DirectCommandScheduler();
+            case SINGLE_QUEUE -> new SingleQueueCommandScheduler();
+            case QUEUE_PER_BULB -> new QueuePerBulbCommandScheduler();
+            case EXECUTOR_PER_BULB -> new ExecutorPerBulbCommandScheduler();
+            case REPEATABLE_EXECUTOR_PER_BULB -> new RepeatableExecutorPerBulbCommandScheduler(
+                    Math.max(1, config.sendQueueSize),
+                    Math.max(1, config.repeatCommandTimes),
+                    config.repeatDelayMillis,
+                    config.commandTimeoutMillis > 0 ? config.commandTimeoutMillis : 300);
+        };
+    }
+}
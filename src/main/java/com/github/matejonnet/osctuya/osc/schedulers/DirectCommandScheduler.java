@@ -1,8 +1,10 @@
 package com.github.matejonnet.osctuya.osc.schedulers;
 
+import com.github.matejonnet.osctuya.Bulb;
 import com.github.matejonnet.osctuya.osc.BulbCommand;
 import com.github.matejonnet.osctuya.osc.BulbCommandProcessor;
 import com.github.matejonnet.osctuya.osc.CommandScheduler;
+import com.github.matejonnet.osctuya.osc.TuyaCommand;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -18,4 +20,13 @@ public class DirectCommandScheduler implements CommandScheduler {
     public void submit(BulbCommand bulbCommand) {
         bulbCommandProcessor.process(bulbCommand);
     }
+
+    @Override
+    public void submit(Bulb bulb, TuyaCommand command, float value, long receivedAt) {
+        bulbCommandProcessor.process(bulb, command, value, receivedAt);
+    }
+
+    @Override
+    public void close() {
+    }
 }
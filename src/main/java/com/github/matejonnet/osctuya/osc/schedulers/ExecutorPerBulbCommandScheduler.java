@@ -1,50 +1,100 @@
 package com.github.matejonnet.osctuya.osc.schedulers;
 
+import com.github.matejonnet.osctuya.Bulb;
+import com.github.matejonnet.osctuya.BulbExecutors;
 import com.github.matejonnet.osctuya.osc.BulbCommand;
 import com.github.matejonnet.osctuya.osc.BulbCommandProcessor;
 import com.github.matejonnet.osctuya.osc.CommandScheduler;
+import com.github.matejonnet.osctuya.osc.TuyaCommand;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.lang.invoke.MethodHandles;
 import java.util.Map;
-import java.util.Objects;
-import java.util.concurrent.*;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Each bulb has its own thread, processing the commands of the bulb in order. A command which waited longer than the timeout is skipped.
+ */
 public class ExecutorPerBulbCommandScheduler implements CommandScheduler {
 
-    private final Map<String, ExecutorService> bulbExecutors = new ConcurrentHashMap<>();
+    private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
-    private final ScheduledExecutorService cancelMonitor = Executors.newScheduledThreadPool(1);
+    private static final long COMMAND_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private final Map<Bulb, BulbExecutor> bulbExecutors = new ConcurrentHashMap<>();
 
     private final BulbCommandProcessor bulbCommandProcessor = new BulbCommandProcessor();
 
+    private final CommandRing.CommandConsumer process = this::process;
+
     @Override
     public void submit(BulbCommand bulbCommand) {
-        String bulbName = bulbCommand.bulb().getName();
-        ExecutorService bulbExecutor = bulbExecutors.computeIfAbsent(bulbName, (k) -> newBulbExecutor(10));
+        submit(bulbCommand.bulb(), bulbCommand.command(), bulbCommand.value(), bulbCommand.receivedAt());
+    }
 
-        Future future = bulbExecutor.submit(() -> bulbCommandProcessor.process(bulbCommand));
-        cancelMonitor.schedule(() -> future.cancel(true), 500, TimeUnit.MILLISECONDS);
+    @Override
+    public void submit(Bulb bulb, TuyaCommand command, float value, long receivedAt) {
+        BulbExecutor bulbExecutor = bulbExecutors.get(bulb);
+        if (bulbExecutor == null) {
+            bulbExecutor = bulbExecutors.computeIfAbsent(bulb, k -> new BulbExecutor(10));
+        }
+        // not good to drop old messages as it might be a color change and we lose the data of the individual color
+        bulbExecutor.commands.offerDroppingOldest(bulb, command, value, receivedAt);
+        bulbExecutor.schedule();
     }
 
-    private ExecutorService newBulbExecutor(int capacity) {
+    private void process(Bulb bulb, TuyaCommand command, float value, long receivedAt) {
+        if (System.nanoTime() - receivedAt > COMMAND_TIMEOUT_NANOS) {
+            log.warn("Cancelling command {} for bulb {}.", command.name(), bulb.getName());
+            return;
+        }
+        bulbCommandProcessor.process(bulb, command, value, receivedAt);
+    }
 
-        // not good to drop old messages as it might be a color change and we lose the data of the individual color
-        BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(capacity) {
-            Lock lock = new ReentrantLock(true);
-            public boolean offer(Runnable e) {
-                Objects.requireNonNull(e);
-                lock.lock();
-                try {
-                    if (remainingCapacity() == 0) {
-                        poll();
-                    }
-                    return super.offer(e);
-                } finally {
-                    lock.unlock();
+    @Override
+    public void close() {
+        bulbExecutors.values().forEach(bulbExecutor -> bulbExecutor.executor.shutdownNow());
+    }
+
+    private class BulbExecutor {
+        final CommandRing commands;
+        /**
+         * Set while the drain is scheduled or running, the queue of the executor never holds more than one task.
+         */
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        final ExecutorService executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.HOURS, new ArrayBlockingQueue<>(1),
+                BulbExecutors.threadFactory("executor-per-bulb-"));
+        final Runnable drain = this::drain;
+
+        BulbExecutor(int capacity) {
+            commands = new CommandRing(capacity);
+        }
+
+        void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                executor.execute(drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                while (commands.poll(process)) {
+                    // processed by the consumer
                 }
+            } catch (Throwable e) {
+                log.error("Cannot process command.", e);
+            } finally {
+                scheduled.set(false);
+            }
+            if (!commands.isEmpty()) {
+                schedule();
             }
-        };
-        return new ThreadPoolExecutor(1, 1, 1, TimeUnit.HOURS, queue);
+        }
     }
 }
@@ -1,59 +1,112 @@
 package com.github.matejonnet.osctuya.osc.schedulers;
 
+import com.github.matejonnet.osctuya.Bulb;
+import com.github.matejonnet.osctuya.BulbExecutors;
 import com.github.matejonnet.osctuya.osc.BulbCommand;
 import com.github.matejonnet.osctuya.osc.BulbCommandProcessor;
 import com.github.matejonnet.osctuya.osc.CommandScheduler;
-import org.apache.commons.collections4.queue.CircularFifoQueue;
+import com.github.matejonnet.osctuya.osc.TuyaCommand;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.invoke.MethodHandles;
 import java.util.Map;
-import java.util.concurrent.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Each bulb has its own queue, the workers take one command of a bulb at a time and the bulbs take turns.
+ * A command which waited longer than the timeout is skipped.
+ */
 public class QueuePerBulbCommandScheduler implements CommandScheduler {
 
     private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
-    private Map<String, CircularFifoQueue<BulbCommand>> bulbQueues = new ConcurrentHashMap<>();
+    private static final int WORKERS = 4;
 
-    private Semaphore semaphore = new Semaphore(0);
+    private static final long COMMAND_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(1000);
 
-    private final ExecutorService executor = Executors.newScheduledThreadPool(4);
+    private final Map<Bulb, BulbQueue> bulbQueues = new ConcurrentHashMap<>();
 
-    private ScheduledExecutorService cancelMonitor = Executors.newScheduledThreadPool(1);
+    /**
+     * The bulbs with waiting commands, a bulb is in the queue at most once.
+     */
+    private final BlockingQueue<BulbQueue> ready = new ArrayBlockingQueue<>(4096);
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(WORKERS, BulbExecutors.threadFactory("queue-per-bulb-scheduler-"));
 
     private final BulbCommandProcessor bulbCommandProcessor = new BulbCommandProcessor();
 
+    private final CommandRing.CommandConsumer process = this::process;
+
     public QueuePerBulbCommandScheduler() {
-        executor.execute(() -> {
-            while (true) {
-                try {
-                    for (var bulbQueue : bulbQueues.values()) {
-                        BulbCommand bulbCommand = bulbQueue.poll();
-                        if (bulbCommand != null) {
-                            Future<?> future = executor.submit(() -> bulbCommandProcessor.process(bulbCommand));
-                            cancelMonitor.schedule(() -> future.cancel(true), 1000, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < WORKERS; i++) {
+            executor.execute(() -> {
+                while (!executor.isShutdown()) {
+                    try {
+                        BulbQueue bulbQueue = ready.take();
+                        try {
+                            bulbQueue.commands.poll(process);
+                        } finally {
+                            bulbQueue.scheduled.set(false);
+                            if (!bulbQueue.commands.isEmpty()) {
+                                schedule(bulbQueue);
+                            }
                         }
-                        // Because some messages could be dropped from the queue,
-                        // loops without a command can happen until all the permits are acquired.
-                        semaphore.acquire();
+                    } catch (InterruptedException e) {
+                        log.info("Interrupted while waiting for new element, stopping.");
+                        break;
+                    } catch (Throwable e) {
+                        log.error("Cannot process command.", e);
                     }
-                } catch (Throwable e) {
-                    log.error("Cannot process command.", e);
                 }
-            }
-        });
+            });
+        }
     }
 
     @Override
     public void submit(BulbCommand bulbCommand) {
-        String bulbName = bulbCommand.bulb().getName();
+        submit(bulbCommand.bulb(), bulbCommand.command(), bulbCommand.value(), bulbCommand.receivedAt());
+    }
+
+    @Override
+    public void submit(Bulb bulb, TuyaCommand command, float value, long receivedAt) {
+        BulbQueue bulbQueue = bulbQueues.get(bulb);
+        if (bulbQueue == null) {
+            bulbQueue = bulbQueues.computeIfAbsent(bulb, k -> new BulbQueue());
+        }
         // not good to drop old messages as it might be a color change and we lose the data of the individual color
-        CircularFifoQueue bulbQueue = bulbQueues.computeIfAbsent(bulbName, (k) -> new CircularFifoQueue<>(10));
-        bulbQueue.offer(bulbCommand);
-        semaphore.release();
+        bulbQueue.commands.offerDroppingOldest(bulb, command, value, receivedAt);
+        schedule(bulbQueue);
+    }
+
+    private void schedule(BulbQueue bulbQueue) {
+        if (bulbQueue.scheduled.compareAndSet(false, true) && !ready.offer(bulbQueue)) {
+            bulbQueue.scheduled.set(false);
+            log.warn("Ignoring command, too many bulbs are waiting!");
+        }
+    }
+
+    private void process(Bulb bulb, TuyaCommand command, float value, long receivedAt) {
+        if (System.nanoTime() - receivedAt > COMMAND_TIMEOUT_NANOS) {
+            log.warn("Cancelling command {} for bulb {}.", command.name(), bulb.getName());
+            return;
+        }
+        bulbCommandProcessor.process(bulb, command, value, receivedAt);
     }
 
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
 
+    private static class BulbQueue {
+        final CommandRing commands = new CommandRing(10);
+        final AtomicBoolean scheduled = new AtomicBoolean();
+    }
 }
@@ -1,5 +1,7 @@
 package com.github.matejonnet.osctuya.osc.schedulers;
 
+import com.github.matejonnet.osctuya.BulbExecutors;
+import com.github.matejonnet.osctuya.TimingWheel;
 import com.github.matejonnet.osctuya.osc.BulbCommand;
 import com.github.matejonnet.osctuya.osc.BulbCommandProcessor;
 import com.github.matejonnet.osctuya.osc.CommandScheduler;
@@ -7,46 +9,56 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.invoke.MethodHandles;
-import java.time.Instant;
 import java.util.Map;
 import java.util.Queue;
-import java.util.concurrent.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Processes each command repeatCommandTimes, the repeats of a bulb are cancelled when a new command for the bulb is received.
+ * The repeats are scheduled on the shared {@link TimingWheel}, which runs them in the deadline order,
+ * a repeat which runs later than commandTimeoutMillis after its deadline is skipped.
+ */
 public class RepeatableExecutorPerBulbCommandScheduler implements CommandScheduler {
 
     public static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
     private final Map<String, PerBulb> bulbExecutors = new ConcurrentHashMap<>();
 
-    private final ScheduledExecutorService cancelMonitor = Executors.newScheduledThreadPool(1);
+    private final TimingWheel timer = BulbExecutors.timer();
 
     private final BulbCommandProcessor bulbCommandProcessor = new BulbCommandProcessor();
 
     /**
      * Drop old commands when there are more than maxEnqueuedCommands waiting.
      */
-    private int maxEnqueuedCommands;
+    private final int maxEnqueuedCommands;
 
     /**
      * Repeat last command repeatCommandTimes.
      */
-    private int repeatCommandTimes = 5;
+    private final int repeatCommandTimes;
 
     /**
      * Repeat commands after the delay.
      */
-    private long repeatDelayMillis = 100;
+    private final long repeatDelayMillis;
 
-    /**
-     * Should be >=300ms, because there is a retry in the Bulb.connection.
-     */
-    private long commandTimeoutMillis = 300;
+    private final long commandTimeoutMillis;
 
     public RepeatableExecutorPerBulbCommandScheduler() {
+        this(10, 5, 100, 300);
     }
 
+    public RepeatableExecutorPerBulbCommandScheduler(int maxEnqueuedCommands, int repeatCommandTimes, long repeatDelayMillis, long commandTimeoutMillis) {
+        this.maxEnqueuedCommands = maxEnqueuedCommands;
+        this.repeatCommandTimes = repeatCommandTimes;
+        this.repeatDelayMillis = repeatDelayMillis;
+        this.commandTimeoutMillis = commandTimeoutMillis;
+    }
 
     @Override
     public void submit(BulbCommand bulbCommand) {
@@ -58,7 +70,7 @@ public class RepeatableExecutorPerBulbCommandScheduler implements CommandSchedul
             // when a new command is received cancel all scheduled repeats
             perBulb.futures.removeIf(commandFuture -> {
                 if (commandFuture.isRepeat) {
-                    commandFuture.future.cancel(false);
+                    commandFuture.timeout.cancel();
                     return true;
                 } else {
                     return false;
@@ -68,70 +80,67 @@ public class RepeatableExecutorPerBulbCommandScheduler implements CommandSchedul
             // remove and cancel first task if there are too many waiting
             if (perBulb.futures.size() >= maxEnqueuedCommands) {
                 // not good to drop old messages as it might be a color change and we lose the data of the individual color
-                log.warn("Removing stale commands for bulb ", bulbCommand.bulb().getName());
-                perBulb.futures.poll().future.cancel(false);
+                log.warn("Removing stale commands for bulb {}.", bulbCommand.bulb().getName());
+                CommandFuture stale = perBulb.futures.poll();
+                if (stale != null) {
+                    stale.timeout.cancel();
+                }
             }
+            schedule(bulbCommand, perBulb);
         } finally {
             perBulb.lock.unlock();
         }
+    }
 
-        /**
-         * repeatDelayMillis=100
-         * commandTimeoutMillis=500
-         *
-         * scheduled0 runAt:0 timeoutAt:500
-         * scheduled1 runAt:100 timeoutAt:600; actualRun due to scheduled0 occupying the thread at 500
-         * scheduled2 runAt:400 timeoutAt:900; actualRun due to scheduled1 occupying the thread at 600
-         *
-         * repeatDelayMillis=100
-         * commandTimeoutMillis=300
-         *
-         * scheduled0 runAt:0 timeoutAt:300
-         * scheduled1 runAt:100 timeoutAt:400; actualRun due to scheduled0 occupying the thread at 300
-         * scheduled2 runAt:400 timeoutAt:700; actualRun due to scheduled1 occupying the thread at 400
-         *
-         * repeatDelayMillis=200
-         * commandTimeoutMillis=300
-         *
-         * scheduled0 runAt:0 timeoutAt:300
-         * scheduled1 runAt:200 timeoutAt:500; actualRun due to scheduled0 occupying the thread at 300
-         * scheduled2 runAt:800 timeoutAt:1100; actualRun due to scheduled1 occupying the thread at 800
-         */
+    /**
+     * The repeats run at 0, repeatDelayMillis, 4 * repeatDelayMillis, 9 * repeatDelayMillis ...
+     */
+    private void schedule(BulbCommand bulbCommand, PerBulb perBulb) {
+        long now = System.currentTimeMillis();
         for (int i = 0; i < repeatCommandTimes; i++) {
             long scheduleAfter = repeatDelayMillis * i * i;
-            ScheduledFuture<?> future = perBulb.executor.schedule(() -> bulbCommandProcessor.process(bulbCommand), scheduleAfter, TimeUnit.MILLISECONDS);
-            perBulb.futures.offer(new CommandFuture(future, i > 0));
-            cancelMonitor.schedule(() -> {
-                log.warn("Cancelling command {} for bulb {}.", bulbCommand.command().name(), bulbCommand.bulb().getName());
-                future.cancel(true);
-                perBulb.futures.remove(future);
-            }, scheduleAfter + commandTimeoutMillis, TimeUnit.MILLISECONDS);
+            CommandFuture commandFuture = new CommandFuture(now + scheduleAfter, i > 0);
+            // offered before it is scheduled, a repeat which is already due can run and remove itself at once
+            perBulb.futures.offer(commandFuture);
+            commandFuture.timeout = timer.schedule(() -> {
+                perBulb.futures.remove(commandFuture);
+                if (System.currentTimeMillis() - commandFuture.runAt > commandTimeoutMillis) {
+                    log.warn("Cancelling command {} for bulb {}.", bulbCommand.command().name(), bulbCommand.bulb().getName());
+                    return;
+                }
+                bulbCommandProcessor.process(bulbCommand);
+            }, scheduleAfter, TimeUnit.MILLISECONDS);
         }
     }
 
-    private class CommandFuture {
-        Future future;
-        boolean isRepeat;
+    @Override
+    public void close() {
+        bulbExecutors.values().forEach(perBulb -> {
+            // the timeout of a future is set under the lock
+            perBulb.lock.lock();
+            try {
+                perBulb.futures.forEach(commandFuture -> commandFuture.timeout.cancel());
+            } finally {
+                perBulb.lock.unlock();
+            }
+        });
+    }
 
-        Instant submitted;
+    private class CommandFuture {
+        final long runAt;
+        final boolean isRepeat;
+        TimingWheel.Timeout timeout;
 
-        public CommandFuture(Future future, boolean isRepeat) {
-            this.future = future;
+        public CommandFuture(long runAt, boolean isRepeat) {
+            this.runAt = runAt;
             this.isRepeat = isRepeat;
-            this.submitted = Instant.now();
         }
     }
 
     private class PerBulb {
 
         Lock lock = new ReentrantLock(true);
-        ScheduledExecutorService executor;
-        Queue<CommandFuture> futures;
-
-        public PerBulb() {
-            executor = Executors.newScheduledThreadPool(1);
-            futures = new ConcurrentLinkedQueue<>();
-        }
+        Queue<CommandFuture> futures = new ConcurrentLinkedQueue<>();
     }
 
 }
@@ -1,35 +1,38 @@
 package com.github.matejonnet.osctuya.osc.schedulers;
 
+import com.github.matejonnet.osctuya.Bulb;
+import com.github.matejonnet.osctuya.BulbExecutors;
 import com.github.matejonnet.osctuya.osc.BulbCommand;
 import com.github.matejonnet.osctuya.osc.BulbCommandProcessor;
 import com.github.matejonnet.osctuya.osc.CommandScheduler;
+import com.github.matejonnet.osctuya.osc.TuyaCommand;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.invoke.MethodHandles;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 public class SingleQueueCommandScheduler implements CommandScheduler {
 
     public static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
-    private final BlockingQueue<BulbCommand> commandQueue = new ArrayBlockingQueue<>(1000);
-    private final Executor executor = Executors.newScheduledThreadPool(4);
+    private final CommandRing commandQueue = new CommandRing(1000);
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(BulbExecutors.threadFactory("single-queue-scheduler-"));
 
 
     private final BulbCommandProcessor bulbCommandProcessor = new BulbCommandProcessor();
 
     public SingleQueueCommandScheduler() {
+        CommandRing.CommandConsumer process = bulbCommandProcessor::process;
         executor.execute(() -> {
-            while (true) {
+            while (!executor.isShutdown()) {
                 try {
-                    BulbCommand bulbCommand = commandQueue.take();
-                    bulbCommandProcessor.process(bulbCommand);
+                    commandQueue.poll(process, 1, TimeUnit.SECONDS);
                 } catch (InterruptedException e) {
-                    log.error("Interrupted while waiting for new element.", e);
+                    log.info("Interrupted while waiting for new element, stopping.");
+                    break;
                 } catch (Throwable e) {
                     log.error("Cannot process command.", e);
                 }
@@ -39,8 +42,18 @@ public class SingleQueueCommandScheduler implements CommandScheduler {
 
     @Override
     public void submit(BulbCommand bulbCommand) {
-        if (!commandQueue.offer(bulbCommand)) { //TODO each bulb should have it's own queue
+        submit(bulbCommand.bulb(), bulbCommand.command(), bulbCommand.value(), bulbCommand.receivedAt());
+    }
+
+    @Override
+    public void submit(Bulb bulb, TuyaCommand command, float value, long receivedAt) {
+        if (!commandQueue.offer(bulb, command, value, receivedAt)) { //TODO each bulb should have it's own queue
             log.warn("Ignoring command, queue is full!");
         }
     }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
 }
@@ -0,0 +1,370 @@
+package com.github.matejonnet.osctuya.simulator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.matejonnet.osctuya.DataPoint;
+import com.github.matejonnet.osctuya.Dps;
+import com.github.matejonnet.osctuya.FrameDecoder;
+import com.github.matejonnet.osctuya.Mapper;
+import com.github.matejonnet.osctuya.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Simulated Tuya 3.3 device listening on a local port.
+ *
+ * The received frames are validated (crc, encryption with the local key, device id), the DP values are applied
+ * to the simulated state and acknowledged. A control command is answered with an empty control frame and a status
+ * frame with the changed DPs, a heartbeat with an empty heartbeat frame, a DP query with the whole state.
+ */
+public class SimulatedBulb implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SimulatedBulb.class);
+
+    public static final int CONTROL = 0x07;
+    public static final int STATUS = 0x08;
+    public static final int HEART_BEAT = 0x09;
+    public static final int DP_QUERY = 0x0a;
+    private static final byte[] VERSION_HEADER = Arrays.copyOf("3.3".getBytes(StandardCharsets.US_ASCII), 15);
+    private static final byte[] EMPTY = new byte[0];
+
+    private final String devId;
+    private final SecretKeySpec key;
+    private final SimulatorFaults faults;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService scheduler;
+    private final ServerSocket serverSocket;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    /**
+     * Guarded by itself.
+     */
+    private final Dps state = new Dps();
+    private volatile Consumer<Dps> onApplied = dps -> { };
+
+    private final AtomicLong receivedFrames = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final AtomicLong invalidFrames = new AtomicLong();
+    private final AtomicLong acceptedConnections = new AtomicLong();
+    private final AtomicLong refusedConnections = new AtomicLong();
+    private final AtomicLong eofs = new AtomicLong();
+
+    SimulatedBulb(String devId, String localKey, int port, SimulatorFaults faults, ExecutorService executor, ScheduledExecutorService scheduler)
+            throws IOException {
+        this.devId = devId;
+        this.key = new SecretKeySpec(localKey.getBytes(StandardCharsets.UTF_8), "AES");
+        this.faults = faults;
+        this.executor = executor;
+        this.scheduler = scheduler;
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 50);
+        executor.execute(this::accept);
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    logger.warn("Simulated bulb {} cannot accept connection.", devId, e);
+                }
+                return;
+            }
+            if (faults.maxConnections > 0 && connections.size() >= faults.maxConnections) {
+                refusedConnections.incrementAndGet();
+                closeQuietly(socket);
+                continue;
+            }
+            acceptedConnections.incrementAndGet();
+            connections.add(socket);
+            executor.execute(() -> serve(socket));
+        }
+    }
+
+    private void serve(Socket socket) {
+        FrameDecoder decoder;
+        try {
+            decoder = new FrameDecoder(false, new FrameHandler(socket));
+        } catch (GeneralSecurityException e) {
+            logger.error("Cannot initialize cipher.", e);
+            closeConnection(socket);
+            return;
+        }
+        byte[] bytes = new byte[1024];
+        ByteBuffer data = ByteBuffer.wrap(bytes);
+        try (InputStream inputStream = socket.getInputStream()) {
+            int read;
+            while ((read = inputStream.read(bytes)) != -1) {
+                data.limit(read).position(0);
+                decoder.onData(data);
+            }
+        } catch (IOException e) {
+            logger.debug("Simulated bulb {} connection closed: {}.", devId, e.getMessage());
+        } finally {
+            invalidFrames.addAndGet(decoder.getInvalidFrames());
+            closeConnection(socket);
+        }
+    }
+
+    private class FrameHandler implements FrameDecoder.FrameListener {
+
+        private final Socket socket;
+        private final Cipher decrypt = Cipher.getInstance("AES/ECB/PKCS5Padding");
+        private final Cipher encrypt = Cipher.getInstance("AES/ECB/PKCS5Padding");
+
+        private FrameHandler(Socket socket) throws GeneralSecurityException {
+            this.socket = socket;
+            decrypt.init(Cipher.DECRYPT_MODE, key);
+            encrypt.init(Cipher.ENCRYPT_MODE, key);
+        }
+
+        @Override
+        public void onFrame(int sequence, int command, int returnCode, ByteBuffer payload) {
+            receivedFrames.incrementAndGet();
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (random.nextDouble() < faults.dropProbability) {
+                droppedFrames.incrementAndGet();
+            } else {
+                handle(sequence, command, payload);
+            }
+            if (random.nextDouble() < faults.eofProbability) {
+                eofs.incrementAndGet();
+                closeConnection(socket);
+            }
+        }
+
+        private void handle(int sequence, int command, ByteBuffer payload) {
+            try {
+                switch (command) {
+                    case CONTROL -> {
+                        JsonNode dps = decryptCommand(payload, true).get("dps");
+                        if (dps == null) {
+                            throw new IOException("Missing dps.");
+                        }
+                        Dps applied = new Dps().set(dps);
+                        synchronized (state) {
+                            state.merge(applied);
+                        }
+                        onApplied.accept(applied);
+                        reply(frame(sequence, CONTROL, EMPTY, false), frame(0, STATUS, status(encrypt, dps), true));
+                    }
+                    case HEART_BEAT -> {
+                        decryptCommand(payload, false);
+                        reply(frame(sequence, HEART_BEAT, EMPTY, false));
+                    }
+                    case DP_QUERY -> {
+                        decryptCommand(payload, false);
+                        reply(frame(sequence, DP_QUERY, status(encrypt, Mapper.getJson().valueToTree(getState().toMap())), false));
+                    }
+                    default -> logger.debug("Simulated bulb {} ignores command {}.", devId, command);
+                }
+            } catch (IOException | GeneralSecurityException e) {
+                invalidFrames.incrementAndGet();
+                logger.info("Simulated bulb {} received invalid frame {}: {}.", devId, sequence, e.getMessage());
+                reply(frame(sequence, command, 1, EMPTY, false));
+            }
+        }
+
+        private JsonNode decryptCommand(ByteBuffer payload, boolean versionHeader) throws IOException, GeneralSecurityException {
+            int offset = payload.arrayOffset() + payload.position();
+            int length = payload.remaining();
+            if (versionHeader) {
+                if (length < VERSION_HEADER.length || payload.get(payload.position()) != '3') {
+                    throw new IOException("Missing version header.");
+                }
+                offset += VERSION_HEADER.length;
+                length -= VERSION_HEADER.length;
+            }
+            byte[] json = decrypt.doFinal(payload.array(), offset, length);
+            JsonNode node = Mapper.getJson().readTree(json);
+            if (!devId.equals(node.path("devId").asText())) {
+                throw new IOException("Unexpected devId " + node.path("devId").asText() + ".");
+            }
+            return node;
+        }
+
+        private void reply(byte[]... frames) {
+            long delay = faults.latencyMillis;
+            if (faults.jitterMillis > 0) {
+                delay += ThreadLocalRandom.current().nextLong(faults.jitterMillis + 1);
+            }
+            if (delay > 0) {
+                scheduler.schedule(() -> write(socket, frames), delay, TimeUnit.MILLISECONDS);
+            } else {
+                write(socket, frames);
+            }
+        }
+    }
+
+    private byte[] status(Cipher encrypt, JsonNode dps) throws GeneralSecurityException, IOException {
+        ObjectNode status = Mapper.getJson().createObjectNode();
+        status.put("devId", devId);
+        status.set("dps", dps);
+        status.put("t", System.currentTimeMillis() / 1000);
+        return encrypt.doFinal(Mapper.getJson().writeValueAsBytes(status));
+    }
+
+    private static byte[] frame(int sequence, int command, byte[] payload, boolean versionHeader) {
+        return frame(sequence, command, 0, payload, versionHeader);
+    }
+
+    /**
+     * Frame as sent by the devices, with the return code.
+     */
+    private static byte[] frame(int sequence, int command, int returnCode, byte[] payload, boolean versionHeader) {
+        int headerLength = versionHeader ? VERSION_HEADER.length : 0;
+        ByteBuffer frame = ByteBuffer.allocate(16 + 4 + headerLength + payload.length + 8);
+        frame.putInt(FrameDecoder.PREFIX).putInt(sequence).putInt(command).putInt(frame.capacity() - 16).putInt(returnCode);
+        if (versionHeader) {
+            frame.put(VERSION_HEADER);
+        }
+        frame.put(payload);
+        Utils.Crc32 crc = new Utils.Crc32();
+        crc.update(frame.array(), 0, frame.position());
+        frame.putInt(crc.intValue()).putInt(FrameDecoder.SUFFIX);
+        return frame.array();
+    }
+
+    private void write(Socket socket, byte[]... frames) {
+        try {
+            OutputStream outputStream = socket.getOutputStream();
+            synchronized (socket) {
+                for (byte[] frame : frames) {
+                    outputStream.write(frame);
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("Simulated bulb {} cannot reply: {}.", devId, e.getMessage());
+        }
+    }
+
+    private void closeConnection(Socket socket) {
+        connections.remove(socket);
+        closeQuietly(socket);
+    }
+
+    private void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            logger.debug("Cannot close simulated bulb {} connection.", devId);
+        }
+    }
+
+    /**
+     * Changes the DP as if it was changed on the device, by the app or a wall switch, and reports it
+     * to the open connections with a status frame.
+     */
+    public void report(DataPoint dataPoint, int value) throws GeneralSecurityException, IOException {
+        Dps changed = new Dps().set(dataPoint, value);
+        synchronized (state) {
+            state.merge(changed);
+        }
+        Cipher encrypt = Cipher.getInstance("AES/ECB/PKCS5Padding");
+        encrypt.init(Cipher.ENCRYPT_MODE, key);
+        byte[] frame = frame(0, STATUS, status(encrypt, Mapper.getJson().valueToTree(changed.toMap())), true);
+        for (Socket socket : connections) {
+            write(socket, frame);
+        }
+    }
+
+    /**
+     * @param onApplied called by the connection reader with the DPs of each applied command
+     */
+    public void onApplied(Consumer<Dps> onApplied) {
+        this.onApplied = onApplied;
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public String getDevId() {
+        return devId;
+    }
+
+    /**
+     * @return copy of the simulated state
+     */
+    public Dps getState() {
+        Dps copy = new Dps();
+        synchronized (state) {
+            copy.merge(state);
+        }
+        return copy;
+    }
+
+    /**
+     * @return the simulated state of the DP, -1 when it was never set
+     */
+    public int get(DataPoint dataPoint) {
+        synchronized (state) {
+            return state.isSet(dataPoint) ? state.get(dataPoint) : -1;
+        }
+    }
+
+    public long getReceivedFrames() {
+        return receivedFrames.get();
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    /**
+     * @return frames with invalid crc, encryption or device id, the crc errors are counted when the connection is closed
+     */
+    public long getInvalidFrames() {
+        return invalidFrames.get();
+    }
+
+    public long getAcceptedConnections() {
+        return acceptedConnections.get();
+    }
+
+    public long getRefusedConnections() {
+        return refusedConnections.get();
+    }
+
+    public int getOpenConnections() {
+        return connections.size();
+    }
+
+    /**
+     * @return number of connections closed by the injected EOF fault
+     */
+    public long getEofs() {
+        return eofs.get();
+    }
+
+    @Override
+    public void close() {
+        closeQuietly(serverSocket);
+        connections.forEach(this::closeConnection);
+    }
+}
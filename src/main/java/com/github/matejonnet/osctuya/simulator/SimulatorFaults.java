@@ -0,0 +1,41 @@
+package com.github.matejonnet.osctuya.simulator;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Faults injected by the simulated bulbs, by default the bulbs behave like a healthy device on a fast network.
+ */
+@Value
+@Builder
+public class SimulatorFaults {
+
+    public static final SimulatorFaults NONE = SimulatorFaults.builder().build();
+
+    /**
+     * Delay of the replies.
+     */
+    public final long latencyMillis;
+
+    /**
+     * Random delay between 0 and jitterMillis added to the latency.
+     */
+    public final long jitterMillis;
+
+    /**
+     * Probability (0 - 1) that a received frame is ignored: not applied and not acknowledged.
+     */
+    public final double dropProbability;
+
+    /**
+     * Probability (0 - 1) that the bulb closes the connection after a received frame.
+     */
+    public final double eofProbability;
+
+    /**
+     * Maximum number of open connections, the connections over the limit are closed right after accept.
+     * Real bulbs accept only one, 0 for no limit.
+     */
+    @Builder.Default
+    public final int maxConnections = 1;
+}
@@ -0,0 +1,91 @@
+package com.github.matejonnet.osctuya.simulator;
+
+import com.github.matejonnet.osctuya.Connection;
+import com.github.matejonnet.osctuya.config.BulbConfig;
+import com.github.matejonnet.osctuya.config.Config;
+import com.github.matejonnet.osctuya.config.ConfigReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process Tuya device server, runs any number of {@link SimulatedBulb}s on localhost for the load and fault testing.
+ *
+ * Run it with the bridge config to simulate the configured bulbs, the bulbs listen on their configured ports
+ * (6668 when not set) of the loopback address, use distinct ports and 127.0.0.1 as the bulb ip.
+ */
+public class TuyaSimulator implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(TuyaSimulator.class);
+
+    private final SimulatorFaults faults;
+    private final ExecutorService executor = Executors.newCachedThreadPool(daemonThreads("simulator-"));
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("simulator-replies-"));
+    private final List<SimulatedBulb> bulbs = new CopyOnWriteArrayList<>();
+
+    public TuyaSimulator() {
+        this(SimulatorFaults.NONE);
+    }
+
+    public TuyaSimulator(SimulatorFaults faults) {
+        this.faults = faults;
+    }
+
+    /**
+     * Starts a bulb on a free port, see {@link SimulatedBulb#getPort()}.
+     */
+    public SimulatedBulb addBulb(String devId, String localKey) throws IOException {
+        return addBulb(devId, localKey, 0);
+    }
+
+    public SimulatedBulb addBulb(String devId, String localKey, int port) throws IOException {
+        SimulatedBulb bulb = new SimulatedBulb(devId, localKey, port, faults, executor, scheduler);
+        bulbs.add(bulb);
+        logger.debug("Simulated bulb {} listening on {}.", devId, bulb.getPort());
+        return bulb;
+    }
+
+    public List<SimulatedBulb> getBulbs() {
+        return bulbs;
+    }
+
+    @Override
+    public void close() {
+        bulbs.forEach(SimulatedBulb::close);
+        executor.shutdownNow();
+        scheduler.shutdownNow();
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length != 1) {
+            logger.error("Missing arguments: first argument must be a path to the bulbs config.");
+            return;
+        }
+        Config config = ConfigReader.getConfig(new File(args[0]));
+        TuyaSimulator simulator = new TuyaSimulator();
+        for (BulbConfig bulbConfig : config.getBulbs()) {
+            SimulatedBulb bulb = simulator.addBulb(bulbConfig.getId(), bulbConfig.getKey(), bulbConfig.getPort().orElse(Connection.DEFAULT_PORT));
+            logger.info("Simulating {} on port {}.", bulbConfig.getName(), bulb.getPort());
+        }
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,34 @@
+package com.github.matejonnet.osctuya;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AckTrackerTest {
+
+    @Test
+    public void shouldReleaseInFlightOnAckAndExpiry() {
+        AtomicInteger acknowledgements = new AtomicInteger();
+        AckTracker ackTracker = new AckTracker(acknowledgements::incrementAndGet);
+        ackTracker.sent(1, 100);
+        ackTracker.sent(2, 200);
+        ackTracker.sent(3, 300);
+        Assertions.assertEquals(3, ackTracker.getInFlight());
+
+        Assertions.assertEquals(50, ackTracker.acknowledged(2, 250));
+        Assertions.assertEquals(-1, ackTracker.acknowledged(2, 260));
+        Assertions.assertEquals(2, ackTracker.getInFlight());
+        Assertions.assertEquals(1, acknowledgements.get());
+
+        ackTracker.expire(250);
+        Assertions.assertEquals(1, ackTracker.getInFlight());
+        Assertions.assertEquals(1, ackTracker.getExpired());
+        Assertions.assertEquals(-1, ackTracker.acknowledged(1, 400));
+
+        ackTracker.forget(3);
+        ackTracker.forget(3);
+        Assertions.assertEquals(0, ackTracker.getInFlight());
+        Assertions.assertEquals(-1, ackTracker.acknowledged(3, 400));
+    }
+}
@@ -0,0 +1,89 @@
+package com.github.matejonnet.osctuya;
+
+import com.github.matejonnet.osctuya.config.Config;
+import com.github.matejonnet.osctuya.simulator.SimulatedBulb;
+import com.github.matejonnet.osctuya.simulator.TuyaSimulator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+public class BulbConnectorTest {
+
+    private static final String DEVICE_ID = "0123456789abcdef012345";
+    private static final String DEVICE_KEY = "0123456789abcdef";
+
+    private final Config config = Config.builder().sendQueueSize(10).build();
+
+    @Test
+    public void shouldConnectInParallelAndSendHeldCommands() throws Exception {
+        try (TuyaSimulator simulator = new TuyaSimulator()) {
+            List<SimulatedBulb> simulated = new ArrayList<>();
+            List<Bulb> bulbs = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                String deviceId = DEVICE_ID.substring(0, DEVICE_ID.length() - 1) + i;
+                SimulatedBulb simulatedBulb = simulator.addBulb(deviceId, DEVICE_KEY);
+                simulated.add(simulatedBulb);
+                Bulb bulb = new Bulb("127.0.0.1", simulatedBulb.getPort(), deviceId, DEVICE_KEY, "simulated-" + i, config);
+                // not connected yet, held and conflated
+                bulb.setBrightness(10);
+                bulb.setBrightness(50);
+                bulbs.add(bulb);
+            }
+
+            BulbConnector connector = new BulbConnector(bulbs, 2).start();
+
+            connector.getAllConnected().get(5, TimeUnit.SECONDS);
+            Assertions.assertTrue(connector.getAttempted().isDone());
+            Assertions.assertEquals(4, connector.getConnected());
+            for (SimulatedBulb simulatedBulb : simulated) {
+                await(() -> simulatedBulb.get(DataPoint.BRIGHTNESS) == 505);
+                Assertions.assertEquals(1, simulatedBulb.getReceivedFrames());
+            }
+            bulbs.forEach(Bulb::close);
+        }
+    }
+
+    @Test
+    public void shouldStopCheckingReadinessOnClose() throws Exception {
+        int closedPort;
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            closedPort = serverSocket.getLocalPort();
+        }
+        Bulb offline = new Bulb("127.0.0.1", closedPort, DEVICE_ID, DEVICE_KEY, "offline", config);
+        List<TimingWheel.Timeout> scheduled = new ArrayList<>();
+        try (TimingWheel timer = new TimingWheel("test-timer", 1, 64) {
+            @Override
+            public Timeout scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit) {
+                Timeout timeout = super.scheduleAtFixedRate(task, initialDelay, period, unit);
+                scheduled.add(timeout);
+                return timeout;
+            }
+        }) {
+            BulbConnector connector = new BulbConnector(List.of(offline), 1, BulbExecutors.connectors(), timer).start();
+            connector.getAttempted().get(5, TimeUnit.SECONDS);
+            Assertions.assertEquals(0, connector.getConnected());
+
+            connector.close();
+            Assertions.assertEquals(1, scheduled.size());
+            Assertions.assertTrue(scheduled.get(0).isCancelled());
+            Assertions.assertFalse(connector.getAllConnected().isDone());
+        } finally {
+            offline.close();
+        }
+    }
+
+    private void await(BooleanSupplier condition) throws InterruptedException {
+        long until = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > until) {
+                Assertions.fail("Condition not met in time.");
+            }
+            Thread.sleep(10);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.github.matejonnet.osctuya;
 import com.github.matejonnet.osctuya.config.BulbConfig;
 import com.github.matejonnet.osctuya.config.Config;
 import com.github.matejonnet.osctuya.config.ConfigReader;
+import com.github.matejonnet.osctuya.config.GroupConfig;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
@@ -19,6 +20,14 @@ public class ConfigurationTest {
 
     private static final Logger log = LoggerFactory.getLogger(ConfigurationTest.class);
 
+    @Test
+    public void shouldRejectReadTimeoutShorterThanHeartbeats() {
+        Config config = Config.builder().heartbeatIntervalMillis(4000).readTimeoutMillis(9000).build();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ConnectionTimeouts.of(config));
+        Assertions.assertEquals(10000, ConnectionTimeouts.of(Config.builder().build()).readMillis());
+        Assertions.assertEquals(1000, ConnectionTimeouts.of(Config.builder().heartbeatIntervalMillis(0).readTimeoutMillis(1000).build()).readMillis());
+    }
+
     @Test
     public void shouldReadTheConfig() throws IOException {
         Config config = ConfigReader.getConfig(new File(CommnadsRemoteTest.class.getClassLoader().getResource("config.yaml").getFile()));
@@ -27,5 +36,13 @@ public class ConfigurationTest {
         List<BulbConfig> bulbs = config.getBulbs();
         log.info("toString: {}", bulbs);
         Assertions.assertTrue(bulbs.size() > 0);
+
+        GroupConfig group = config.getGroups().get(0);
+        Assertions.assertEquals(List.of("RGBW 001", "RGBW 002"), group.getBulbs());
+        Assertions.assertEquals("/1/dmx/1", group.getOsc().getAddresses().getBrighnes().get());
+        Assertions.assertTrue(group.getOsc().getAddresses().getTemperature().isEmpty());
+        Assertions.assertEquals(2, group.getDmx().get().getUniverse());
+
+        Assertions.assertEquals(8, bulbs.get(1).getDmx().get().getBrightness().get());
     }
 }
@@ -0,0 +1,22 @@
+package com.github.matejonnet.osctuya;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ConnectionSupervisorTest {
+
+    @Test
+    public void shouldDoubleBackoffUpToMaximum() {
+        Assertions.assertEquals(100, ConnectionSupervisor.backoffMillis(1, 100, 30000, 1));
+        Assertions.assertEquals(200, ConnectionSupervisor.backoffMillis(2, 100, 30000, 1));
+        Assertions.assertEquals(800, ConnectionSupervisor.backoffMillis(4, 100, 30000, 1));
+        Assertions.assertEquals(30000, ConnectionSupervisor.backoffMillis(20, 100, 30000, 1));
+        Assertions.assertEquals(30000, ConnectionSupervisor.backoffMillis(1000, 100, 30000, 1));
+    }
+
+    @Test
+    public void shouldJitterBetweenHalfAndFullDelay() {
+        Assertions.assertEquals(400, ConnectionSupervisor.backoffMillis(4, 100, 30000, 0));
+        Assertions.assertEquals(600, ConnectionSupervisor.backoffMillis(4, 100, 30000, 0.5));
+    }
+}
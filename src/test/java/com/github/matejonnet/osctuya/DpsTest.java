@@ -0,0 +1,30 @@
+package com.github.matejonnet.osctuya;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+public class DpsTest {
+
+    @Test
+    public void shouldMergeLatestValues() {
+        Dps frame = new Dps().set(DataPoint.POWER, true).set(DataPoint.BRIGHTNESS, 10);
+        frame.merge(new Dps().set(DataPoint.BRIGHTNESS, 500).set(DataPoint.MODE, 1).set(DataPoint.COLOUR, Utils.packHsv(255, 0, 0)));
+
+        Map<String, Object> map = frame.toMap();
+        Assertions.assertEquals(4, map.size());
+        Assertions.assertEquals(true, map.get("20"));
+        Assertions.assertEquals("colour", map.get("21"));
+        Assertions.assertEquals(500, map.get("22"));
+        Assertions.assertEquals("000003E803E8", map.get("24"));
+    }
+
+    @Test
+    public void packedHsvShouldMatchTheHexColor() {
+        int packed = Utils.packHsv(120, 200, 50);
+        Assertions.assertEquals(Utils.getHexColor(120, 200, 50), Utils.getHexColor(packed));
+        Assertions.assertEquals(1000, Utils.saturation(Utils.packHsv(0, 0, 255)));
+        Assertions.assertEquals(240, Utils.hue(Utils.packHsv(0, 0, 255)));
+    }
+}
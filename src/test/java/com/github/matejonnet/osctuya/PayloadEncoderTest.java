@@ -0,0 +1,102 @@
+package com.github.matejonnet.osctuya;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+
+public class PayloadEncoderTest {
+
+    private static final String DEVICE_ID = "0123456789abcdef012345";
+    private static final String DEVICE_KEY = "0123456789abcdef";
+
+    @Test
+    public void shouldEncodeControlFrame() throws Exception, PayloadGenerationException {
+        PayloadEncoder encoder = new PayloadEncoder(DEVICE_ID, DEVICE_KEY);
+        Dps dps = new Dps().set(DataPoint.POWER, true).set(DataPoint.BRIGHTNESS, 505).set(DataPoint.MODE, 1).set(DataPoint.COLOUR, Utils.packHsv(0, 0, 255));
+
+        ByteBuffer frame = encoder.encode(dps, 42);
+        byte[] bytes = Arrays.copyOfRange(frame.array(), frame.position(), frame.limit());
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+        Assertions.assertEquals(0x000055AA, buffer.getInt(0));
+        Assertions.assertEquals(42, buffer.getInt(4));
+        Assertions.assertEquals(7, buffer.getInt(8));
+        Assertions.assertEquals(bytes.length - 16, buffer.getInt(12));
+        Assertions.assertEquals("3.3", new String(bytes, 16, 3, StandardCharsets.US_ASCII));
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 8);
+        Assertions.assertEquals((int) crc.getValue(), buffer.getInt(bytes.length - 8));
+        Assertions.assertEquals(0x0000AA55, buffer.getInt(bytes.length - 4));
+
+        Cipher cipher = Cipher.getInstance("AES/ECB/PKCS5Padding");
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(DEVICE_KEY.getBytes(StandardCharsets.UTF_8), "AES"));
+        byte[] json = cipher.doFinal(bytes, 31, bytes.length - 31 - 8);
+        JsonNode payload = Mapper.getJson().readTree(json);
+        Assertions.assertEquals(DEVICE_ID, payload.get("devId").asText());
+        Assertions.assertEquals(DEVICE_ID, payload.get("uid").asText());
+        Assertions.assertTrue(Math.abs(System.currentTimeMillis() / 1000 - payload.get("t").asLong()) < 5);
+        JsonNode sentDps = payload.get("dps");
+        Assertions.assertTrue(sentDps.get("20").asBoolean());
+        Assertions.assertEquals("colour", sentDps.get("21").asText());
+        Assertions.assertEquals(505, sentDps.get("22").asInt());
+        Assertions.assertEquals("00F003E803E8", sentDps.get("24").asText());
+    }
+
+    @Test
+    public void shouldEncodeLargerFrameAfterSmallerOne() throws Exception, PayloadGenerationException {
+        PayloadEncoder encoder = new PayloadEncoder(DEVICE_ID, DEVICE_KEY);
+
+        JsonNode small = decrypt(encoder.encode(new Dps().set(DataPoint.POWER, false), 1));
+        Assertions.assertFalse(small.get("dps").get("20").asBoolean());
+
+        Dps colour = new Dps().set(DataPoint.POWER, true).set(DataPoint.BRIGHTNESS, 1000).set(DataPoint.TEMPERATURE, 1000)
+                .set(DataPoint.MODE, 1).set(DataPoint.COLOUR, Utils.packHsv(255, 0, 0));
+        JsonNode large = decrypt(encoder.encode(colour, 2));
+        JsonNode sentDps = large.get("dps");
+        Assertions.assertTrue(sentDps.get("20").asBoolean());
+        Assertions.assertEquals("colour", sentDps.get("21").asText());
+        Assertions.assertEquals(1000, sentDps.get("23").asInt());
+        Assertions.assertEquals("000003E803E8", sentDps.get("24").asText());
+    }
+
+    @Test
+    public void shouldEncodeHeartbeatFrame() throws Exception, PayloadGenerationException {
+        PayloadEncoder encoder = new PayloadEncoder(DEVICE_ID, DEVICE_KEY);
+        encoder.encode(new Dps().set(DataPoint.BRIGHTNESS, 505), 1);
+
+        ByteBuffer frame = encoder.encodeHeartbeat(43);
+        byte[] bytes = Arrays.copyOfRange(frame.array(), frame.position(), frame.limit());
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+        Assertions.assertEquals(0x000055AA, buffer.getInt(0));
+        Assertions.assertEquals(43, buffer.getInt(4));
+        Assertions.assertEquals(9, buffer.getInt(8));
+        Assertions.assertEquals(bytes.length - 16, buffer.getInt(12));
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 8);
+        Assertions.assertEquals((int) crc.getValue(), buffer.getInt(bytes.length - 8));
+
+        Cipher cipher = Cipher.getInstance("AES/ECB/PKCS5Padding");
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(DEVICE_KEY.getBytes(StandardCharsets.UTF_8), "AES"));
+        JsonNode payload = Mapper.getJson().readTree(cipher.doFinal(bytes, 16, bytes.length - 16 - 8));
+        Assertions.assertEquals(DEVICE_ID, payload.get("devId").asText());
+        Assertions.assertEquals(DEVICE_ID, payload.get("gwId").asText());
+    }
+
+    private static JsonNode decrypt(ByteBuffer frame) throws Exception {
+        byte[] bytes = Arrays.copyOfRange(frame.array(), frame.position(), frame.limit());
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 8);
+        Assertions.assertEquals((int) crc.getValue(), ByteBuffer.wrap(bytes).getInt(bytes.length - 8));
+        Cipher cipher = Cipher.getInstance("AES/ECB/PKCS5Padding");
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(DEVICE_KEY.getBytes(StandardCharsets.UTF_8), "AES"));
+        return Mapper.getJson().readTree(cipher.doFinal(bytes, 31, bytes.length - 31 - 8));
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.matejonnet.osctuya;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class RateControllerTest {
+
+    private static final long TARGET_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    public void shouldIncreaseAdditivelyAndDecreaseMultiplicatively() {
+        RateController controller = new RateController(5, 50, 100);
+        long now = System.nanoTime();
+        Assertions.assertEquals(200, controller.getIntervalMillis());
+
+        // one second of fast acknowledgements at the current rate adds about INCREASE frames/s
+        for (int i = 0; i < 5; i++) {
+            controller.acknowledged(TARGET_NANOS / 2, now);
+        }
+        Assertions.assertEquals(5 + RateController.INCREASE, controller.getRate(), 0.5);
+
+        for (int i = 0; i < 10000; i++) {
+            controller.acknowledged(TARGET_NANOS / 2, now);
+        }
+        Assertions.assertEquals(50, controller.getRate());
+
+        now += TARGET_NANOS;
+        controller.acknowledged(TARGET_NANOS * 2, now);
+        Assertions.assertEquals(25, controller.getRate());
+        // within the latency target of the last decrease
+        controller.written(TARGET_NANOS * 2, now + TARGET_NANOS / 2);
+        Assertions.assertEquals(25, controller.getRate());
+
+        for (int i = 1; i <= 10; i++) {
+            controller.congested(now + i * TARGET_NANOS);
+        }
+        Assertions.assertEquals(5, controller.getRate());
+        Assertions.assertEquals(4, controller.getDecreases());
+    }
+}
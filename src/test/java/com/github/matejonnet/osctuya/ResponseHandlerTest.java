@@ -0,0 +1,75 @@
+package com.github.matejonnet.osctuya;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+
+public class ResponseHandlerTest {
+
+    private static final String DEVICE_KEY = "0123456789abcdef";
+
+    @Test
+    public void shouldAcknowledgeAndConfirmStateFromSplitFrames() throws Exception, PayloadGenerationException {
+        AckTracker ackTracker = new AckTracker();
+        ResponseHandler handler = new ResponseHandler("test", DEVICE_KEY, false, ackTracker);
+        ackTracker.sent(5, System.nanoTime());
+
+        byte[] ack = frame(5, ResponseHandler.CONTROL, new byte[0]);
+        byte[] status = frame(0, ResponseHandler.STATUS, statusPayload("{\"devId\":\"x\",\"dps\":{\"20\":true,\"22\":500,\"24\":\"00F003E803E8\"},\"t\":1}"));
+        ByteBuffer stream = ByteBuffer.allocate(3 + ack.length + status.length);
+        stream.put(new byte[]{1, 2, 3}).put(ack).put(status).flip();
+
+        // deliver in small chunks
+        while (stream.hasRemaining()) {
+            ByteBuffer chunk = stream.slice(stream.position(), Math.min(7, stream.remaining()));
+            handler.onData(chunk);
+            stream.position(stream.position() + chunk.capacity());
+        }
+
+        Assertions.assertEquals(1, ackTracker.getAcknowledged());
+        Assertions.assertTrue(ackTracker.getLastRoundTripNanos() >= 0);
+        Dps confirmed = handler.getConfirmed();
+        Assertions.assertEquals(1, confirmed.get(DataPoint.POWER));
+        Assertions.assertEquals(500, confirmed.get(DataPoint.BRIGHTNESS));
+        Assertions.assertEquals(Utils.packHsv(0, 0, 255), confirmed.get(DataPoint.COLOUR));
+        Assertions.assertEquals(0, handler.getInvalidFrames());
+    }
+
+    @Test
+    public void shouldDropIncompleteFrameOnReconnect() throws Exception, PayloadGenerationException {
+        AckTracker ackTracker = new AckTracker();
+        ResponseHandler handler = new ResponseHandler("test", DEVICE_KEY, false, ackTracker);
+        ackTracker.sent(5, System.nanoTime());
+        byte[] ack = frame(5, ResponseHandler.CONTROL, new byte[0]);
+
+        // the old connection is lost in the middle of a frame
+        handler.onData(ByteBuffer.wrap(ack, 0, 20));
+        handler.onConnected();
+        handler.onData(ByteBuffer.wrap(ack));
+
+        Assertions.assertEquals(1, ackTracker.getAcknowledged());
+        Assertions.assertEquals(0, handler.getInvalidFrames());
+    }
+
+    private byte[] statusPayload(String json) throws Exception {
+        Cipher cipher = Cipher.getInstance("AES/ECB/PKCS5Padding");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(DEVICE_KEY.getBytes(StandardCharsets.UTF_8), "AES"));
+        byte[] encrypted = cipher.doFinal(json.getBytes(StandardCharsets.UTF_8));
+        return ByteBuffer.allocate(15 + encrypted.length).put("3.3".getBytes(StandardCharsets.US_ASCII))
+                .position(15).put(encrypted).array();
+    }
+
+    private byte[] frame(int sequence, int command, byte[] payload) {
+        ByteBuffer frame = ByteBuffer.allocate(16 + 4 + payload.length + 8);
+        frame.putInt(FrameDecoder.PREFIX).putInt(sequence).putInt(command).putInt(4 + payload.length + 8).putInt(0).put(payload);
+        CRC32 crc = new CRC32();
+        crc.update(frame.array(), 0, frame.position());
+        frame.putInt((int) crc.getValue()).putInt(FrameDecoder.SUFFIX);
+        return frame.array();
+    }
+}
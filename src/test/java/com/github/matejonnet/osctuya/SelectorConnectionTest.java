@@ -0,0 +1,41 @@
+package com.github.matejonnet.osctuya;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class SelectorConnectionTest {
+
+    @Test
+    public void shouldWriteAndReconnectAfterEndOfStream() throws Exception {
+        try (EventLoopGroup group = new EventLoopGroup(1);
+             ServerSocket server = new ServerSocket(0, 10, InetAddress.getLoopbackAddress())) {
+            SelectorConnection connection = new SelectorConnection("127.0.0.1", server.getLocalPort(), "test", group.next(), ConnectionTimeouts.DEFAULT, DataListener.NONE);
+            connection.connect();
+
+            try (Socket accepted = server.accept()) {
+                connection.send(ByteBuffer.wrap("first".getBytes(StandardCharsets.US_ASCII)));
+                Assertions.assertEquals("first", read(accepted.getInputStream(), 5));
+            }
+            // closing the accepted socket sends end of stream, the connection is closed by the event loop
+            Thread.sleep(200);
+
+            connection.send(ByteBuffer.wrap("second".getBytes(StandardCharsets.US_ASCII)));
+            try (Socket accepted = server.accept()) {
+                Assertions.assertEquals("second", read(accepted.getInputStream(), 6));
+            }
+            connection.close();
+        }
+    }
+
+    private String read(InputStream inputStream, int length) throws Exception {
+        byte[] bytes = inputStream.readNBytes(length);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+}
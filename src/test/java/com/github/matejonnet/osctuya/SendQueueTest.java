@@ -0,0 +1,40 @@
+package com.github.matejonnet.osctuya;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class SendQueueTest {
+
+    @Test
+    public void shouldConflateValuesAndKeepPowerChanges() {
+        SendQueue queue = new SendQueue(10);
+        queue.offer(DataPoint.BRIGHTNESS, 100);
+        queue.offerPower(true);
+        queue.offer(DataPoint.BRIGHTNESS, 200);
+        queue.offerPower(false);
+        queue.offer(DataPoint.MODE, 1, DataPoint.COLOUR, 42);
+
+        Dps frame = new Dps();
+        Assertions.assertTrue(queue.poll(frame));
+        Assertions.assertEquals(1, frame.get(DataPoint.POWER));
+        Assertions.assertEquals(200, frame.get(DataPoint.BRIGHTNESS));
+        Assertions.assertEquals(42, frame.get(DataPoint.COLOUR));
+
+        Assertions.assertTrue(queue.poll(frame));
+        Assertions.assertTrue(frame.isSet(DataPoint.POWER));
+        Assertions.assertEquals(0, frame.get(DataPoint.POWER));
+        Assertions.assertFalse(frame.isSet(DataPoint.BRIGHTNESS));
+
+        Assertions.assertFalse(queue.poll(frame));
+        Assertions.assertEquals(1, queue.getConflated());
+        Assertions.assertEquals(0, queue.getDropped());
+    }
+
+    @Test
+    public void shouldDropPowerChangesOverTheLimit() {
+        SendQueue queue = new SendQueue(1);
+        Assertions.assertTrue(queue.offerPower(true));
+        Assertions.assertFalse(queue.offerPower(false));
+        Assertions.assertEquals(1, queue.getDropped());
+    }
+}
@@ -0,0 +1,46 @@
+package com.github.matejonnet.osctuya;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class ShadowStateTest {
+
+    private static final long REFRESH_NANOS = TimeUnit.MILLISECONDS.toNanos(1000);
+
+    @Test
+    public void shouldRemoveUnchangedValuesUntilRefresh() {
+        ShadowState shadowState = new ShadowState(1000);
+        long now = REFRESH_NANOS;
+        Dps frame = new Dps().set(DataPoint.BRIGHTNESS, 500).set(DataPoint.TEMPERATURE, 100);
+        Assertions.assertEquals(0, shadowState.removeUnchanged(frame, now));
+        shadowState.sent(frame);
+
+        frame = new Dps().set(DataPoint.BRIGHTNESS, 500).set(DataPoint.TEMPERATURE, 200);
+        Assertions.assertEquals(1, shadowState.removeUnchanged(frame, now + 1));
+        Assertions.assertFalse(frame.isSet(DataPoint.BRIGHTNESS));
+        Assertions.assertTrue(frame.isSet(DataPoint.TEMPERATURE));
+
+        frame = new Dps().set(DataPoint.BRIGHTNESS, 500);
+        Assertions.assertEquals(0, shadowState.removeUnchanged(frame, now + REFRESH_NANOS));
+        Assertions.assertTrue(frame.isSet(DataPoint.BRIGHTNESS));
+    }
+
+    @Test
+    public void reportedValuesShouldOverwriteSentValues() {
+        ShadowState shadowState = new ShadowState(1000);
+        long now = REFRESH_NANOS;
+        shadowState.removeUnchanged(new Dps(), now);
+        shadowState.sent(new Dps().set(DataPoint.POWER, true));
+        shadowState.reported(new Dps().set(DataPoint.POWER, false));
+
+        Dps frame = new Dps().set(DataPoint.POWER, true);
+        Assertions.assertEquals(0, shadowState.removeUnchanged(frame, now + 1));
+        Assertions.assertTrue(frame.isSet(DataPoint.POWER));
+
+        shadowState.clear();
+        frame = new Dps().set(DataPoint.POWER, false);
+        Assertions.assertEquals(0, shadowState.removeUnchanged(frame, now + 2));
+    }
+}
@@ -0,0 +1,38 @@
+package com.github.matejonnet.osctuya;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+
+public class StreamConnectionTest {
+
+    @Test
+    public void shouldCloseStalledWrite() throws Exception {
+        ConnectionTimeouts timeouts = new ConnectionTimeouts(1000, 300, 10000, 200);
+        try (ServerSocket server = new ServerSocket(0, 10, InetAddress.getLoopbackAddress())) {
+            StreamConnection connection = new StreamConnection("127.0.0.1", server.getLocalPort(), "stalled", timeouts, DataListener.NONE);
+            connection.connect();
+            // the peer never reads, the writes block once the socket buffers are full
+            try (Socket accepted = server.accept()) {
+                ByteBuffer buffer = ByteBuffer.allocate(1024 * 1024);
+                IOException failure = Assertions.assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+                    while (true) {
+                        try {
+                            connection.send(buffer.clear());
+                        } catch (IOException e) {
+                            return e;
+                        }
+                    }
+                });
+                Assertions.assertEquals("Cannot write to stalled in 200ms.", failure.getMessage());
+                Assertions.assertFalse(connection.isConnected());
+            }
+        }
+    }
+}
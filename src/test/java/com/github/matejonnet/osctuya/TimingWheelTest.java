@@ -0,0 +1,72 @@
+package com.github.matejonnet.osctuya;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TimingWheelTest {
+
+    @Test
+    public void shouldRunTasksInDeadlineOrderNotBefore() throws Exception {
+        // 8 buckets of 1 ms, the longer delays take several rounds
+        try (TimingWheel wheel = new TimingWheel("test-wheel", 1, 8)) {
+            List<Integer> order = new CopyOnWriteArrayList<>();
+            CountDownLatch done = new CountDownLatch(3);
+            long scheduledAt = System.nanoTime();
+            long[] ranAfter = new long[3];
+            int[] delays = {30, 5, 17};
+            for (int i = 0; i < delays.length; i++) {
+                int task = i;
+                wheel.schedule(() -> {
+                    ranAfter[task] = System.nanoTime() - scheduledAt;
+                    order.add(delays[task]);
+                    done.countDown();
+                }, delays[i], TimeUnit.MILLISECONDS);
+            }
+
+            Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(List.of(5, 17, 30), order);
+            for (int i = 0; i < delays.length; i++) {
+                Assertions.assertTrue(ranAfter[i] >= TimeUnit.MILLISECONDS.toNanos(delays[i]), "Task " + i + " ran early.");
+            }
+        }
+    }
+
+    @Test
+    public void cancelledTaskShouldNotRun() throws Exception {
+        try (TimingWheel wheel = new TimingWheel("test-wheel", 1, 8)) {
+            AtomicInteger runs = new AtomicInteger();
+            TimingWheel.Timeout timeout = wheel.schedule(runs::incrementAndGet, 20, TimeUnit.MILLISECONDS);
+            CountDownLatch after = new CountDownLatch(1);
+            wheel.schedule(after::countDown, 40, TimeUnit.MILLISECONDS);
+
+            Assertions.assertTrue(timeout.cancel());
+            Assertions.assertTrue(after.await(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(0, runs.get());
+            Assertions.assertFalse(timeout.cancel());
+        }
+    }
+
+    @Test
+    public void shouldRepeatPeriodicTaskUntilCancelled() throws Exception {
+        try (TimingWheel wheel = new TimingWheel("test-wheel", 1, 8)) {
+            AtomicInteger runs = new AtomicInteger();
+            CountDownLatch threeRuns = new CountDownLatch(3);
+            TimingWheel.Timeout timeout = wheel.scheduleAtFixedRate(() -> {
+                runs.incrementAndGet();
+                threeRuns.countDown();
+            }, 0, 10, TimeUnit.MILLISECONDS);
+
+            Assertions.assertTrue(threeRuns.await(5, TimeUnit.SECONDS));
+            timeout.cancel();
+            int cancelledAt = runs.get();
+            Thread.sleep(50);
+            Assertions.assertTrue(runs.get() <= cancelledAt + 1);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.github.matejonnet.osctuya.cue;
+
+import com.github.matejonnet.osctuya.Bulb;
+import com.github.matejonnet.osctuya.DataPoint;
+import com.github.matejonnet.osctuya.Utils;
+import com.github.matejonnet.osctuya.config.Config;
+import com.github.matejonnet.osctuya.simulator.SimulatedBulb;
+import com.github.matejonnet.osctuya.simulator.TuyaSimulator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+
+public class CuePlayerTest {
+
+    private static final String DEVICE_ID = "0123456789abcdef012345";
+    private static final String DEVICE_KEY = "0123456789abcdef";
+
+    private final Config config = Config.builder().sendQueueSize(10).build();
+
+    @Test
+    public void shouldCompileTheCueFile() throws Exception {
+        CueFile cueFile = CueFile.read(new File(CuePlayerTest.class.getClassLoader().getResource("cues.yaml").getFile()));
+        Bulb first = new Bulb("127.0.0.1", DEVICE_ID, DEVICE_KEY, "RGBW 001", config);
+        Bulb second = new Bulb("127.0.0.2", DEVICE_ID, DEVICE_KEY, "RGBW 002", config);
+
+        Cue[] cues = CuePlayer.compile(cueFile.getCues(), Map.of(
+                "RGBW 001", List.of(first), "RGBW 002", List.of(second), "all", List.of(first, second)));
+
+        Assertions.assertEquals(3, cues.length);
+        Assertions.assertArrayEquals(new Bulb[]{first, second}, cues[0].bulbs());
+        Assertions.assertEquals(1000, cues[0].dps().get(DataPoint.BRIGHTNESS));
+        Assertions.assertEquals(Utils.packHsv(255, 0, 0), cues[0].dps().get(DataPoint.COLOUR));
+        Assertions.assertEquals(500_000_000L, cues[1].atNanos());
+        Assertions.assertFalse(cues[2].dps().isSet(DataPoint.COLOUR));
+        Assertions.assertEquals(500, cues[2].dps().get(DataPoint.TEMPERATURE));
+    }
+
+    @Test
+    public void shouldNotPlayWithoutCues() {
+        CuePlayer player = new CuePlayer(CueFile.builder().cues(List.of()).loopMillis(1000).build(), Map.of());
+        player.play(0);
+        Assertions.assertFalse(player.isPlaying());
+        player.close();
+    }
+
+    @Test
+    public void shouldPlayFromThePosition() throws Exception {
+        try (TuyaSimulator simulator = new TuyaSimulator()) {
+            SimulatedBulb simulated = simulator.addBulb(DEVICE_ID, DEVICE_KEY);
+            Bulb bulb = new Bulb("127.0.0.1", simulated.getPort(), DEVICE_ID, DEVICE_KEY, "simulated", config);
+            bulb.connect();
+            CueFile cueFile = CueFile.builder().cues(List.of(
+                    CueConfig.builder().at(0).targets(List.of("simulated")).brightness(Optional.of(10)).build(),
+                    CueConfig.builder().at(100).targets(List.of("simulated")).temperature(Optional.of(200)).build(),
+                    CueConfig.builder().at(200).targets(List.of("simulated")).brightness(Optional.of(100)).build()))
+                    .build();
+            CuePlayer player = new CuePlayer(cueFile, Map.of("simulated", List.of(bulb)));
+
+            long startedAt = System.currentTimeMillis();
+            player.play(150);
+            // the state before the position is applied at once
+            await(() -> simulated.get(DataPoint.TEMPERATURE) == 200 && simulated.get(DataPoint.BRIGHTNESS) == 109);
+            await(() -> simulated.get(DataPoint.BRIGHTNESS) == 1000);
+            Assertions.assertTrue(System.currentTimeMillis() - startedAt >= 50);
+            await(() -> !player.isPlaying());
+            player.close();
+            bulb.close();
+        }
+    }
+
+    private void await(BooleanSupplier condition) throws InterruptedException {
+        long until = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > until) {
+                Assertions.fail("Condition not met in time.");
+            }
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.github.matejonnet.osctuya.dmx;
+
+import com.github.matejonnet.osctuya.Bulb;
+import com.github.matejonnet.osctuya.config.Config;
+import com.github.matejonnet.osctuya.metrics.DmxMetrics;
+import com.github.matejonnet.osctuya.osc.BulbCommand;
+import com.github.matejonnet.osctuya.osc.TuyaCommand;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class DmxReceiverTest {
+
+    private final Config config = Config.builder().sendQueueSize(10).build();
+    private final Bulb bulb = new Bulb("127.0.0.1", 6668, "0123456789abcdef012345", "0123456789abcdef", "dmx", config);
+    private final List<DmxRoute> routes = List.of(
+            new DmxRoute(1, 2, bulb, TuyaCommand.BRIGHTNESS),
+            new DmxRoute(1, 4, bulb, TuyaCommand.RED));
+
+    @Test
+    public void shouldRouteOnlyChangedChannels() {
+        BlockingQueue<BulbCommand> commands = new LinkedBlockingQueue<>();
+        DmxMetrics metrics = new DmxMetrics();
+        DmxRouter router = new DmxRouter(routes, commands::add, metrics);
+        DmxFrame frame = new DmxFrame();
+        byte[] levels = new byte[512];
+        levels[1] = (byte) 255;
+
+        Assertions.assertTrue(DmxProtocol.ARTNET.parse(artNet(1, 1, levels), frame));
+        router.accept(frame, System.nanoTime());
+        Assertions.assertEquals(2, commands.size());
+        BulbCommand brightness = commands.poll();
+        Assertions.assertEquals(TuyaCommand.BRIGHTNESS, brightness.command());
+        Assertions.assertEquals(1f, brightness.value());
+        commands.clear();
+
+        // the whole universe again, only the red channel changed
+        levels[3] = 51;
+        levels[100] = 1;
+        DmxProtocol.ARTNET.parse(artNet(1, 2, levels), frame);
+        router.accept(frame, System.nanoTime());
+        BulbCommand red = commands.poll();
+        Assertions.assertEquals(TuyaCommand.RED, red.command());
+        Assertions.assertEquals(0.2f, red.value(), 0.001);
+        Assertions.assertTrue(commands.isEmpty());
+
+        // late packet
+        levels[3] = 0;
+        DmxProtocol.ARTNET.parse(artNet(1, 1, levels), frame);
+        router.accept(frame, System.nanoTime());
+        Assertions.assertTrue(commands.isEmpty());
+        Assertions.assertEquals(1, metrics.getPacketsOutOfOrder());
+        Assertions.assertEquals(3, metrics.getChannelsChanged());
+
+        // other universe
+        DmxProtocol.ARTNET.parse(artNet(2, 3, levels), frame);
+        router.accept(frame, System.nanoTime());
+        Assertions.assertTrue(commands.isEmpty());
+    }
+
+    @Test
+    public void shouldRejectOtherPackets() {
+        DmxFrame frame = new DmxFrame();
+        byte[] levels = new byte[512];
+        Assertions.assertFalse(DmxProtocol.ARTNET.parse(sacn(1, 0, 0, levels), frame));
+        Assertions.assertFalse(DmxProtocol.SACN.parse(artNet(1, 0, levels), frame));
+        Assertions.assertFalse(DmxProtocol.SACN.parse(ByteBuffer.wrap("/0/dmx/1".getBytes(StandardCharsets.US_ASCII)), frame));
+
+        // preview data is valid but not applied
+        Assertions.assertTrue(DmxProtocol.SACN.parse(sacn(1, 0, 0x80, levels), frame));
+        Assertions.assertFalse(frame.dmx);
+    }
+
+    @Test
+    public void shouldRejectUniverseOutOfRange() {
+        DmxProtocol.ARTNET.checkUniverse(0, "bulb first");
+        DmxProtocol.ARTNET.checkUniverse(32767, "bulb first");
+        IllegalArgumentException artNet = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> DmxProtocol.ARTNET.checkUniverse(32768, "bulb first"));
+        Assertions.assertEquals("Art-Net universe of bulb first must be 0 - 32767, not 32768.", artNet.getMessage());
+
+        DmxProtocol.SACN.checkUniverse(1, "group all");
+        DmxProtocol.SACN.checkUniverse(63999, "group all");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> DmxProtocol.SACN.checkUniverse(64000, "group all"));
+        IllegalArgumentException sacn = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> DmxProtocol.SACN.checkUniverse(0, "group all"));
+        Assertions.assertEquals("sACN universe of group all must be 1 - 63999, not 0.", sacn.getMessage());
+    }
+
+    @Test
+    public void shouldReceiveSacnUniverse() throws Exception {
+        BlockingQueue<BulbCommand> commands = new LinkedBlockingQueue<>();
+        DmxMetrics metrics = new DmxMetrics();
+        DmxRouter router = new DmxRouter(routes, commands::add, metrics);
+        try (DmxReceiver receiver = new DmxReceiver(DmxProtocol.SACN, new InetSocketAddress("127.0.0.1", 0), null, router, metrics);
+             DatagramChannel sender = DatagramChannel.open()) {
+            InetSocketAddress target = new InetSocketAddress(InetAddress.getLoopbackAddress(), receiver.getPort());
+            byte[] levels = new byte[512];
+            levels[1] = 127;
+            sender.send(sacn(1, 7, 0, levels), target);
+
+            BulbCommand command = commands.poll(5, TimeUnit.SECONDS);
+            Assertions.assertNotNull(command);
+            Assertions.assertEquals(TuyaCommand.BRIGHTNESS, command.command());
+            Assertions.assertEquals(127 / 255f, command.value());
+            // the first packet sets all the mapped channels
+            Assertions.assertEquals(TuyaCommand.RED, commands.poll(5, TimeUnit.SECONDS).command());
+
+            sender.send(ByteBuffer.wrap(new byte[] {1, 2, 3}), target);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (metrics.getPacketsInvalid() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assertions.assertEquals(2, metrics.getPacketsReceived());
+            Assertions.assertEquals(1, metrics.getPacketsInvalid());
+            Assertions.assertTrue(commands.isEmpty());
+        }
+    }
+
+    static ByteBuffer artNet(int universe, int sequence, byte[] levels) {
+        ByteBuffer packet = ByteBuffer.allocate(18 + levels.length);
+        packet.put("Art-Net\0".getBytes(StandardCharsets.US_ASCII));
+        packet.put((byte) 0x00).put((byte) 0x50); // OpDmx, little endian
+        packet.put((byte) 0).put((byte) 14);
+        packet.put((byte) sequence).put((byte) 0);
+        packet.put((byte) universe).put((byte) (universe >> 8));
+        packet.putShort((short) levels.length);
+        packet.put(levels);
+        return packet.flip();
+    }
+
+    static ByteBuffer sacn(int universe, int sequence, int options, byte[] levels) {
+        ByteBuffer packet = ByteBuffer.allocate(126 + levels.length);
+        // root layer
+        packet.putShort((short) 0x0010).putShort((short) 0);
+        packet.put("ASC-E1.17\0\0\0".getBytes(StandardCharsets.US_ASCII));
+        packet.putShort((short) (0x7000 | packet.capacity() - 16));
+        packet.putInt(0x00000004);
+        packet.put(new byte[16]); // CID
+        // framing layer
+        packet.putShort((short) (0x7000 | packet.capacity() - 38));
+        packet.putInt(0x00000002);
+        packet.put(new byte[64]); // source name
+        packet.put((byte) 100); // priority
+        packet.putShort((short) 0); // synchronization address
+        packet.put((byte) sequence);
+        packet.put((byte) options);
+        packet.putShort((short) universe);
+        // DMP layer
+        packet.putShort((short) (0x7000 | packet.capacity() - 115));
+        packet.put((byte) 0x02).put((byte) 0xa1);
+        packet.putShort((short) 0).putShort((short) 1);
+        packet.putShort((short) (levels.length + 1));
+        packet.put((byte) 0); // start code
+        packet.put(levels);
+        return packet.flip();
+    }
+}
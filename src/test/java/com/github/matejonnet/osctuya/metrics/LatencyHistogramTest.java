@@ -0,0 +1,48 @@
+package com.github.matejonnet.osctuya.metrics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketsShouldBeContinuous() {
+        long lowest = 0;
+        for (int bucket = 0; bucket < LatencyHistogram.bucket(Long.MAX_VALUE) + 1; bucket++) {
+            long highest = LatencyHistogram.highestValue(bucket);
+            Assertions.assertEquals(bucket, LatencyHistogram.bucket(lowest), "Lowest value of bucket " + bucket);
+            Assertions.assertEquals(bucket, LatencyHistogram.bucket(highest), "Highest value of bucket " + bucket);
+            if (highest == Long.MAX_VALUE) {
+                return;
+            }
+            lowest = highest + 1;
+        }
+        Assertions.fail("Long.MAX_VALUE is not in the last bucket.");
+    }
+
+    @Test
+    public void shouldReportQuantilesWithinPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 10000; i++) {
+            histogram.record(i * 1000);
+        }
+
+        Assertions.assertEquals(10000, histogram.getCount());
+        Assertions.assertEquals(10_000_000, histogram.getMax());
+        assertWithin(5_000_000, histogram.getValueAtQuantile(0.5));
+        assertWithin(9_900_000, histogram.getValueAtQuantile(0.99));
+        Assertions.assertEquals(10_000_000, histogram.getValueAtQuantile(1));
+    }
+
+    @Test
+    public void shouldIgnoreNegativeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-1);
+        Assertions.assertEquals(0, histogram.getCount());
+        Assertions.assertEquals(0, histogram.getValueAtQuantile(0.5));
+    }
+
+    private void assertWithin(long expected, long actual) {
+        Assertions.assertTrue(Math.abs(actual - expected) <= expected / 16, "Expected ~" + expected + " but was " + actual);
+    }
+}
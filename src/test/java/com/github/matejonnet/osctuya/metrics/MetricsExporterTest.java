@@ -0,0 +1,66 @@
+package com.github.matejonnet.osctuya.metrics;
+
+import com.github.matejonnet.osctuya.Bulb;
+import com.github.matejonnet.osctuya.config.Config;
+import com.github.matejonnet.osctuya.simulator.SimulatedBulb;
+import com.github.matejonnet.osctuya.simulator.TuyaSimulator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.management.ObjectName;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public class MetricsExporterTest {
+
+    private static final String DEVICE_ID = "0123456789abcdef012345";
+    private static final String DEVICE_KEY = "0123456789abcdef";
+
+    @Test
+    public void shouldExportBulbMetrics() throws Exception {
+        Config config = Config.builder().sendQueueSize(10).build();
+        try (TuyaSimulator simulator = new TuyaSimulator()) {
+            SimulatedBulb simulated = simulator.addBulb(DEVICE_ID, DEVICE_KEY);
+            Bulb bulb = new Bulb("127.0.0.1", simulated.getPort(), DEVICE_ID, DEVICE_KEY, "metrics \"test\"", config);
+            bulb.connect();
+            OscMetrics oscMetrics = new OscMetrics();
+            oscMetrics.messageReceived();
+
+            bulb.received(System.nanoTime());
+            bulb.setBrightness(50);
+            long deadline = System.currentTimeMillis() + 5000;
+            // the round trip is recorded after the acknowledgement is counted
+            while (bulb.getMetrics().getAckRoundTrip().getCount() < 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            BulbMetrics metrics = bulb.getMetrics();
+            Assertions.assertEquals(1, metrics.getCommandsReceived());
+            Assertions.assertEquals(1, metrics.getFramesSent());
+            Assertions.assertTrue(metrics.getBytesSent() > 0);
+            Assertions.assertEquals(1, metrics.getOscToWriteLatency().getCount());
+            Assertions.assertEquals(1, metrics.getAckRoundTrip().getCount());
+
+            try (MetricsExporter exporter = new MetricsExporter(List.of(bulb), oscMetrics)) {
+                exporter.registerMBeans();
+                ObjectName name = new ObjectName("com.github.matejonnet.osctuya:type=Bulb,name=" + ObjectName.quote(bulb.getName()));
+                Assertions.assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "FramesSent"));
+
+                exporter.startHttp("127.0.0.1", 0);
+                String scraped;
+                try (InputStream inputStream = new URL("http://127.0.0.1:" + exporter.getHttpPort() + "/metrics").openStream()) {
+                    scraped = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+                }
+                Assertions.assertTrue(scraped.contains("osctuya_osc_messages_received_total 1\n"), scraped);
+                Assertions.assertTrue(scraped.contains("osctuya_bulb_frames_sent_total{bulb=\"metrics \\\"test\\\"\"} 1\n"), scraped);
+                Assertions.assertTrue(scraped.contains("osctuya_bulb_osc_to_write_latency_seconds_count{bulb=\"metrics \\\"test\\\"\"} 1\n"), scraped);
+            }
+            Assertions.assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(
+                    new ObjectName("com.github.matejonnet.osctuya:type=Bulb,name=" + ObjectName.quote(bulb.getName()))));
+            bulb.close();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.github.matejonnet.osctuya.osc;
+
+import com.github.matejonnet.osctuya.Bulb;
+import com.github.matejonnet.osctuya.config.Config;
+import com.github.matejonnet.osctuya.config.GroupConfig;
+import com.github.matejonnet.osctuya.config.Osc;
+import com.github.matejonnet.osctuya.config.OscAddress;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+public class AddressRouterTest {
+
+    private final Config config = Config.builder().sendQueueSize(10).build();
+
+    @Test
+    public void shouldRouteToAllBulbsSharingTheAddress() {
+        BulbWithAddresses first = new BulbWithAddresses(new Bulb("127.0.0.1", "id1", "0123456789abcdef", "first", config));
+        first.putMapping(TuyaCommand.POWER, "/0/dmx/0");
+        first.putMapping(TuyaCommand.RED, "/0/dmx/1");
+        BulbWithAddresses second = new BulbWithAddresses(new Bulb("127.0.0.2", "id2", "0123456789abcdef", "second", config));
+        second.putMapping(TuyaCommand.POWER, "/0/dmx/0");
+
+        AddressRouter router = new AddressRouter(List.of(first, second));
+
+        BulbRoute[] power = router.route("/0/dmx/0");
+        Assertions.assertEquals(2, power.length);
+        BulbRoute[] red = router.route("/0/dmx/1");
+        Assertions.assertEquals(1, red.length);
+        Assertions.assertSame(first.getBulb(), red[0].bulb());
+        Assertions.assertEquals(TuyaCommand.RED, red[0].command());
+        Assertions.assertEquals(0, router.route("/0/dmx/2").length);
+
+        ByteBuffer packet = ByteBuffer.wrap("/0/dmx/1\0\0\0\0".getBytes(StandardCharsets.US_ASCII));
+        Assertions.assertSame(red, router.route(packet, 0, 8));
+        Assertions.assertEquals(0, router.route(packet, 0, 7).length);
+    }
+
+    @Test
+    public void shouldRouteGroupAddressToEveryMember() {
+        BulbWithAddresses first = new BulbWithAddresses(new Bulb("127.0.0.1", "id1", "0123456789abcdef", "first", config));
+        first.putMapping(TuyaCommand.RED, "/0/dmx/1");
+        BulbWithAddresses second = new BulbWithAddresses(new Bulb("127.0.0.2", "id2", "0123456789abcdef", "second", config));
+        BulbWithAddresses third = new BulbWithAddresses(new Bulb("127.0.0.3", "id3", "0123456789abcdef", "third", config));
+        // same name as the first one, not referenced by the groups
+        BulbWithAddresses duplicate = new BulbWithAddresses(new Bulb("127.0.0.4", "id4", "0123456789abcdef", "first", config));
+        List<BulbWithAddresses> bulbs = List.of(first, second, third, duplicate);
+        Map<String, BulbWithAddresses> bulbsByName = OSCApplication.getBulbsByName(bulbs);
+        Assertions.assertSame(first, bulbsByName.get("first"));
+
+        OscAddress groupAddresses = OscAddress.builder().power(Optional.of("/group/power")).build();
+        OSCApplication.addGroupAddresses(List.of(
+                GroupConfig.builder().name("group").bulbs(List.of("first", "second", "unknown"))
+                        .osc(Osc.builder().addresses(groupAddresses).build()).build(),
+                GroupConfig.builder().name("no bulbs").build(),
+                GroupConfig.builder().name("no osc").bulbs(List.of("third")).build()), bulbsByName);
+        AddressRouter router = new AddressRouter(bulbs);
+
+        BulbRoute[] power = router.route("/group/power");
+        Assertions.assertEquals(2, power.length);
+        Assertions.assertEquals(Set.of(first.getBulb(), second.getBulb()), Set.of(power[0].bulb(), power[1].bulb()));
+        Assertions.assertEquals(TuyaCommand.POWER, power[0].command());
+        // the own addresses of a member still work
+        BulbRoute[] red = router.route("/0/dmx/1");
+        Assertions.assertEquals(1, red.length);
+        Assertions.assertSame(first.getBulb(), red[0].bulb());
+    }
+}
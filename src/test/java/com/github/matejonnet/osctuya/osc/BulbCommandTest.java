@@ -0,0 +1,77 @@
+package com.github.matejonnet.osctuya.osc;
+
+import com.github.matejonnet.osctuya.Bulb;
+import com.github.matejonnet.osctuya.DataPoint;
+import com.github.matejonnet.osctuya.InvalidValueException;
+import com.github.matejonnet.osctuya.Utils;
+import com.github.matejonnet.osctuya.config.Config;
+import com.github.matejonnet.osctuya.metrics.OscMetrics;
+import com.github.matejonnet.osctuya.osc.schedulers.DirectCommandScheduler;
+import com.github.matejonnet.osctuya.simulator.SimulatedBulb;
+import com.github.matejonnet.osctuya.simulator.TuyaSimulator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+public class BulbCommandTest {
+
+    private static final String DEVICE_ID = "0123456789abcdef012345";
+    private static final String DEVICE_KEY = "0123456789abcdef";
+
+    private final Config config = Config.builder().sendQueueSize(10).build();
+
+    @Test
+    public void shouldConvertArgumentsToFloat() {
+        Assertions.assertEquals(0.5f, BulbCommand.value(List.of(0.5f)));
+        Assertions.assertEquals(0.25f, BulbCommand.value(List.of(0.25d)));
+        Assertions.assertEquals(1f, BulbCommand.value(List.of(true)));
+        Assertions.assertEquals(0f, BulbCommand.value(List.of(false)));
+        Assertions.assertThrows(InvalidValueException.class, () -> BulbCommand.value(List.of("on")));
+        Assertions.assertThrows(InvalidValueException.class, () -> BulbCommand.value(List.of()));
+    }
+
+    @Test
+    public void shouldScaleIntegersAsLevels() {
+        Assertions.assertEquals(1f, BulbCommand.value(List.of(255)));
+        Assertions.assertEquals(1f, BulbCommand.value(List.of(255L)));
+        Assertions.assertEquals(0.2f, BulbCommand.value(List.of(51)));
+        Assertions.assertEquals(0f, BulbCommand.value(List.of(0)));
+    }
+
+    @Test
+    public void shouldRejectValuesOutOfRange() {
+        Bulb bulb = new Bulb("127.0.0.1", DEVICE_ID, DEVICE_KEY, "unconnected", config);
+        BulbCommandProcessor processor = new BulbCommandProcessor();
+        Assertions.assertThrows(InvalidValueException.class,
+                () -> processor.process(bulb, TuyaCommand.RED, BulbCommand.level(256), System.nanoTime()));
+        Assertions.assertThrows(InvalidValueException.class,
+                () -> processor.process(bulb, TuyaCommand.BRIGHTNESS, -0.5f, System.nanoTime()));
+        Assertions.assertThrows(InvalidValueException.class,
+                () -> processor.process(bulb, TuyaCommand.POWER, Float.NaN, System.nanoTime()));
+    }
+
+    @Test
+    public void shouldApplyIntegerOnColourAddress() throws Exception {
+        try (TuyaSimulator simulator = new TuyaSimulator()) {
+            SimulatedBulb simulated = simulator.addBulb(DEVICE_ID, DEVICE_KEY);
+            Bulb bulb = new Bulb("127.0.0.1", simulated.getPort(), DEVICE_ID, DEVICE_KEY, "simulated", config);
+            bulb.connect();
+            BulbWithAddresses bulbWithAddresses = new BulbWithAddresses(bulb);
+            bulbWithAddresses.putMapping(TuyaCommand.RED, "/0/dmx/1");
+            OscPacketHandler handler = new OscPacketHandler(new AddressRouter(List.of(bulbWithAddresses)),
+                    new DirectCommandScheduler(), new OscMetrics(), null);
+
+            handler.handle(ByteBuffer.wrap(OscReceiverTest.message("/0/dmx/1", 'i', 255)), this, System.nanoTime());
+
+            int expected = Utils.packHsv(255, 0, 0);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (simulated.get(DataPoint.COLOUR) != expected && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assertions.assertEquals(expected, simulated.get(DataPoint.COLOUR));
+            bulb.close();
+        }
+    }
+}
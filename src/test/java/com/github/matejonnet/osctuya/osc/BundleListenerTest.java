@@ -0,0 +1,110 @@
+package com.github.matejonnet.osctuya.osc;
+
+import com.github.matejonnet.osctuya.Bulb;
+import com.github.matejonnet.osctuya.BulbExecutors;
+import com.github.matejonnet.osctuya.DataPoint;
+import com.github.matejonnet.osctuya.config.Config;
+import com.github.matejonnet.osctuya.metrics.OscMetrics;
+import com.github.matejonnet.osctuya.simulator.SimulatedBulb;
+import com.github.matejonnet.osctuya.simulator.TuyaSimulator;
+import com.illposed.osc.OSCBadDataEvent;
+import com.illposed.osc.OSCBundle;
+import com.illposed.osc.OSCMessage;
+import com.illposed.osc.OSCPacket;
+import com.illposed.osc.OSCPacketEvent;
+import com.illposed.osc.OSCPacketListener;
+import com.illposed.osc.argument.OSCTimeTag64;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+public class BundleListenerTest {
+
+    private static final String DEVICE_KEY = "0123456789abcdef";
+
+    private final Config config = Config.builder().sendQueueSize(10).heartbeatIntervalMillis(0).build();
+
+    @Test
+    public void shouldApplyBundleAtTimeTag() throws Exception {
+        try (TuyaSimulator simulator = new TuyaSimulator()) {
+            List<SimulatedBulb> simulated = new ArrayList<>();
+            List<BulbWithAddresses> bulbs = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                String deviceId = "0123456789abcdef01234" + i;
+                SimulatedBulb simulatedBulb = simulator.addBulb(deviceId, DEVICE_KEY);
+                simulated.add(simulatedBulb);
+                Bulb bulb = new Bulb("127.0.0.1", simulatedBulb.getPort(), deviceId, DEVICE_KEY, "bundle-" + i, config);
+                bulb.connect();
+                BulbWithAddresses bulbWithAddresses = new BulbWithAddresses(bulb);
+                bulbWithAddresses.putMapping(TuyaCommand.BRIGHTNESS, "/" + i + "/brightness");
+                bulbWithAddresses.putMapping(TuyaCommand.RED, "/" + i + "/red");
+                bulbs.add(bulbWithAddresses);
+            }
+            List<OSCPacket> dispatched = new ArrayList<>();
+            OscMetrics metrics = new OscMetrics();
+            BundleListener listener = new BundleListener(new RecordingDispatcher(dispatched), new AddressRouter(bulbs), metrics, BulbExecutors.timer());
+
+            Instant at = Instant.now().plusMillis(300);
+            OSCBundle bundle = new OSCBundle(List.of(
+                    new OSCMessage("/0/brightness", List.of(0.1f)),
+                    new OSCMessage("/0/brightness", List.of(0.5f)),
+                    new OSCMessage("/0/red", List.of(1f)),
+                    new OSCMessage("/1/brightness", List.of(0.5f)),
+                    new OSCMessage("/1/red", List.of(1f)),
+                    new OSCMessage("/cue/play", List.of())), OSCTimeTag64.valueOf(at));
+            listener.handlePacket(new OSCPacketEvent(this, bundle));
+
+            Assertions.assertEquals(1, dispatched.size());
+            Assertions.assertEquals("/cue/play", ((OSCMessage) ((OSCBundle) dispatched.get(0)).getPackets().get(0)).getAddress());
+            Thread.sleep(100);
+            Assertions.assertEquals(0, simulated.get(0).getReceivedFrames());
+
+            for (SimulatedBulb simulatedBulb : simulated) {
+                await(() -> simulatedBulb.get(DataPoint.BRIGHTNESS) == 505);
+                // coalesced in one frame
+                Assertions.assertNotEquals(-1, simulatedBulb.get(DataPoint.COLOUR));
+                Assertions.assertEquals(1, simulatedBulb.getReceivedFrames());
+            }
+            Assertions.assertFalse(Instant.now().isBefore(at));
+            Assertions.assertEquals(1, metrics.getBundlesReceived());
+            Assertions.assertEquals(5, metrics.getMessagesReceived());
+            bulbs.forEach(bulbWithAddresses -> bulbWithAddresses.getBulb().close());
+        }
+    }
+
+    @Test
+    public void shouldPassMessagesToDispatcher() {
+        List<OSCPacket> dispatched = new ArrayList<>();
+        BundleListener listener = new BundleListener(new RecordingDispatcher(dispatched), new AddressRouter(List.of()), new OscMetrics(), BulbExecutors.timer());
+
+        OSCMessage message = new OSCMessage("/0/brightness", List.of(0.5f));
+        listener.handlePacket(new OSCPacketEvent(this, message));
+
+        Assertions.assertEquals(List.of(message), dispatched);
+    }
+
+    private void await(BooleanSupplier condition) throws InterruptedException {
+        long until = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > until) {
+                Assertions.fail("Condition not met in time.");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private record RecordingDispatcher(List<OSCPacket> dispatched) implements OSCPacketListener {
+        @Override
+        public void handlePacket(OSCPacketEvent event) {
+            dispatched.add(event.getPacket());
+        }
+
+        @Override
+        public void handleBadData(OSCBadDataEvent event) {
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.github.matejonnet.osctuya.osc;
+
+import com.github.matejonnet.osctuya.Bulb;
+import com.github.matejonnet.osctuya.config.Config;
+import com.github.matejonnet.osctuya.metrics.OscMetrics;
+import com.illposed.osc.OSCBadDataEvent;
+import com.illposed.osc.OSCBundle;
+import com.illposed.osc.OSCMessage;
+import com.illposed.osc.OSCPacket;
+import com.illposed.osc.OSCPacketEvent;
+import com.illposed.osc.OSCPacketListener;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class OscReceiverTest {
+
+    private final Config config = Config.builder().sendQueueSize(10).build();
+    private final Bulb bulb = new Bulb("127.0.0.1", "id1", "0123456789abcdef", "receiver", config);
+    private final BlockingQueue<String> submitted = new LinkedBlockingQueue<>();
+    private final BlockingQueue<OSCPacket> parsed = new LinkedBlockingQueue<>();
+
+    @Test
+    public void shouldReceiveOverUdpAndTcp() throws Exception {
+        BulbWithAddresses bulbWithAddresses = new BulbWithAddresses(bulb);
+        bulbWithAddresses.putMapping(TuyaCommand.BRIGHTNESS, "/0/dmx/1");
+        AddressRouter router = new AddressRouter(List.of(bulbWithAddresses));
+        OscMetrics metrics = new OscMetrics();
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        try (OscReceiver receiver = new OscReceiver(address, 2, address,
+                () -> new OscPacketHandler(router, new RecordingScheduler(), metrics, new RecordingListener()));
+             DatagramChannel sender = DatagramChannel.open()) {
+            InetSocketAddress target = new InetSocketAddress(InetAddress.getLoopbackAddress(), receiver.getPort());
+
+            sender.send(ByteBuffer.wrap(message("/0/dmx/1", 'f', Float.floatToIntBits(0.5f))), target);
+            Assertions.assertEquals("BRIGHTNESS 0.5", submitted.poll(5, TimeUnit.SECONDS));
+            sender.send(ByteBuffer.wrap(message("/0/dmx/1", 'i', 255)), target);
+            Assertions.assertEquals("BRIGHTNESS 1.0", submitted.poll(5, TimeUnit.SECONDS));
+            sender.send(ByteBuffer.wrap(message("/0/dmx/1", 'h', 51L)), target);
+            Assertions.assertEquals("BRIGHTNESS 0.2", submitted.poll(5, TimeUnit.SECONDS));
+            sender.send(ByteBuffer.wrap(message("/0/dmx/1", 'd', Double.doubleToLongBits(0.75))), target);
+            Assertions.assertEquals("BRIGHTNESS 0.75", submitted.poll(5, TimeUnit.SECONDS));
+            sender.send(ByteBuffer.wrap(message("/0/dmx/1", 'F')), target);
+            Assertions.assertEquals("BRIGHTNESS 0.0", submitted.poll(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(5, metrics.getMessagesReceived());
+
+            // not routed, parsed by javaosc
+            sender.send(ByteBuffer.wrap(message("/cue/play", 'f', Float.floatToIntBits(1))), target);
+            Assertions.assertEquals("/cue/play", ((OSCMessage) parsed.poll(5, TimeUnit.SECONDS)).getAddress());
+            sender.send(ByteBuffer.wrap(bundle(message("/0/dmx/1", 'f', 0))), target);
+            Assertions.assertTrue(parsed.poll(5, TimeUnit.SECONDS) instanceof OSCBundle);
+
+            // -2.0f is 0xC0000000, escaped by SLIP
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), receiver.getTcpPort())) {
+                OutputStream out = socket.getOutputStream();
+                out.write(slip(message("/0/dmx/1", 'f', Float.floatToIntBits(-2f))));
+                out.write(slip(message("/0/dmx/1", 'f', Float.floatToIntBits(0.25f))));
+                out.flush();
+                Assertions.assertEquals("BRIGHTNESS -2.0", submitted.poll(5, TimeUnit.SECONDS));
+                Assertions.assertEquals("BRIGHTNESS 0.25", submitted.poll(5, TimeUnit.SECONDS));
+            }
+        }
+        Assertions.assertTrue(submitted.isEmpty());
+    }
+
+    @Test
+    public void shouldDecodeSlipAcrossReads() {
+        SlipDecoder decoder = new SlipDecoder(8);
+        List<String> packets = new ArrayList<>();
+        byte[] stream = {SlipDecoder.END, 'a', SlipDecoder.ESC, SlipDecoder.ESC_END, 'b', SlipDecoder.END,
+                'c', 'd', SlipDecoder.ESC, SlipDecoder.ESC_ESC, SlipDecoder.END,
+                '1', '2', '3', '4', '5', '6', '7', '8', '9', SlipDecoder.END};
+        for (int i = 0; i < stream.length; i += 4) {
+            decoder.decode(ByteBuffer.wrap(stream, i, Math.min(4, stream.length - i)), packet -> {
+                byte[] bytes = new byte[packet.remaining()];
+                packet.get(bytes);
+                packets.add(new String(bytes, StandardCharsets.ISO_8859_1));
+            });
+        }
+        // the packet larger than the buffer is dropped
+        Assertions.assertEquals(List.of("a\u00c0b", "cd\u00db"), packets);
+    }
+
+    static byte[] message(String address, char type, int value) {
+        return copy(header(address, type).putInt(value));
+    }
+
+    static byte[] message(String address, char type, long value) {
+        return copy(header(address, type).putLong(value));
+    }
+
+    static byte[] message(String address, char type) {
+        return copy(header(address, type));
+    }
+
+    private static ByteBuffer header(String address, char type) {
+        ByteBuffer message = ByteBuffer.allocate(64);
+        message.put(address.getBytes(StandardCharsets.US_ASCII));
+        message.put(new byte[4 - address.length() % 4]);
+        return message.put((byte) ',').put((byte) type).putShort((short) 0);
+    }
+
+    static byte[] bundle(byte[] message) {
+        ByteBuffer bundle = ByteBuffer.allocate(64);
+        bundle.put("#bundle\0".getBytes(StandardCharsets.US_ASCII));
+        bundle.putLong(1); // immediately
+        bundle.putInt(message.length).put(message);
+        return copy(bundle);
+    }
+
+    static byte[] slip(byte[] packet) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(SlipDecoder.END);
+        for (byte b : packet) {
+            if (b == SlipDecoder.END) {
+                out.write(SlipDecoder.ESC);
+                out.write(SlipDecoder.ESC_END);
+            } else if (b == SlipDecoder.ESC) {
+                out.write(SlipDecoder.ESC);
+                out.write(SlipDecoder.ESC_ESC);
+            } else {
+                out.write(b);
+            }
+        }
+        out.write(SlipDecoder.END);
+        return out.toByteArray();
+    }
+
+    private static byte[] copy(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.position()];
+        buffer.flip().get(bytes);
+        return bytes;
+    }
+
+    private class RecordingScheduler implements CommandScheduler {
+        @Override
+        public void submit(BulbCommand bulbCommand) {
+            Assertions.fail("Expected the primitive submit.");
+        }
+
+        @Override
+        public void submit(Bulb bulb, TuyaCommand command, float value, long receivedAt) {
+            submitted.add(command + " " + value);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private class RecordingListener implements OSCPacketListener {
+        @Override
+        public void handlePacket(OSCPacketEvent event) {
+            parsed.add(event.getPacket());
+        }
+
+        @Override
+        public void handleBadData(OSCBadDataEvent event) {
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.matejonnet.osctuya.osc;
+
+import com.github.matejonnet.osctuya.Bulb;
+import com.github.matejonnet.osctuya.config.Config;
+import com.github.matejonnet.osctuya.simulator.SimulatedBulb;
+import com.github.matejonnet.osctuya.simulator.TuyaSimulator;
+import com.illposed.osc.OSCMessage;
+import com.illposed.osc.OSCMessageEvent;
+import com.illposed.osc.argument.OSCTimeTag64;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+public class PipelineEventsTest {
+
+    private static final String DEVICE_ID = "0123456789abcdef012345";
+    private static final String DEVICE_KEY = "0123456789abcdef";
+
+    @Test
+    public void shouldRecordEventOfEachStage() throws Exception {
+        Config config = Config.builder().sendQueueSize(10).build();
+        Path file = Files.createTempFile("osctuya", ".jfr");
+        try (TuyaSimulator simulator = new TuyaSimulator(); Recording recording = new Recording()) {
+            for (String event : List.of("OscReceive", "Route", "Enqueue", "Dequeue", "Encode", "Write", "Connect")) {
+                recording.enable("com.github.matejonnet.osctuya." + event).withoutThreshold();
+            }
+            recording.start();
+
+            SimulatedBulb simulated = simulator.addBulb(DEVICE_ID, DEVICE_KEY);
+            Bulb bulb = new Bulb("127.0.0.1", simulated.getPort(), DEVICE_ID, DEVICE_KEY, "simulated", config);
+            bulb.connect();
+            BulbWithAddresses bulbWithAddresses = new BulbWithAddresses(bulb);
+            bulbWithAddresses.putMapping(TuyaCommand.BRIGHTNESS, "/0/dmx/1");
+            BulbCommandProcessor processor = new BulbCommandProcessor();
+            TuyaMessageListener listener = new TuyaMessageListener(new AddressRouter(List.of(bulbWithAddresses)), processor::process);
+
+            listener.acceptMessage(new OSCMessageEvent(this, OSCTimeTag64.IMMEDIATE, new OSCMessage("/0/dmx/1", List.of(0.5f))));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (bulb.getAcknowledgedCommands() < 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            bulb.close();
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        Map<String, RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .collect(Collectors.toMap(event -> event.getEventType().getLabel(), Function.identity(), (first, second) -> first));
+        Files.delete(file);
+
+        Assertions.assertEquals("/0/dmx/1", events.get("OSC Receive").getString("address"));
+        Assertions.assertEquals(1, events.get("Route").getInt("routes"));
+        Assertions.assertEquals("BRIGHTNESS", events.get("Enqueue").getString("command"));
+        Assertions.assertEquals(0, events.get("Dequeue").getInt("sequence"));
+        Assertions.assertEquals(0, events.get("Encode").getInt("sequence"));
+        Assertions.assertTrue(events.get("Write").getBoolean("success"));
+        Assertions.assertEquals("simulated", events.get("Write").getString("bulb"));
+        Assertions.assertTrue(events.get("Connect").getBoolean("success"));
+    }
+}
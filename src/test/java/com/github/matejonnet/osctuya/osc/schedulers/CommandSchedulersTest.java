@@ -0,0 +1,104 @@
+package com.github.matejonnet.osctuya.osc.schedulers;
+
+import com.github.matejonnet.osctuya.Bulb;
+import com.github.matejonnet.osctuya.DataPoint;
+import com.github.matejonnet.osctuya.config.Config;
+import com.github.matejonnet.osctuya.config.SchedulerType;
+import com.github.matejonnet.osctuya.osc.BulbCommand;
+import com.github.matejonnet.osctuya.osc.CommandScheduler;
+import com.github.matejonnet.osctuya.osc.TuyaCommand;
+import com.github.matejonnet.osctuya.simulator.SimulatedBulb;
+import com.github.matejonnet.osctuya.simulator.TuyaSimulator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class CommandSchedulersTest {
+
+    private static final String DEVICE_ID = "0123456789abcdef012345";
+    private static final String DEVICE_KEY = "0123456789abcdef";
+
+    @Test
+    public void everySchedulerShouldDeliverCommands() throws Exception {
+        Config config = Config.builder().sendQueueSize(10).repeatCommandTimes(2).repeatDelayMillis(10).build();
+        try (TuyaSimulator simulator = new TuyaSimulator()) {
+            SimulatedBulb simulated = simulator.addBulb(DEVICE_ID, DEVICE_KEY);
+            Bulb bulb = new Bulb("127.0.0.1", simulated.getPort(), DEVICE_ID, DEVICE_KEY, "simulated", config);
+            bulb.connect();
+            int temperature = 100;
+            for (SchedulerType type : SchedulerType.values()) {
+                CommandScheduler scheduler = CommandSchedulers.create(type, config);
+                temperature += 100;
+                scheduler.submit(new BulbCommand(bulb, TuyaCommand.TEMPERATURE, temperature / 1000f));
+
+                long until = System.currentTimeMillis() + 5000;
+                while (simulated.get(DataPoint.TEMPERATURE) != temperature && System.currentTimeMillis() < until) {
+                    Thread.sleep(10);
+                }
+                Assertions.assertEquals(temperature, simulated.get(DataPoint.TEMPERATURE), type.name());
+                scheduler.close();
+            }
+            bulb.close();
+        }
+    }
+
+    @Test
+    public void closeShouldStopTheSchedulerAndReaderThreads() throws Exception {
+        Config config = Config.builder().sendQueueSize(10).repeatCommandTimes(2).repeatDelayMillis(10).build();
+        try (TuyaSimulator simulator = new TuyaSimulator()) {
+            // the first connect starts the threads of the JDK default asynchronous channel group, they stay running
+            Bulb warmup = new Bulb("127.0.0.1", simulator.addBulb(DEVICE_ID, DEVICE_KEY).getPort(), DEVICE_ID, DEVICE_KEY, "warmup", config);
+            warmup.connect();
+            warmup.close();
+            for (SchedulerType type : SchedulerType.values()) {
+                SimulatedBulb simulated = simulator.addBulb(DEVICE_ID, DEVICE_KEY);
+                Set<Thread> before = Thread.getAllStackTraces().keySet();
+                Bulb bulb = new Bulb("127.0.0.1", simulated.getPort(), DEVICE_ID, DEVICE_KEY, "lifecycle", config);
+                bulb.connect();
+                CommandScheduler scheduler = CommandSchedulers.create(type, config);
+                scheduler.submit(new BulbCommand(bulb, TuyaCommand.BRIGHTNESS, 0.5f));
+                Assertions.assertFalse(startedThreads(before).isEmpty(), type.name());
+
+                scheduler.close();
+                bulb.close();
+                long until = System.currentTimeMillis() + 5000;
+                while (!startedThreads(before).isEmpty() && System.currentTimeMillis() < until) {
+                    Thread.sleep(10);
+                }
+                Assertions.assertEquals(Set.of(), startedThreads(before), type.name());
+            }
+        }
+    }
+
+    /**
+     * @return names of the live threads started after the snapshot, without the threads shared by all the bulbs
+     *      and the simulator threads
+     */
+    private static Set<String> startedThreads(Set<Thread> before) {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> !before.contains(thread))
+                .map(Thread::getName)
+                .filter(name -> !name.startsWith("bulb-") && !name.startsWith("simulator-"))
+                .collect(Collectors.toSet());
+    }
+
+    @Test
+    public void ringShouldDropTheOldestCommand() {
+        Bulb bulb = new Bulb("127.0.0.1", DEVICE_ID, DEVICE_KEY, "ring", Config.builder().build());
+        CommandRing ring = new CommandRing(2);
+        Assertions.assertTrue(ring.offer(bulb, TuyaCommand.RED, 0.1f, 1));
+        Assertions.assertTrue(ring.offer(bulb, TuyaCommand.GREEN, 0.2f, 2));
+        Assertions.assertFalse(ring.offer(bulb, TuyaCommand.BLUE, 0.3f, 3));
+        Assertions.assertFalse(ring.offerDroppingOldest(bulb, TuyaCommand.BLUE, 0.3f, 3));
+
+        List<String> polled = new ArrayList<>();
+        while (ring.poll((b, command, value, receivedAt) -> polled.add(command + " " + value + " " + receivedAt))) {
+        }
+        Assertions.assertEquals(List.of("GREEN 0.2 2", "BLUE 0.3 3"), polled);
+        Assertions.assertTrue(ring.isEmpty());
+    }
+}
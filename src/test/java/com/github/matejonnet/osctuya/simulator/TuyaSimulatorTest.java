@@ -0,0 +1,224 @@
+package com.github.matejonnet.osctuya.simulator;
+
+import com.github.matejonnet.osctuya.Bulb;
+import com.github.matejonnet.osctuya.DataPoint;
+import com.github.matejonnet.osctuya.Utils;
+import com.github.matejonnet.osctuya.config.Config;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+
+public class TuyaSimulatorTest {
+
+    private static final String DEVICE_ID = "0123456789abcdef012345";
+    private static final String DEVICE_KEY = "0123456789abcdef";
+
+    private final Config config = Config.builder().sendQueueSize(10).build();
+
+    @Test
+    public void shouldApplyAndAcknowledgeCommands() throws Exception {
+        try (TuyaSimulator simulator = new TuyaSimulator()) {
+            SimulatedBulb simulated = simulator.addBulb(DEVICE_ID, DEVICE_KEY);
+            Bulb bulb = new Bulb("127.0.0.1", simulated.getPort(), DEVICE_ID, DEVICE_KEY, "simulated", config);
+            bulb.connect();
+
+            bulb.setBrightness(50);
+
+            await(() -> bulb.getAcknowledgedCommands() == 1);
+            Assertions.assertEquals(505, simulated.get(DataPoint.BRIGHTNESS));
+            await(() -> bulb.getConfirmedState().isSet(DataPoint.BRIGHTNESS));
+            Assertions.assertEquals(505, bulb.getConfirmedState().get(DataPoint.BRIGHTNESS));
+            Assertions.assertEquals(0, simulated.getInvalidFrames());
+            bulb.close();
+        }
+    }
+
+    @Test
+    public void shouldKeepIdleConnectionOpenWithHeartbeats() throws Exception {
+        Config heartbeatConfig = Config.builder().sendQueueSize(10).heartbeatIntervalMillis(200).readTimeoutMillis(500).build();
+        try (TuyaSimulator simulator = new TuyaSimulator()) {
+            SimulatedBulb simulated = simulator.addBulb(DEVICE_ID, DEVICE_KEY);
+            // the first replies are slower than the read timeout while the JVM warms up
+            Bulb warmup = new Bulb("127.0.0.1", simulator.addBulb(DEVICE_ID, DEVICE_KEY).getPort(), DEVICE_ID, DEVICE_KEY, "warmup", config);
+            warmup.connect();
+            warmup.setBrightness(50);
+            await(() -> warmup.getAcknowledgedCommands() == 1);
+            warmup.close();
+            Bulb bulb = new Bulb("127.0.0.1", simulated.getPort(), DEVICE_ID, DEVICE_KEY, "simulated", heartbeatConfig);
+            bulb.connect();
+            bulb.setBrightness(50);
+            await(() -> bulb.getAcknowledgedCommands() == 1);
+            long frames = simulated.getReceivedFrames();
+
+            // nothing is sent but the heartbeats, four read timeouts
+            Thread.sleep(2000);
+
+            Assertions.assertTrue(bulb.isConnected());
+            Assertions.assertEquals(1, simulated.getAcceptedConnections());
+            // one heartbeat per interval
+            long heartbeats = simulated.getReceivedFrames() - frames;
+            Assertions.assertTrue(heartbeats >= 8, "heartbeats: " + heartbeats);
+            bulb.close();
+        }
+    }
+
+    @Test
+    public void shouldRejectFramesEncryptedWithOtherKey() throws Exception {
+        try (TuyaSimulator simulator = new TuyaSimulator()) {
+            SimulatedBulb simulated = simulator.addBulb(DEVICE_ID, DEVICE_KEY);
+            Bulb bulb = new Bulb("127.0.0.1", simulated.getPort(), DEVICE_ID, "fedcba9876543210", "simulated", config);
+            bulb.connect();
+
+            bulb.setTemperature(100);
+
+            await(() -> simulated.getInvalidFrames() == 1);
+            Assertions.assertEquals(-1, simulated.get(DataPoint.TEMPERATURE));
+            bulb.close();
+        }
+    }
+
+    @Test
+    public void shouldDropCommands() throws Exception {
+        try (TuyaSimulator simulator = new TuyaSimulator(SimulatorFaults.builder().dropProbability(1).build())) {
+            SimulatedBulb simulated = simulator.addBulb(DEVICE_ID, DEVICE_KEY);
+            Bulb bulb = new Bulb("127.0.0.1", simulated.getPort(), DEVICE_ID, DEVICE_KEY, "simulated", config);
+            bulb.connect();
+
+            bulb.setBrightness(50);
+
+            await(() -> simulated.getDroppedFrames() == 1);
+            Assertions.assertEquals(-1, simulated.get(DataPoint.BRIGHTNESS));
+            Assertions.assertEquals(0, bulb.getAcknowledgedCommands());
+            bulb.close();
+        }
+    }
+
+    @Test
+    public void shouldSuppressUnchangedValues() throws Exception {
+        Config config = Config.builder().sendQueueSize(10).stateRefreshMillis(60000).build();
+        try (TuyaSimulator simulator = new TuyaSimulator()) {
+            SimulatedBulb simulated = simulator.addBulb(DEVICE_ID, DEVICE_KEY);
+            Bulb bulb = new Bulb("127.0.0.1", simulated.getPort(), DEVICE_ID, DEVICE_KEY, "simulated", config);
+            bulb.connect();
+
+            bulb.setBrightness(50);
+            await(() -> bulb.getAcknowledgedCommands() == 1);
+            bulb.setBrightness(50);
+            bulb.setTemperature(100);
+
+            await(() -> bulb.getAcknowledgedCommands() == 2);
+            Assertions.assertEquals(2, simulated.getReceivedFrames());
+            Assertions.assertEquals(1, bulb.getMetrics().getCommandsSuppressed());
+            Assertions.assertEquals(100, simulated.get(DataPoint.TEMPERATURE));
+            Assertions.assertEquals(505, bulb.getShadowState().get(DataPoint.BRIGHTNESS));
+            bulb.close();
+        }
+    }
+
+    @Test
+    public void shouldApplyReportAfterLostAcknowledgement() throws Exception {
+        Config config = Config.builder().sendQueueSize(10).stateRefreshMillis(60000).ackTimeoutMillis(100).build();
+        try (TuyaSimulator simulator = new TuyaSimulator(SimulatorFaults.builder().dropProbability(1).build())) {
+            SimulatedBulb simulated = simulator.addBulb(DEVICE_ID, DEVICE_KEY);
+            Bulb bulb = new Bulb("127.0.0.1", simulated.getPort(), DEVICE_ID, DEVICE_KEY, "simulated", config);
+            bulb.connect();
+
+            bulb.setBrightness(50);
+            await(() -> simulated.getDroppedFrames() == 1);
+            Assertions.assertEquals(1, bulb.getInFlightCommands());
+            // the acknowledgement is lost, the frame expires after the ack timeout
+            Thread.sleep(200);
+            // changed outside the console
+            simulated.report(DataPoint.BRIGHTNESS, 1000);
+
+            await(() -> bulb.getShadowState().get(DataPoint.BRIGHTNESS) == 1000);
+            Assertions.assertEquals(0, bulb.getInFlightCommands());
+            // not suppressed, the bulb reported another value
+            bulb.setBrightness(50);
+            await(() -> simulated.getReceivedFrames() == 2);
+            bulb.close();
+        }
+    }
+
+    @Test
+    public void shouldKeepColorChannelsUpdatedConcurrently() throws Exception {
+        try (TuyaSimulator simulator = new TuyaSimulator()) {
+            SimulatedBulb simulated = simulator.addBulb(DEVICE_ID, DEVICE_KEY);
+            Bulb bulb = new Bulb("127.0.0.1", simulated.getPort(), DEVICE_ID, DEVICE_KEY, "simulated", config);
+            bulb.connect();
+
+            // one ingress thread per channel, as the OSC receivers, the DMX receivers and the cue player
+            List<IntConsumer> channels = List.of(bulb::updateRed, bulb::updateGreen, bulb::updateBlue);
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < channels.size(); i++) {
+                IntConsumer channel = channels.get(i);
+                int last = 100 + i * 50;
+                threads.add(new Thread(() -> {
+                    for (int round = 0; round < 20; round++) {
+                        for (int value = 0; value <= last; value++) {
+                            channel.accept(value);
+                        }
+                    }
+                }));
+            }
+            threads.forEach(Thread::start);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            int expected = Utils.packHsv(100, 150, 200);
+            await(() -> simulated.get(DataPoint.COLOUR) == expected);
+            bulb.close();
+        }
+    }
+
+    @Test
+    public void shouldAdaptFrameRateToTheBulb() throws Exception {
+        Config config = Config.builder().sendQueueSize(10).adaptiveRate(true).minFramesPerSecond(5).build();
+        try (TuyaSimulator simulator = new TuyaSimulator()) {
+            SimulatedBulb simulated = simulator.addBulb(DEVICE_ID, DEVICE_KEY);
+            Bulb bulb = new Bulb("127.0.0.1", simulated.getPort(), DEVICE_ID, DEVICE_KEY, "simulated", config);
+            bulb.connect();
+
+            for (int i = 0; i < 200; i++) {
+                bulb.setBrightness(i % 100);
+                Thread.sleep(10);
+            }
+
+            Assertions.assertTrue(bulb.getFrameRate() > 5, "Rate: " + bulb.getFrameRate());
+            // conflated to the rate, the first frames are sent at 5 frames/s
+            Assertions.assertTrue(simulated.getReceivedFrames() < 100, "Frames: " + simulated.getReceivedFrames());
+            bulb.close();
+        }
+    }
+
+    @Test
+    public void shouldLimitConnections() throws Exception {
+        try (TuyaSimulator simulator = new TuyaSimulator();
+             Socket first = new Socket(InetAddress.getLoopbackAddress(), simulator.addBulb(DEVICE_ID, DEVICE_KEY).getPort())) {
+            SimulatedBulb simulated = simulator.getBulbs().get(0);
+            await(() -> simulated.getAcceptedConnections() == 1);
+            try (Socket second = new Socket(InetAddress.getLoopbackAddress(), simulated.getPort())) {
+                Assertions.assertEquals(-1, second.getInputStream().read());
+            }
+            Assertions.assertEquals(1, simulated.getRefusedConnections());
+            Assertions.assertEquals(1, simulated.getOpenConnections());
+        }
+    }
+
+    private void await(BooleanSupplier condition) throws InterruptedException {
+        long until = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > until) {
+                Assertions.fail("Condition not met in time.");
+            }
+            Thread.sleep(10);
+        }
+    }
+}